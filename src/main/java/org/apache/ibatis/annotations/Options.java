@@ -63,4 +63,11 @@ public @interface Options {
   String keyColumn() default "";
   
   String resultSets() default "";
+
+  /**
+   * Maximum rows per multi-row insert when the parameter is a collection or an array,
+   * including one passed as the only {@code @Param}. Cannot be combined with {@code @SelectKey}.
+   * The default is 0 (disabled).
+   */
+  int bulkInsertSize() default 0;
 }
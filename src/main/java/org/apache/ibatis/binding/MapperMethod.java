@@ -18,6 +18,8 @@ package org.apache.ibatis.binding;
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
@@ -28,12 +30,20 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * @author Clinton Begin
@@ -56,9 +66,55 @@ public class MapperMethod {
   public MapperMethod(Class<?> mapperInterface, Method method, Configuration config) {
     this.command = new SqlCommand(config, mapperInterface, method);
     this.method = new MethodSignature(config, mapperInterface, method);
+    if (this.method.returnsPublisher() && command.getType() != SqlCommandType.SELECT) {
+      throw new BindingException("Mapper method '" + command.getName() + "' returns a Publisher but is not a select");
+    }
   }
 
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      return executeAsync(sqlSession.getConfiguration(), args);
+    } else if (method.returnsPublisher()) {
+      return executeForPublisher(sqlSession.getConfiguration(), args);
+    }
+    return executeSync(sqlSession, args);
+  }
+
+  /**
+   * 在配置的线程池中用独立的会话执行，成功后立即提交。
+   * 与调用方的会话不共享事务和一级缓存：调用方回滚不会撤销异步执行的修改，异步执行也看不到调用方未提交的修改
+   */
+  private CompletableFuture<Object> executeAsync(Configuration configuration, Object[] args) {
+    SqlSessionFactory sqlSessionFactory = configuration.getAsyncSqlSessionFactory();
+    return CompletableFuture.supplyAsync(() -> {
+      try (SqlSession session = sqlSessionFactory.openSession()) {
+        Object result = executeSync(session, args);
+        session.commit();
+        return result;
+      }
+    }, configuration.getAsyncMapperExecutor());
+  }
+
+  /**
+   * 订阅后第一次请求时打开独立的会话执行查询，完成、出错或取消时关闭会话以释放连接
+   */
+  private <T> Flow.Publisher<T> executeForPublisher(Configuration configuration, Object[] args) {
+    SqlSessionFactory sqlSessionFactory = configuration.getAsyncSqlSessionFactory();
+    Object param = method.convertArgsToSqlCommandParam(args);
+    RowBounds rowBounds = method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT;
+    AtomicReference<SqlSession> session = new AtomicReference<>();
+    return new CursorPublisher<>(() -> {
+      session.set(sqlSessionFactory.openSession());
+      return session.get().<T>selectCursor(command.getName(), param, rowBounds);
+    }, () -> {
+      SqlSession opened = session.getAndSet(null);
+      if (opened != null) {
+        opened.close();
+      }
+    });
+  }
+
+  private Object executeSync(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) {
       case INSERT: {
@@ -220,6 +276,260 @@ public class MapperMethod {
 
   }
 
+  /**
+   * 按固定布局从方法参数数组中取值的 ParamMap
+   *
+   * 多参数的 mapper 方法每次调用只创建这个对象，不再逐个 put 到 HashMap。
+   * 参数名到参数位置的映射在启动时由 {@link ParamNameResolver} 计算好。
+   * 除 get、containsKey 等只读查找外，其他操作（修改、遍历、序列化等）会先把参数复制到 HashMap 中，
+   * 之后的行为与 {@link ParamMap} 完全一致。
+   */
+  public static class IndexedParamMap<V> extends ParamMap<V> {
+
+    private static final long serialVersionUID = 2697045346283153802L;
+
+    /**
+     * 参数布局，复制到 HashMap 后为 null
+     */
+    private transient Layout layout;
+    private transient Object[] args;
+
+    public IndexedParamMap(Layout layout, Object[] args) {
+      this.layout = layout;
+      this.args = args;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void inflate() {
+      Layout layout = this.layout;
+      Object[] args = this.args;
+      this.layout = null;
+      this.args = null;
+      for (Map.Entry<String, Integer> entry : layout.argIndexes.entrySet()) {
+        super.put(entry.getKey(), (V) args[entry.getValue()]);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+      if (layout != null) {
+        Integer index = layout.argIndexes.get(key);
+        if (index != null) {
+          return (V) args[index];
+        }
+        inflate();
+      }
+      return super.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+      if (layout != null) {
+        Integer index = layout.argIndexes.get(key);
+        return index == null ? defaultValue : (V) args[index];
+      }
+      return super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      if (layout != null) {
+        return layout.argIndexes.containsKey(key);
+      }
+      return super.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      if (layout != null) {
+        return layout.argIndexes.size();
+      }
+      return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return size() == 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.containsValue(value);
+    }
+
+    @Override
+    public V put(String key, V value) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> m) {
+      if (layout != null) {
+        inflate();
+      }
+      super.putAll(m);
+    }
+
+    @Override
+    public V remove(Object key) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+      layout = null;
+      args = null;
+      super.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+      if (layout != null) {
+        inflate();
+      }
+      return super.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+      if (layout != null) {
+        inflate();
+      }
+      return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+      if (layout != null) {
+        inflate();
+      }
+      return super.entrySet();
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.replace(key, value);
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+      if (layout != null) {
+        inflate();
+      }
+      return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+      if (layout != null) {
+        inflate();
+      }
+      super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+      if (layout != null) {
+        inflate();
+      }
+      super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+      if (layout != null) {
+        inflate();
+      }
+      return super.clone();
+    }
+
+    private Object writeReplace() {
+      if (layout != null) {
+        inflate();
+      }
+      return this;
+    }
+
+    /**
+     * 参数名到参数位置的映射，每个 mapper 方法一份
+     */
+    public static final class Layout {
+
+      private final Map<String, Integer> argIndexes;
+
+      /**
+       * @param argIndexes 参数名（包括 param1、param2 等通用名）到方法参数位置的映射
+       */
+      public Layout(Map<String, Integer> argIndexes) {
+        this.argIndexes = new HashMap<>(argIndexes);
+      }
+
+    }
+
+  }
+
   public static class SqlCommand {
 
     private final String name;
@@ -283,6 +593,8 @@ public class MapperMethod {
     private final boolean returnsVoid;
     private final boolean returnsCursor;
     private final boolean returnsOptional;
+    private final boolean returnsFuture;
+    private final boolean returnsPublisher;
     private final Class<?> returnType;
     private final String mapKey;
     private final Integer resultHandlerIndex;
@@ -291,18 +603,32 @@ public class MapperMethod {
 
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      this.returnsFuture = CompletableFuture.class.equals(method.getReturnType())
+          || CompletionStage.class.equals(method.getReturnType());
+      this.returnsPublisher = Flow.Publisher.class.equals(method.getReturnType());
+      if (returnsFuture || returnsPublisher) {
+        // 按 future 的结果类型或 publisher 的元素类型处理
+        resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+            ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+        if (resolvedReturnType instanceof WildcardType) {
+          resolvedReturnType = ((WildcardType) resolvedReturnType).getUpperBounds()[0];
+        }
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture || returnsPublisher ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
-      this.mapKey = getMapKey(method);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException(method.getName() + " cannot return a Cursor asynchronously because its session is closed on completion");
+      }
+      this.mapKey = getMapKey(method, returnsFuture ? this.returnType : method.getReturnType());
       this.returnsMap = this.mapKey != null;
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
       this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
@@ -362,6 +688,22 @@ public class MapperMethod {
       return returnsOptional;
     }
 
+    /**
+     * 是否返回 {@link CompletableFuture} 或 {@link CompletionStage}，此时 {@link #getReturnType()} 为结果的类型
+     * @return
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
+    /**
+     * 是否返回 {@link Flow.Publisher}，此时 {@link #getReturnType()} 为元素的类型
+     * @return
+     */
+    public boolean returnsPublisher() {
+      return returnsPublisher;
+    }
+
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
       final Class<?>[] argTypes = method.getParameterTypes();
@@ -377,9 +719,9 @@ public class MapperMethod {
       return index;
     }
 
-    private String getMapKey(Method method) {
+    private String getMapKey(Method method, Class<?> returnType) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
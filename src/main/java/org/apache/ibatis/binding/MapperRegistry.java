@@ -16,15 +16,16 @@
 package org.apache.ibatis.binding;
 
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
+import org.apache.ibatis.io.ClassFile;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Clinton Begin
@@ -39,9 +40,9 @@ public class MapperRegistry {
   private final Configuration config;
 
   /**
-   * MapperProxyFactory 的映射
+   * MapperProxyFactory 的映射，配置封存后仍可能添加 mapper，需要支持并发读取
    */
-  private final Map<Class<?>, MapperProxyFactory<?>> knownMappers = new HashMap<>();
+  private final Map<Class<?>, MapperProxyFactory<?>> knownMappers = new ConcurrentHashMap<>();
 
   public MapperRegistry(Configuration config) {
     this.config = config;
@@ -123,7 +124,13 @@ public class MapperRegistry {
   public void addMappers(String packageName, Class<?> superType) {
     //扫描指定包下的指定类
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<>();
-    resolverUtil.find(new ResolverUtil.IsA(superType), packageName);
+    resolverUtil.find(new ResolverUtil.IsA(superType) {
+      @Override
+      public boolean matches(ClassFile classFile) {
+        // 只有接口会被注册，其他类无需加载
+        return classFile.isInterface() && super.matches(classFile);
+      }
+    }, packageName);
     Set<Class<? extends Class<?>>> mapperSet = resolverUtil.getClasses();
     //遍历，添加到 knownMappers 中
     for (Class<?> mapperClass : mapperSet) {
@@ -0,0 +1,251 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * 多行插入 SqlSource
+ *
+ * 将单行 insert 语句按参数集合展开为 VALUES (...), (...) 形式，
+ * 每行的参数预先取值并使用已解析的 TypeHandler 绑定。
+ * 相同行数生成相同的 sql，便于复用 PreparedStatement。
+ */
+public class MultiRowInsertSqlSource implements SqlSource {
+
+  /**
+   * 额外参数名前缀
+   */
+  private static final String ROW_PARAMETER_PREFIX = "__bulk_";
+
+  private final Configuration configuration;
+
+  /**
+   * 单行 insert 的 SqlSource
+   */
+  private final SqlSource rowSqlSource;
+
+  public MultiRowInsertSqlSource(Configuration configuration, SqlSource rowSqlSource) {
+    this.configuration = configuration;
+    this.rowSqlSource = rowSqlSource;
+  }
+
+  public SqlSource getRowSqlSource() {
+    return rowSqlSource;
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject) {
+    List<?> rows = getRows(parameterObject);
+    //非集合参数，按单行处理
+    if (rows == null || rows.isEmpty()) {
+      return rowSqlSource.getBoundSql(parameterObject);
+    }
+
+    String rowSql = null;
+    int[] layout = null;
+    StringBuilder sql = null;
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    List<Object> values = new ArrayList<>();
+    List<ParameterMapping> suffixMappings = new ArrayList<>();
+    List<Object> suffixValues = new ArrayList<>();
+    int rowIndex = 0;
+    for (Object row : rows) {
+      BoundSql rowBoundSql = rowSqlSource.getBoundSql(row);
+      List<ParameterMapping> rowMappings = rowBoundSql.getParameterMappings();
+      if (rowSql == null) {
+        //第一行确定 VALUES 的位置以及前后缀中的参数个数
+        rowSql = rowBoundSql.getSql();
+        layout = parseLayout(rowSql, rowMappings.size());
+        sql = new StringBuilder(rowSql.length() * rows.size());
+        sql.append(rowSql, 0, layout[0]);
+        for (int i = 0; i < layout[2]; i++) {
+          addMapping(rowBoundSql, row, rowMappings.get(i), rowIndex, i, parameterMappings, values);
+        }
+        for (int i = layout[2] + layout[3]; i < rowMappings.size(); i++) {
+          addMapping(rowBoundSql, row, rowMappings.get(i), rowIndex, i, suffixMappings, suffixValues);
+        }
+      } else {
+        if (!rowSql.equals(rowBoundSql.getSql())) {
+          throw new BuilderException("Every row of a multi-row insert must render the same SQL. Expected '"
+              + rowSql + "' but was '" + rowBoundSql.getSql() + "'.");
+        }
+        sql.append(", ");
+      }
+      //追加 VALUES 元组
+      sql.append(rowSql, layout[0], layout[1]);
+      for (int i = layout[2]; i < layout[2] + layout[3]; i++) {
+        addMapping(rowBoundSql, row, rowMappings.get(i), rowIndex, i, parameterMappings, values);
+      }
+      rowIndex++;
+    }
+    sql.append(rowSql, layout[1], rowSql.length());
+    parameterMappings.addAll(suffixMappings);
+    values.addAll(suffixValues);
+
+    BoundSql boundSql = new BoundSql(configuration, sql.toString(), parameterMappings, parameterObject);
+    for (int i = 0; i < parameterMappings.size(); i++) {
+      boundSql.setAdditionalParameter(parameterMappings.get(i).getProperty(), values.get(i));
+    }
+    return boundSql;
+  }
+
+  /**
+   * 获取行集合。支持集合和数组参数，以及 DefaultSqlSession 或 @Param 包装后只含一个集合（数组）的参数 Map，
+   * 比如 {collection, list}、{array} 和 {users, param1}
+   * @param parameterObject
+   * @return 不是多行参数时返回 null
+   */
+  public static List<?> getRows(Object parameterObject) {
+    if (parameterObject instanceof Map) {
+      Object rows = null;
+      for (Object value : ((Map<?, ?>) parameterObject).values()) {
+        if (rows != null && value != rows) {
+          return null;
+        }
+        rows = value;
+      }
+      parameterObject = rows;
+    }
+    if (parameterObject instanceof List) {
+      return (List<?>) parameterObject;
+    } else if (parameterObject instanceof Collection) {
+      return new ArrayList<>((Collection<?>) parameterObject);
+    } else if (parameterObject != null && parameterObject.getClass().isArray()) {
+      int length = Array.getLength(parameterObject);
+      List<Object> rows = new ArrayList<>(length);
+      for (int i = 0; i < length; i++) {
+        rows.add(Array.get(parameterObject, i));
+      }
+      return rows;
+    }
+    return null;
+  }
+
+  /**
+   * 预先取值，并以唯一名称作为额外参数绑定
+   */
+  private void addMapping(BoundSql rowBoundSql, Object row, ParameterMapping mapping, int rowIndex, int mappingIndex,
+      List<ParameterMapping> parameterMappings, List<Object> values) {
+    String property = ROW_PARAMETER_PREFIX + rowIndex + "_" + mappingIndex;
+    parameterMappings.add(new ParameterMapping.Builder(configuration, property, mapping.getTypeHandler())
+        .mode(mapping.getMode())
+        .javaType(mapping.getJavaType())
+        .jdbcType(mapping.getJdbcType())
+        .numericScale(mapping.getNumericScale())
+        .resultMapId(mapping.getResultMapId())
+        .jdbcTypeName(mapping.getJdbcTypeName())
+        .expression(mapping.getExpression())
+        .build());
+    values.add(getValue(rowBoundSql, row, mapping.getProperty()));
+  }
+
+  /**
+   * 与 DefaultParameterHandler 相同的取值规则
+   */
+  private Object getValue(BoundSql rowBoundSql, Object row, String property) {
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    if (rowBoundSql.hasAdditionalParameter(property)) {
+      return rowBoundSql.getAdditionalParameter(property);
+    } else if (row == null) {
+      return null;
+    } else if (typeHandlerRegistry.hasTypeHandler(row.getClass())) {
+      return row;
+    } else {
+      return configuration.newMetaObject(row).getValue(property);
+    }
+  }
+
+  /**
+   * 解析单行 sql 的结构
+   * @param sql
+   * @param parameterCount
+   * @return {VALUES 元组起始位置, 元组结束位置（不含）, 元组前的参数个数, 元组内的参数个数}
+   */
+  private int[] parseLayout(String sql, int parameterCount) {
+    String upperSql = sql.toUpperCase(Locale.ENGLISH);
+    int placeholders = 0;
+    int open = -1;
+    int depth = 0;
+    int before = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"') {
+        //跳过字符串和带引号的标识符
+        int end = sql.indexOf(c, i + 1);
+        i = end == -1 ? sql.length() : end;
+      } else if (c == '?') {
+        placeholders++;
+      } else if (open == -1) {
+        if (c == 'V' || c == 'v') {
+          if (upperSql.startsWith("VALUES", i) && isBoundary(sql, i - 1) && isBoundary(sql, i + 6)) {
+            int start = i + 6;
+            while (start < sql.length() && Character.isWhitespace(sql.charAt(start))) {
+              start++;
+            }
+            if (start < sql.length() && sql.charAt(start) == '(') {
+              open = start;
+              before = placeholders;
+              depth = 1;
+              i = start;
+            }
+          }
+        }
+      } else if (depth > 0) {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')' && --depth == 0) {
+          int total = countPlaceholders(sql, i + 1) + placeholders;
+          if (total != parameterCount) {
+            break;
+          }
+          return new int[] {open, i + 1, before, placeholders - before};
+        }
+      }
+    }
+    throw new BuilderException("Could not find a single VALUES (...) clause matching the parameters in multi-row insert '" + sql + "'.");
+  }
+
+  private int countPlaceholders(String sql, int from) {
+    int count = 0;
+    for (int i = from; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"') {
+        int end = sql.indexOf(c, i + 1);
+        i = end == -1 ? sql.length() : end;
+      } else if (c == '?') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private boolean isBoundary(String sql, int index) {
+    return index < 0 || index >= sql.length() || !Character.isJavaIdentifierPart(sql.charAt(index));
+  }
+
+}
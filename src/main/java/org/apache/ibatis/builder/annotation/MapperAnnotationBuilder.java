@@ -34,6 +34,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -65,7 +67,9 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.builder.xml.XMLMapperCompiler;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
@@ -89,6 +93,7 @@ import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.UnknownTypeHandler;
+import org.w3c.dom.Document;
 
 /**
  * @author Clinton Begin
@@ -135,7 +140,12 @@ public class MapperAnnotationBuilder {
         try {
           // issue #237
           if (!method.isBridge()) {
-            parseStatement(method);
+            if (canBuildLazily(method)) {
+              configuration.addLazyMappedStatement(type.getName() + "." + method.getName(), null, () -> parseStatement(method),
+                  () -> validateResultMapReferences(method));
+            } else {
+              parseStatement(method);
+            }
           }
         } catch (IncompleteElementException e) {
           configuration.addIncompleteMethod(new MethodResolver(this, method));
@@ -147,7 +157,8 @@ public class MapperAnnotationBuilder {
 
   private void parsePendingMethods() {
     Collection<MethodResolver> incompleteMethods = configuration.getIncompleteMethods();
-    synchronized (incompleteMethods) {
+    configuration.getIncompleteElementsLock().lock();
+    try {
       Iterator<MethodResolver> iter = incompleteMethods.iterator();
       while (iter.hasNext()) {
         try {
@@ -157,6 +168,8 @@ public class MapperAnnotationBuilder {
           // This method is still missing a resource
         }
       }
+    } finally {
+      configuration.getIncompleteElementsLock().unlock();
     }
   }
 
@@ -166,6 +179,13 @@ public class MapperAnnotationBuilder {
     // this flag is set at XMLMapperBuilder#bindMapperForNamespace
     if (!configuration.isResourceLoaded("namespace:" + type.getName())) {
       String xmlResource = type.getName().replace('.', '/') + ".xml";
+      if (configuration.isUsePrecompiledMappers()) {
+        Document compiled = XMLMapperCompiler.loadCompiled(type.getClassLoader(), xmlResource);
+        if (compiled != null) {
+          new XMLMapperBuilder(compiled, assistant.getConfiguration(), xmlResource, configuration.getSqlFragments(), type.getName()).parse();
+          return;
+        }
+      }
       InputStream inputStream = null;
       try {
         inputStream = Resources.getResourceAsStream(type.getClassLoader(), xmlResource);
@@ -217,6 +237,36 @@ public class MapperAnnotationBuilder {
     }
   }
 
+  /**
+   * 是否可以延迟构建，@Results 等生成的 resultMap 可能被其他语句引用，需要立即构建
+   * @param method
+   * @return
+   */
+  private boolean canBuildLazily(Method method) {
+    return configuration.isLazyStatementBuilding()
+        && (getSqlAnnotationType(method) != null || getSqlProviderAnnotationType(method) != null)
+        && method.getAnnotation(Results.class) == null
+        && method.getAnnotation(ConstructorArgs.class) == null
+        && method.getAnnotation(TypeDiscriminator.class) == null;
+  }
+
+  /**
+   * 不构建语句，只检查 @ResultMap 引用的 resultMap 是否存在
+   * @param method
+   */
+  private void validateResultMapReferences(Method method) {
+    ResultMap resultMapAnnotation = method.getAnnotation(ResultMap.class);
+    if (resultMapAnnotation == null) {
+      return;
+    }
+    for (String resultMapName : resultMapAnnotation.value()) {
+      String resultMapId = assistant.applyCurrentNamespace(resultMapName, true);
+      if (!configuration.hasResultMap(resultMapId)) {
+        throw new BuilderException("Could not find result map '" + resultMapId + "' referenced from " + type.getName() + "." + method.getName());
+      }
+    }
+  }
+
   private String parseResultMap(Method method) {
     Class<?> returnType = getReturnType(method);
     ConstructorArgs args = method.getAnnotation(ConstructorArgs.class);
@@ -376,7 +426,8 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          options != null && options.bulkInsertSize() > 0 ? options.bulkInsertSize() : null);
     }
   }
   
@@ -408,6 +459,14 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    if (CompletableFuture.class.equals(returnType) || CompletionStage.class.equals(returnType)
+        || Flow.Publisher.class.equals(returnType)) {
+      // 异步方法按 future 的结果类型处理，Publisher 按元素类型处理
+      resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+          ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      returnType = resolvedReturnType instanceof ParameterizedType
+          ? (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType() : Object.class;
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
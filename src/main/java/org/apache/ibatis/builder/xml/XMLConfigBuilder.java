@@ -15,9 +15,14 @@
  */
 package org.apache.ibatis.builder.xml;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
@@ -31,6 +36,7 @@ import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.DatabaseIdProvider;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XMLStreamDocumentReader;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.reflection.DefaultReflectorFactory;
@@ -40,12 +46,14 @@ import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.BatchGrouping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
+import org.w3c.dom.Document;
 
 /**
  * @author Clinton Begin
@@ -298,6 +306,15 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
     configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
     configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+    configuration.setDefaultCursorFetchSize(integerValueOf(props.getProperty("defaultCursorFetchSize"), null));
+    configuration.setCursorStreaming(booleanValueOf(props.getProperty("cursorStreaming"), false));
+    configuration.setCursorPrefetch(booleanValueOf(props.getProperty("cursorPrefetch"), false));
+    configuration.setMultiStatementQueries(booleanValueOf(props.getProperty("multiStatementQueries"), false));
+    configuration.setAdaptiveFetchSize(booleanValueOf(props.getProperty("adaptiveFetchSize"), false));
+    configuration.setMinAdaptiveFetchSize(integerValueOf(props.getProperty("minAdaptiveFetchSize"), 10));
+    configuration.setMaxAdaptiveFetchSize(integerValueOf(props.getProperty("maxAdaptiveFetchSize"), 1000));
+    configuration.setAdaptiveStatementTimeout(booleanValueOf(props.getProperty("adaptiveStatementTimeout"), false));
+    configuration.setMinAdaptiveStatementTimeout(integerValueOf(props.getProperty("minAdaptiveStatementTimeout"), 5));
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
@@ -311,6 +328,24 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setUsePrecompiledMappers(booleanValueOf(props.getProperty("usePrecompiledMappers"), false));
+    configuration.setParallelMapperLoading(booleanValueOf(props.getProperty("parallelMapperLoading"), false));
+    configuration.setLazyStatementBuilding(booleanValueOf(props.getProperty("lazyStatementBuilding"), false));
+    configuration.setSealConfiguration(booleanValueOf(props.getProperty("sealConfiguration"), false));
+    configuration.setStreamingXmlParsing(booleanValueOf(props.getProperty("streamingXmlParsing"), false));
+    configuration.setUseLambdaInvokers(booleanValueOf(props.getProperty("useLambdaInvokers"), false));
+    configuration.setBatchGrouping(BatchGrouping.valueOf(props.getProperty("batchGrouping", "NONE")));
+    configuration.setBatchFlushRows(integerValueOf(props.getProperty("batchFlushRows"), null));
+    configuration.setBatchFlushBytes(integerValueOf(props.getProperty("batchFlushBytes"), null));
+    configuration.setBatchFlushInterval(integerValueOf(props.getProperty("batchFlushInterval"), null));
+    configuration.setBatchRetainParameters(booleanValueOf(props.getProperty("batchRetainParameters"), true));
+    configuration.setBatchPipelining(booleanValueOf(props.getProperty("batchPipelining"), false));
+    configuration.setReuseExecutorStatementLimit(integerValueOf(props.getProperty("reuseExecutorStatementLimit"), null));
+    Class<?> asyncExecutor = resolveClass(props.getProperty("asyncExecutor"));
+    if (asyncExecutor != null) {
+      configuration.setAsyncExecutor((java.util.concurrent.Executor) asyncExecutor.newInstance());
+    }
+    configuration.setAsyncMaxConcurrency(integerValueOf(props.getProperty("asyncMaxConcurrency"), 10));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>)resolveClass(props.getProperty("logImpl"));
@@ -417,7 +452,11 @@ public class XMLConfigBuilder extends BaseBuilder {
    */
   private void mapperElement(XNode parent) throws Exception {
     if (parent != null) {
-      for (XNode child : parent.getChildren()) {
+      List<XNode> children = parent.getChildren();
+      //并行模式下先在线程池中解析全部 xml，再按声明顺序构建，保证注册顺序与串行一致
+      List<CompletableFuture<Document>> documents = configuration.isParallelMapperLoading() ? parseMapperDocuments(children) : null;
+      for (int i = 0; i < children.size(); i++) {
+        XNode child = children.get(i);
         //如果是包，扫描包路径下面的路径
         if ("package".equals(child.getName())) {
           String mapperPackage = child.getStringAttribute("name");
@@ -434,19 +473,32 @@ public class XMLConfigBuilder extends BaseBuilder {
           if (resource != null && url == null && mapperClass == null) {
             //错误上下文
             ErrorContext.instance().resource(resource);
-            //获取xml文件
-            InputStream inputStream = Resources.getResourceAsStream(resource);
-            //xml解析器
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+            //优先使用预编译文件
+            Document compiled = documents != null ? awaitDocument(documents.get(i))
+                : configuration.isUsePrecompiledMappers() ? XMLMapperCompiler.loadCompiled(null, resource) : null;
+            XMLMapperBuilder mapperParser;
+            if (compiled != null) {
+              mapperParser = new XMLMapperBuilder(compiled, configuration, resource, configuration.getSqlFragments());
+            } else {
+              //获取xml文件
+              InputStream inputStream = Resources.getResourceAsStream(resource);
+              //xml解析器
+              mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
+            }
             //解析文件
             mapperParser.parse();
             //如果url不为空
           } else if (resource == null && url != null && mapperClass == null) {
             ErrorContext.instance().resource(url);
-            //获得 url 的 InputStream 对象
-            InputStream inputStream = Resources.getUrlAsStream(url);
-            //创建 XMLMapperBuilder 对象
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
+            XMLMapperBuilder mapperParser;
+            if (documents != null) {
+              mapperParser = new XMLMapperBuilder(awaitDocument(documents.get(i)), configuration, url, configuration.getSqlFragments());
+            } else {
+              //获得 url 的 InputStream 对象
+              InputStream inputStream = Resources.getUrlAsStream(url);
+              //创建 XMLMapperBuilder 对象
+              mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
+            }
             //解析
             mapperParser.parse();
             //使用映射器接口实现类的完全限定类名
@@ -463,6 +515,67 @@ public class XMLConfigBuilder extends BaseBuilder {
     }
   }
 
+  /**
+   * 在 fork-join 线程池中并行读取、校验 mapper xml
+   * @param children
+   * @return 与 children 一一对应，package、class 等非 xml 节点为 null
+   */
+  private List<CompletableFuture<Document>> parseMapperDocuments(List<XNode> children) {
+    //工作线程的上下文类加载器可能不同，使用当前线程的类加载器查找资源
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    List<CompletableFuture<Document>> documents = new ArrayList<>(children.size());
+    for (XNode child : children) {
+      final String resource = child.getStringAttribute("resource");
+      final String url = child.getStringAttribute("url");
+      if ("package".equals(child.getName()) || child.getStringAttribute("class") != null
+          || (resource == null) == (url == null)) {
+        documents.add(null);
+      } else {
+        documents.add(CompletableFuture.supplyAsync(() -> readMapperDocument(classLoader, resource, url)));
+      }
+    }
+    return documents;
+  }
+
+  private Document readMapperDocument(ClassLoader classLoader, String resource, String url) {
+    try {
+      if (resource != null) {
+        if (configuration.isUsePrecompiledMappers()) {
+          Document compiled = XMLMapperCompiler.loadCompiled(classLoader, resource);
+          if (compiled != null) {
+            return compiled;
+          }
+        }
+        try (InputStream inputStream = Resources.getResourceAsStream(classLoader, resource)) {
+          return parseMapperDocument(inputStream);
+        }
+      }
+      try (InputStream inputStream = Resources.getUrlAsStream(url)) {
+        return parseMapperDocument(inputStream);
+      }
+    } catch (IOException e) {
+      throw new BuilderException("Error reading mapper " + (resource != null ? resource : url) + ". Cause: " + e, e);
+    }
+  }
+
+  private Document parseMapperDocument(InputStream inputStream) {
+    if (configuration.isStreamingXmlParsing()) {
+      return XMLStreamDocumentReader.read(inputStream, new XMLMapperEntityResolver());
+    }
+    return XMLMapperCompiler.parse(inputStream);
+  }
+
+  private Document awaitDocument(CompletableFuture<Document> document) throws Exception {
+    try {
+      return document.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
   private boolean isSpecifiedEnvironment(String id) {
     if (environment == null) {
       throw new BuilderException("No environment specified.");
@@ -42,10 +42,12 @@ import org.apache.ibatis.mapping.ResultFlag;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XMLStreamDocumentReader;
 import org.apache.ibatis.parsing.XPathParser;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
+import org.w3c.dom.Document;
 
 /**
  * @author Clinton Begin
@@ -82,7 +84,9 @@ public class XMLMapperBuilder extends BaseBuilder {
 
   @Deprecated
   public XMLMapperBuilder(Reader reader, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
-    this(new XPathParser(reader, true, configuration.getVariables(), new XMLMapperEntityResolver()),
+    this(configuration.isStreamingXmlParsing()
+        ? new XPathParser(XMLStreamDocumentReader.read(reader, new XMLMapperEntityResolver()), false, configuration.getVariables(), new XMLMapperEntityResolver())
+        : new XPathParser(reader, true, configuration.getVariables(), new XMLMapperEntityResolver()),
         configuration, resource, sqlFragments);
   }
 
@@ -92,7 +96,22 @@ public class XMLMapperBuilder extends BaseBuilder {
   }
 
   public XMLMapperBuilder(InputStream inputStream, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
-    this(new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver()),
+    this(configuration.isStreamingXmlParsing()
+        ? new XPathParser(XMLStreamDocumentReader.read(inputStream, new XMLMapperEntityResolver()), false, configuration.getVariables(), new XMLMapperEntityResolver())
+        : new XPathParser(inputStream, true, configuration.getVariables(), new XMLMapperEntityResolver()),
+        configuration, resource, sqlFragments);
+  }
+
+  /**
+   * 基于已解析的 Document 创建，用于加载 {@link XMLMapperCompiler} 预编译的 mapper
+   */
+  public XMLMapperBuilder(Document document, Configuration configuration, String resource, Map<String, XNode> sqlFragments, String namespace) {
+    this(document, configuration, resource, sqlFragments);
+    this.builderAssistant.setCurrentNamespace(namespace);
+  }
+
+  public XMLMapperBuilder(Document document, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
+    this(new XPathParser(document, false, configuration.getVariables(), new XMLMapperEntityResolver()),
         configuration, resource, sqlFragments);
   }
 
@@ -163,6 +182,10 @@ public class XMLMapperBuilder extends BaseBuilder {
   private void buildStatementFromContext(List<XNode> list, String requiredDatabaseId) {
     for (XNode context : list) {
       final XMLStatementBuilder statementParser = new XMLStatementBuilder(configuration, builderAssistant, context, requiredDatabaseId);
+      if (configuration.isLazyStatementBuilding()) {
+        statementParser.indexStatementNode();
+        continue;
+      }
       try {
         statementParser.parseStatementNode();
       } catch (IncompleteElementException e) {
@@ -173,7 +196,8 @@ public class XMLMapperBuilder extends BaseBuilder {
 
   private void parsePendingResultMaps() {
     Collection<ResultMapResolver> incompleteResultMaps = configuration.getIncompleteResultMaps();
-    synchronized (incompleteResultMaps) {
+    configuration.getIncompleteElementsLock().lock();
+    try {
       Iterator<ResultMapResolver> iter = incompleteResultMaps.iterator();
       while (iter.hasNext()) {
         try {
@@ -183,12 +207,15 @@ public class XMLMapperBuilder extends BaseBuilder {
           // ResultMap is still missing a resource...
         }
       }
+    } finally {
+      configuration.getIncompleteElementsLock().unlock();
     }
   }
 
   private void parsePendingCacheRefs() {
     Collection<CacheRefResolver> incompleteCacheRefs = configuration.getIncompleteCacheRefs();
-    synchronized (incompleteCacheRefs) {
+    configuration.getIncompleteElementsLock().lock();
+    try {
       Iterator<CacheRefResolver> iter = incompleteCacheRefs.iterator();
       while (iter.hasNext()) {
         try {
@@ -198,12 +225,15 @@ public class XMLMapperBuilder extends BaseBuilder {
           // Cache ref is still missing a resource...
         }
       }
+    } finally {
+      configuration.getIncompleteElementsLock().unlock();
     }
   }
 
   private void parsePendingStatements() {
     Collection<XMLStatementBuilder> incompleteStatements = configuration.getIncompleteStatements();
-    synchronized (incompleteStatements) {
+    configuration.getIncompleteElementsLock().lock();
+    try {
       Iterator<XMLStatementBuilder> iter = incompleteStatements.iterator();
       while (iter.hasNext()) {
         try {
@@ -213,6 +243,8 @@ public class XMLMapperBuilder extends BaseBuilder {
           // Statement is still missing a resource...
         }
       }
+    } finally {
+      configuration.getIncompleteElementsLock().unlock();
     }
   }
 
@@ -0,0 +1,338 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.parsing.XPathParser;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Mapper xml 预编译器
+ *
+ * 构建期解析并校验 mapper xml，将节点树写为紧凑的二进制格式；
+ * 运行期直接还原为 Document，跳过 xml 解析和 DTD 校验。还原后的 Document 由 XMLMapperBuilder 读取，
+ * 其中的路径都是简单路径，XPathParser 直接遍历子节点而不经过 XPath。
+ * 预编译文件记录源文件的长度和 CRC32，classpath 上的源文件与之不一致时视为过期，改为解析源文件；
+ * 只发布预编译文件、没有源文件时不做检查。
+ * ${} 属性仍在运行期替换，因此同一份预编译文件可用于不同环境。
+ */
+public final class XMLMapperCompiler {
+
+  /**
+   * 预编译文件的后缀，和 mapper xml 放在同一路径下
+   */
+  public static final String COMPILED_SUFFIX = ".compiled";
+
+  private static final int MAGIC = 0x4D424D43;
+  private static final int VERSION = 2;
+
+  private static final Log log = LogFactory.getLog(XMLMapperCompiler.class);
+
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final byte CDATA = 3;
+  private static final byte END = 0;
+
+  private XMLMapperCompiler() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * 预编译目录下所有 mapper xml，生成的文件与源文件同名并加上 {@link #COMPILED_SUFFIX}。
+   * 可在构建时通过 exec 插件调用：XMLMapperCompiler &lt;sourceDir&gt; &lt;targetDir&gt;
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: XMLMapperCompiler <sourceDir> <targetDir>");
+    }
+    compileDirectory(new File(args[0]), new File(args[1]));
+  }
+
+  /**
+   * 递归预编译目录下根节点为 &lt;mapper&gt; 的 xml
+   * @param sourceDir
+   * @param targetDir
+   * @return 预编译的文件数
+   * @throws IOException
+   */
+  public static int compileDirectory(File sourceDir, File targetDir) throws IOException {
+    int count = 0;
+    File[] files = sourceDir.listFiles();
+    if (files == null) {
+      return count;
+    }
+    for (File file : files) {
+      if (file.isDirectory()) {
+        count += compileDirectory(file, new File(targetDir, file.getName()));
+      } else if (file.getName().endsWith(".xml")) {
+        byte[] source;
+        try (InputStream in = new FileInputStream(file)) {
+          source = readFully(in);
+        }
+        Document document = parse(new ByteArrayInputStream(source));
+        if (document.getDocumentElement() != null && "mapper".equals(document.getDocumentElement().getNodeName())) {
+          if (!targetDir.isDirectory() && !targetDir.mkdirs()) {
+            throw new IOException("Could not create directory " + targetDir);
+          }
+          try (OutputStream out = new FileOutputStream(new File(targetDir, file.getName() + COMPILED_SUFFIX))) {
+            write(document, source, out);
+          }
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 解析、校验 mapper xml 并写出预编译格式
+   * @param xml
+   * @param out
+   * @throws IOException
+   */
+  public static void compile(InputStream xml, OutputStream out) throws IOException {
+    byte[] source = readFully(xml);
+    write(parse(new ByteArrayInputStream(source)), source, out);
+  }
+
+  /**
+   * 从 classpath 加载 mapper 对应的预编译文件
+   * @param classLoader 可以为 null
+   * @param resource mapper xml 的资源路径
+   * @return 不存在、格式版本不同或者相对源文件已过期时返回 null
+   */
+  public static Document loadCompiled(ClassLoader classLoader, String resource) {
+    InputStream in;
+    try {
+      in = Resources.getResourceAsStream(classLoader, resource + COMPILED_SUFFIX);
+    } catch (IOException e) {
+      // ignore, compiled resource is not required
+      return null;
+    }
+    try {
+      DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+      if (input.readInt() != MAGIC) {
+        throw new BuilderException("Not a compiled mapper.");
+      }
+      int version = input.readInt();
+      if (version != VERSION) {
+        log.debug("Compiled mapper " + resource + COMPILED_SUFFIX + " has version " + version + ", parsing the XML instead.");
+        return null;
+      }
+      if (isStale(classLoader, resource, input.readInt(), input.readLong())) {
+        log.debug("Compiled mapper " + resource + COMPILED_SUFFIX + " is out of date, parsing the XML instead.");
+        return null;
+      }
+      return readDocument(input);
+    } catch (IOException e) {
+      throw new BuilderException("Error reading compiled mapper " + resource + COMPILED_SUFFIX + ". Cause: " + e, e);
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * 读取预编译格式并还原为 Document
+   * @param in
+   * @return
+   * @throws IOException
+   */
+  public static Document read(InputStream in) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+    if (input.readInt() != MAGIC) {
+      throw new BuilderException("Not a compiled mapper.");
+    }
+    int version = input.readInt();
+    if (version != VERSION) {
+      throw new BuilderException("Unsupported compiled mapper version " + version + ".");
+    }
+    // 源文件的长度和 CRC32
+    input.readInt();
+    input.readLong();
+    return readDocument(input);
+  }
+
+  private static Document readDocument(DataInputStream input) throws IOException {
+    Document document;
+    try {
+      document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    } catch (Exception e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+    if (input.readByte() != ELEMENT) {
+      throw new BuilderException("Compiled mapper has no root element.");
+    }
+    document.appendChild(readElement(input, document));
+    return document;
+  }
+
+  /**
+   * 写出预编译格式
+   * @param document
+   * @param source 源文件内容，用于运行期判断是否过期
+   * @param out
+   * @throws IOException
+   */
+  public static void write(Document document, byte[] source, OutputStream out) throws IOException {
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeInt(source.length);
+    output.writeLong(checksum(source));
+    writeNode(output, document.getDocumentElement());
+    output.flush();
+  }
+
+  private static boolean isStale(ClassLoader classLoader, String resource, int length, long checksum) throws IOException {
+    InputStream in;
+    try {
+      in = Resources.getResourceAsStream(classLoader, resource);
+    } catch (IOException e) {
+      // 没有源文件，只能使用预编译文件
+      return false;
+    }
+    try {
+      byte[] source = readFully(in);
+      return source.length != length || checksum(source) != checksum;
+    } finally {
+      in.close();
+    }
+  }
+
+  private static long checksum(byte[] source) {
+    CRC32 crc = new CRC32();
+    crc.update(source, 0, source.length);
+    return crc.getValue();
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    for (int n; (n = in.read(buffer)) != -1;) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  static Document parse(InputStream xml) {
+    // 与运行期相同，开启 DTD 校验
+    XPathParser parser = new XPathParser(xml, true, null, new XMLMapperEntityResolver());
+    XNode root = parser.evalNode("/*");
+    return root.getNode().getOwnerDocument();
+  }
+
+  private static void writeNode(DataOutputStream output, Node node) throws IOException {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        output.writeByte(ELEMENT);
+        writeString(output, node.getNodeName());
+        NamedNodeMap attributes = node.getAttributes();
+        output.writeInt(attributes.getLength());
+        for (int i = 0; i < attributes.getLength(); i++) {
+          Node attribute = attributes.item(i);
+          writeString(output, attribute.getNodeName());
+          writeString(output, attribute.getNodeValue());
+        }
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+          writeNode(output, children.item(i));
+        }
+        output.writeByte(END);
+        break;
+      case Node.TEXT_NODE:
+        output.writeByte(TEXT);
+        writeString(output, node.getNodeValue());
+        break;
+      case Node.CDATA_SECTION_NODE:
+        output.writeByte(CDATA);
+        writeString(output, node.getNodeValue());
+        break;
+      default:
+        // 注释、处理指令等对 mapper 没有意义，直接丢弃
+        break;
+    }
+  }
+
+  private static Element readElement(DataInputStream input, Document document) throws IOException {
+    Element element = document.createElement(readString(input));
+    int attributeCount = input.readInt();
+    for (int i = 0; i < attributeCount; i++) {
+      element.setAttribute(readString(input), readString(input));
+    }
+    byte type;
+    while ((type = input.readByte()) != END) {
+      switch (type) {
+        case ELEMENT:
+          element.appendChild(readElement(input, document));
+          break;
+        case TEXT:
+          element.appendChild(document.createTextNode(readString(input)));
+          break;
+        case CDATA:
+          element.appendChild(document.createCDATASection(readString(input)));
+          break;
+        default:
+          throw new BuilderException("Corrupted compiled mapper, unknown node type " + type + ".");
+      }
+    }
+    return element;
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    // writeUTF 有 64K 的限制，大段 sql 可能超出
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+}
@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Locale;
 
 import org.apache.ibatis.builder.BaseBuilder;
+import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -32,6 +33,8 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.parsing.XNode;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 /**
  * @author Clinton Begin
@@ -60,7 +63,66 @@ public class XMLStatementBuilder extends BaseBuilder {
     if (!databaseIdMatchesCurrent(id, databaseId, this.requiredDatabaseId)) {
       return;
     }
+    buildStatementNode(id, databaseId);
+  }
+
+  /**
+   * 延迟构建模式下只登记语句 id，首次使用时再解析脚本、结果映射等
+   */
+  public void indexStatementNode() {
+    final String id = context.getStringAttribute("id");
+    final String databaseId = context.getStringAttribute("databaseId");
+
+    if (!databaseIdMatchesCurrent(id, databaseId, this.requiredDatabaseId)) {
+      return;
+    }
+    configuration.addLazyMappedStatement(builderAssistant.applyCurrentNamespace(id, false), databaseId,
+        () -> buildStatementNode(id, databaseId), this::validateReferences);
+  }
+
+  /**
+   * 不构建语句，只检查引用的 resultMap、parameterMap 和 sql 片段是否存在。
+   * 封存配置时对尚未构建的延迟语句调用，使引用错误在启动时暴露
+   */
+  private void validateReferences() {
+    String resultMap = context.getStringAttribute("resultMap");
+    if (resultMap != null) {
+      for (String resultMapName : resultMap.split(",")) {
+        String resultMapId = builderAssistant.applyCurrentNamespace(resultMapName.trim(), true);
+        if (!configuration.hasResultMap(resultMapId)) {
+          throw new BuilderException("Could not find result map '" + resultMapId + "' referenced from statement " + context.getStringAttribute("id"));
+        }
+      }
+    }
+    String parameterMap = context.getStringAttribute("parameterMap");
+    if (parameterMap != null) {
+      String parameterMapId = builderAssistant.applyCurrentNamespace(parameterMap, true);
+      if (!configuration.hasParameterMap(parameterMapId)) {
+        throw new BuilderException("Could not find parameter map '" + parameterMapId + "' referenced from statement " + context.getStringAttribute("id"));
+      }
+    }
+    validateIncludes(context.getNode());
+  }
+
+  private void validateIncludes(Node node) {
+    if ("include".equals(node.getNodeName())) {
+      String refid = ((Element) node).getAttribute("refid");
+      // 含 ${} 的 refid 只能在构建时解析
+      if (!refid.contains("${")) {
+        refid = builderAssistant.applyCurrentNamespace(refid, true);
+        if (!configuration.getSqlFragments().containsKey(refid)) {
+          throw new BuilderException("Could not find SQL statement to include with refid '" + refid + "' in statement " + context.getStringAttribute("id"));
+        }
+      }
+    }
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        validateIncludes(child);
+      }
+    }
+  }
 
+  private void buildStatementNode(String id, String databaseId) {
     Integer fetchSize = context.getIntAttribute("fetchSize");
     Integer timeout = context.getIntAttribute("timeout");
     String parameterMap = context.getStringAttribute("parameterMap");
@@ -95,6 +157,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     String resultSets = context.getStringAttribute("resultSets");
     String keyProperty = context.getStringAttribute("keyProperty");
     String keyColumn = context.getStringAttribute("keyColumn");
+    Integer bulkInsertSize = context.getIntAttribute("bulkInsertSize");
     KeyGenerator keyGenerator;
     String keyStatementId = id + SelectKeyGenerator.SELECT_KEY_SUFFIX;
     keyStatementId = builderAssistant.applyCurrentNamespace(keyStatementId, true);
@@ -109,7 +172,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
         fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
         resultSetTypeEnum, flushCache, useCache, resultOrdered, 
-        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+        keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, bulkInsertSize);
   }
 
   private void processSelectKeyNodes(String id, Class<?> parameterTypeClass, LanguageDriver langDriver) {
@@ -182,8 +245,8 @@ public class XMLStatementBuilder extends BaseBuilder {
       // skip this statement if there is a previous one with a not null databaseId
       id = builderAssistant.applyCurrentNamespace(id, false);
       if (this.configuration.hasStatement(id, false)) {
-        MappedStatement previous = this.configuration.getMappedStatement(id, false); // issue #2
-        if (previous.getDatabaseId() != null) {
+        // issue #2
+        if (this.configuration.getMappedStatementDatabaseId(id) != null) {
           return false;
         }
       }
@@ -20,6 +20,7 @@ import java.lang.ref.SoftReference;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -33,6 +34,10 @@ import org.apache.ibatis.cache.Cache;
 public class SoftCache implements Cache {
 
   private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  /**
+   * 保护 hardLinksToAvoidGarbageCollection，不使用 synchronized 以免虚拟线程占住载体线程
+   */
+  private final ReentrantLock hardLinksLock = new ReentrantLock();
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
@@ -77,11 +82,14 @@ public class SoftCache implements Cache {
         delegate.removeObject(key);
       } else {
         // See #586 (and #335) modifications need more than a read lock 
-        synchronized (hardLinksToAvoidGarbageCollection) {
+        hardLinksLock.lock();
+        try {
           hardLinksToAvoidGarbageCollection.addFirst(result);
           if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
             hardLinksToAvoidGarbageCollection.removeLast();
           }
+        } finally {
+          hardLinksLock.unlock();
         }
       }
     }
@@ -96,8 +104,11 @@ public class SoftCache implements Cache {
 
   @Override
   public void clear() {
-    synchronized (hardLinksToAvoidGarbageCollection) {
+    hardLinksLock.lock();
+    try {
       hardLinksToAvoidGarbageCollection.clear();
+    } finally {
+      hardLinksLock.unlock();
     }
     removeGarbageCollectedItems();
     delegate.clear();
@@ -16,6 +16,10 @@
 package org.apache.ibatis.cursor;
 
 import java.io.Closeable;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.ibatis.cursor.defaults.CursorSpliterator;
 
 /**
  * Cursor contract to handle fetching items lazily using an Iterator.
@@ -42,4 +46,15 @@ public interface Cursor<T> extends Closeable, Iterable<T> {
      * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
      */
     int getCurrentIndex();
+
+    /**
+     * Returns a sequential Stream over the cursor items. Items are read in batches, so a parallel
+     * stream can process them concurrently. Closing the stream closes the cursor.
+     * Like {@link #iterator()}, it can only be called once.
+     * @return Stream of the cursor items
+     */
+    default Stream<T> stream() {
+        CursorSpliterator<T> spliterator = new CursorSpliterator<>(this, null);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
 }
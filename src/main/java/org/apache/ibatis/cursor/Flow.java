@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+/**
+ * 按需拉取的发布-订阅接口
+ *
+ * 签名与 JDK 9 的 java.util.concurrent.Flow 及 Reactive Streams 一致，
+ * 在 Java 8 上提供同样的背压语义，适配到这两者时只需逐个方法转发。
+ */
+public final class Flow {
+
+  private Flow() {
+    // Prevent Instantiation of Static Class
+  }
+
+  @FunctionalInterface
+  public interface Publisher<T> {
+
+    /**
+     * 添加订阅者，之后一定会先调用 {@link Subscriber#onSubscribe(Subscription)}
+     * @param subscriber
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  public interface Subscription {
+
+    /**
+     * 请求最多 n 个元素，n 必须大于 0
+     * @param n
+     */
+    void request(long n);
+
+    /**
+     * 取消订阅并释放资源，之后不会再收到通知
+     */
+    void cancel();
+  }
+
+}
@@ -0,0 +1,215 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
+
+/**
+ * 基于 {@link Cursor} 的 Publisher
+ *
+ * 第一次 request 时才打开游标，只按订阅者请求的数量从 ResultSet 读取，并按请求量调整 fetchSize。
+ * 在调用 request 的线程上发送元素；完成、出错或取消时关闭游标并执行 onTerminate。
+ * 只支持一个订阅者。
+ */
+public class CursorPublisher<T> implements Flow.Publisher<T> {
+
+  /**
+   * 请求量很大或不限时使用的 fetchSize 上限
+   */
+  private static final int MAX_FETCH_SIZE = 1000;
+
+  private final Supplier<Cursor<T>> cursorSupplier;
+  private final Runnable onTerminate;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * @param cursorSupplier 打开游标
+   * @param onTerminate 游标关闭后执行，比如关闭会话，可以为 null
+   */
+  public CursorPublisher(Supplier<Cursor<T>> cursorSupplier, Runnable onTerminate) {
+    this.cursorSupplier = cursorSupplier;
+    this.onTerminate = onTerminate;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          // ignore
+        }
+
+        @Override
+        public void cancel() {
+          // ignore
+        }
+      });
+      subscriber.onError(new IllegalStateException("A cursor publisher supports only one subscriber"));
+      return;
+    }
+    subscriber.onSubscribe(new CursorSubscription(subscriber));
+  }
+
+  private class CursorSubscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super T> subscriber;
+    private final AtomicLong requested = new AtomicLong();
+    /**
+     * 保证同一时间只有一个线程在读取游标，也避免在 onNext 中调用 request 时递归
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+
+    private Cursor<T> cursor;
+    private Iterator<T> iterator;
+    private int fetchSize;
+    private boolean terminated;
+
+    CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Requested " + n + " items, the request must be positive");
+      } else {
+        long current;
+        do {
+          current = requested.get();
+          if (current == Long.MAX_VALUE) {
+            break;
+          }
+        } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      drain();
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        if (!terminated) {
+          try {
+            emit();
+          } catch (Throwable t) {
+            // onError 或 onTerminate 抛出异常，终止订阅并让 wip 归零，之后的 request 不会被忽略
+            wip.set(0);
+            terminate();
+            throw t;
+          }
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void emit() {
+      if (cancelled) {
+        terminate();
+        return;
+      }
+      Throwable error = invalidRequest;
+      if (error != null) {
+        terminate();
+        subscriber.onError(error);
+        return;
+      }
+      long demand = requested.get();
+      if (demand == 0) {
+        return;
+      }
+      try {
+        if (cursor == null) {
+          cursor = cursorSupplier.get();
+          iterator = cursor.iterator();
+        }
+        adjustFetchSize(demand);
+        long emitted = 0;
+        while (emitted != demand) {
+          if (cancelled) {
+            terminate();
+            return;
+          }
+          if (!iterator.hasNext()) {
+            terminate();
+            subscriber.onComplete();
+            return;
+          }
+          subscriber.onNext(iterator.next());
+          emitted++;
+          if (emitted == demand) {
+            demand = demand == Long.MAX_VALUE ? demand : requested.addAndGet(-emitted);
+            emitted = 0;
+          }
+        }
+      } catch (Throwable t) {
+        // Error 也要通知订阅者，否则订阅者会一直等待
+        terminate();
+        subscriber.onError(t);
+      }
+    }
+
+    /**
+     * 按尚未满足的请求量设置后续读取的行数
+     */
+    private void adjustFetchSize(long demand) {
+      int size = (int) Math.min(demand, MAX_FETCH_SIZE);
+      if (size != fetchSize && cursor instanceof DefaultCursor) {
+        ((DefaultCursor<T>) cursor).setFetchSize(size);
+        fetchSize = size;
+      }
+    }
+
+    private void terminate() {
+      if (terminated) {
+        return;
+      }
+      terminated = true;
+      try {
+        if (cursor != null) {
+          cursor.close();
+        }
+      } catch (Exception e) {
+        // ignore
+      } finally {
+        if (onTerminate != null) {
+          onTerminate.run();
+        }
+      }
+    }
+  }
+
+}
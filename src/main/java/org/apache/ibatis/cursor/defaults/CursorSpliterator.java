@@ -0,0 +1,190 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cursor.Cursor;
+
+/**
+ * 按批读取游标的 Spliterator
+ *
+ * 每次从游标读取一批元素，批大小从 {@link #INITIAL_BATCH_SIZE} 逐步翻倍到 {@link #MAX_BATCH_SIZE}。
+ * trySplit 把当前批次交给其他线程处理，因此并行流中映射之后的处理可以并行，读取游标仍是串行的。
+ * 指定 prefetchExecutor 时，在消费当前批次的同时在该线程池中读取下一批；
+ * 同一时间只有一个线程访问游标，读取线程与消费线程通过 future 交接。
+ */
+public class CursorSpliterator<T> implements Spliterator<T> {
+
+  static final int INITIAL_BATCH_SIZE = 64;
+  static final int MAX_BATCH_SIZE = 1 << 12;
+
+  private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL;
+
+  private final Cursor<T> cursor;
+  private final Iterator<T> iterator;
+  private final Executor prefetchExecutor;
+
+  private Object[] batch;
+  private int index;
+  private int batchSize = INITIAL_BATCH_SIZE;
+  /**
+   * 游标是否已读完，由读取批次的线程写入，通过 future 的完成对消费线程可见
+   */
+  private boolean exhausted;
+  private CompletableFuture<Object[]> prefetched;
+
+  /**
+   * @param cursor
+   * @param prefetchExecutor 预读下一批的线程池，为 null 时在消费线程上按需读取
+   */
+  public CursorSpliterator(Cursor<T> cursor, Executor prefetchExecutor) {
+    this.cursor = cursor;
+    this.iterator = cursor.iterator();
+    this.prefetchExecutor = prefetchExecutor;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean tryAdvance(Consumer<? super T> action) {
+    if (action == null) {
+      throw new NullPointerException();
+    }
+    if (!ensureBatch()) {
+      return false;
+    }
+    action.accept((T) batch[index++]);
+    return true;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void forEachRemaining(Consumer<? super T> action) {
+    if (action == null) {
+      throw new NullPointerException();
+    }
+    while (ensureBatch()) {
+      Object[] current = batch;
+      int end = current.length;
+      for (int i = index; i < end; i++) {
+        action.accept((T) current[i]);
+      }
+      index = end;
+    }
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (!ensureBatch()) {
+      return null;
+    }
+    Spliterator<T> prefix = Spliterators.spliterator(batch, index, batch.length, CHARACTERISTICS);
+    batch = null;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return CHARACTERISTICS;
+  }
+
+  /**
+   * 等待正在进行的预读，然后关闭游标
+   */
+  public void close() {
+    CompletableFuture<Object[]> future = prefetched;
+    prefetched = null;
+    if (future != null) {
+      try {
+        future.join();
+      } catch (RuntimeException e) {
+        // ignore, the cursor is being closed
+      }
+    }
+    try {
+      cursor.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private boolean ensureBatch() {
+    if (batch != null && index < batch.length) {
+      return true;
+    }
+    batch = nextBatch();
+    index = 0;
+    return batch != null;
+  }
+
+  private Object[] nextBatch() {
+    Object[] next;
+    if (prefetched != null) {
+      CompletableFuture<Object[]> future = prefetched;
+      prefetched = null;
+      try {
+        next = future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    } else if (exhausted) {
+      return null;
+    } else {
+      next = fetch(batchSize);
+    }
+    if (next.length == 0) {
+      return null;
+    }
+    batchSize = Math.min(batchSize << 1, MAX_BATCH_SIZE);
+    if (prefetchExecutor != null && !exhausted) {
+      int size = batchSize;
+      prefetched = CompletableFuture.supplyAsync(() -> fetch(size), prefetchExecutor);
+    }
+    return next;
+  }
+
+  private Object[] fetch(int size) {
+    Object[] buffer = new Object[size];
+    int count = 0;
+    while (count < size && iterator.hasNext()) {
+      buffer[count++] = iterator.next();
+    }
+    if (count < size) {
+      exhausted = true;
+      Object[] trimmed = new Object[count];
+      System.arraycopy(buffer, 0, trimmed, 0, count);
+      return trimmed;
+    }
+    return buffer;
+  }
+
+}
@@ -21,6 +21,7 @@ import org.apache.ibatis.executor.resultset.ResultSetWrapper;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.RowBounds;
 
 import java.sql.ResultSet;
@@ -28,6 +29,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is the default implementation of a MyBatis Cursor.
@@ -101,6 +104,17 @@ public class DefaultCursor<T> implements Cursor<T> {
         return cursorIterator;
     }
 
+    /**
+     * 开启 cursorPrefetch 时，在 asyncExecutor 中预读下一批
+     */
+    @Override
+    public Stream<T> stream() {
+        Configuration configuration = resultSetHandler.getConfiguration();
+        CursorSpliterator<T> spliterator = new CursorSpliterator<>(this,
+            configuration.isCursorPrefetch() ? configuration.getAsyncExecutor() : null);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
     @Override
     public void close() {
         if (isClosed()) {
@@ -123,6 +137,22 @@ public class DefaultCursor<T> implements Cursor<T> {
         }
     }
 
+    /**
+     * 修改之后从数据库读取的行数，只是给驱动的提示，游标未打开或驱动不支持时忽略
+     * @param fetchSize
+     */
+    public void setFetchSize(int fetchSize) {
+        ResultSet rs = rsw.getResultSet();
+        if (rs == null || isClosed()) {
+            return;
+        }
+        try {
+            rs.setFetchSize(fetchSize);
+        } catch (SQLException e) {
+            // ignore, fetch size is only a hint
+        }
+    }
+
     protected T fetchNextUsingRowBound() {
         T result = fetchNextObjectFromDatabase();
         while (result != null && indexWithRowBound < rowBounds.getOffset()) {
@@ -17,8 +17,16 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
+ * 连接池状态
+ *
+ * 状态由 {@link #getLock()} 保护。以前的版本以本对象作为监视器，
+ * {@code synchronized (dataSource.getPoolState())} 不再与连接池的借出、归还互斥，这种用法已废弃，
+ * 需要一致地读取多个值时请持有 {@link #getLock()}
+ *
  * @author Clinton Begin
  */
 public class PoolState {
@@ -28,6 +36,15 @@ public class PoolState {
    */
   protected PooledDataSource dataSource;
 
+  /**
+   * 保护连接池状态的锁，等待连接时不会像 synchronized 那样占住虚拟线程的载体线程
+   */
+  protected final ReentrantLock lock = new ReentrantLock();
+  /**
+   * 连接归还时通知等待的请求
+   */
+  protected final Condition condition = lock.newCondition();
+
   /**
    * 空闲连接数
    */
@@ -70,81 +87,172 @@ public class PoolState {
    * 坏连接总数
    */
   protected long badConnectionCount = 0;
+  /**
+   * PreparedStatement 缓存命中次数，连接归还时汇总
+   */
+  protected long statementCacheHitCount = 0;
+  /**
+   * PreparedStatement 缓存未命中次数，连接归还时汇总
+   */
+  protected long statementCacheMissCount = 0;
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  /**
+   * 借出、归还连接以及读取统计时持有的锁，取代以前对本对象加 synchronized 的做法
+   * @return
+   */
+  public ReentrantLock getLock() {
+    return lock;
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getRequestCount() {
+    lock.lock();
+    try {
+      return requestCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageRequestTime() {
+    lock.lock();
+    try {
+      return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+    } finally {
+      lock.unlock();
+    }
+  }
 
+  public long getAverageWaitTime() {
+    lock.lock();
+    try {
+      return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getHadToWaitCount() {
+    lock.lock();
+    try {
+      return hadToWaitCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getBadConnectionCount() {
+    lock.lock();
+    try {
+      return badConnectionCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getClaimedOverdueConnectionCount() {
+    lock.lock();
+    try {
+      return claimedOverdueConnectionCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    lock.lock();
+    try {
+      return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    lock.lock();
+    try {
+      return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    lock.lock();
+    try {
+      return idleConnections.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getActiveConnectionCount() {
+    lock.lock();
+    try {
+      return activeConnections.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getStatementCacheHitCount() {
+    lock.lock();
+    try {
+      return statementCacheHitCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public long getStatementCacheMissCount() {
+    lock.lock();
+    try {
+      return statementCacheMissCount;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized String toString() {
-    StringBuilder builder = new StringBuilder();
-    builder.append("\n===CONFINGURATION==============================================");
-    builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
-    builder.append("\n jdbcUrl                        ").append(dataSource.getUrl());
-    builder.append("\n jdbcUsername                   ").append(dataSource.getUsername());
-    builder.append("\n jdbcPassword                   ").append((dataSource.getPassword() == null ? "NULL" : "************"));
-    builder.append("\n poolMaxActiveConnections       ").append(dataSource.poolMaximumActiveConnections);
-    builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
-    builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
-    builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
-    builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
-    builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
-    builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
-    builder.append("\n ---STATUS-----------------------------------------------------");
-    builder.append("\n activeConnections              ").append(getActiveConnectionCount());
-    builder.append("\n idleConnections                ").append(getIdleConnectionCount());
-    builder.append("\n requestCount                   ").append(getRequestCount());
-    builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
-    builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
-    builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
-    builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
-    builder.append("\n hadToWait                      ").append(getHadToWaitCount());
-    builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
-    builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
-    builder.append("\n===============================================================");
-    return builder.toString();
+  public String toString() {
+    lock.lock();
+    try {
+      StringBuilder builder = new StringBuilder();
+      builder.append("\n===CONFINGURATION==============================================");
+      builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
+      builder.append("\n jdbcUrl                        ").append(dataSource.getUrl());
+      builder.append("\n jdbcUsername                   ").append(dataSource.getUsername());
+      builder.append("\n jdbcPassword                   ").append((dataSource.getPassword() == null ? "NULL" : "************"));
+      builder.append("\n poolMaxActiveConnections       ").append(dataSource.poolMaximumActiveConnections);
+      builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
+      builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
+      builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
+      builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
+      builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
+      builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+      builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
+      builder.append("\n ---STATUS-----------------------------------------------------");
+      builder.append("\n activeConnections              ").append(getActiveConnectionCount());
+      builder.append("\n idleConnections                ").append(getIdleConnectionCount());
+      builder.append("\n requestCount                   ").append(getRequestCount());
+      builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
+      builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
+      builder.append("\n claimedOverdue                 ").append(getClaimedOverdueConnectionCount());
+      builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
+      builder.append("\n hadToWait                      ").append(getHadToWaitCount());
+      builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
+      builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+      builder.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+      builder.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
+      builder.append("\n===============================================================");
+      return builder.toString();
+    } finally {
+      lock.unlock();
+    }
   }
 
 }
@@ -32,6 +32,7 @@ class PooledConnection implements InvocationHandler {
    * 关闭 Connection 方法名
    */
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   /**
    * JDK Proxy 的接口
    */
@@ -57,6 +58,11 @@ class PooledConnection implements InvocationHandler {
    */
   private final Connection proxyConnection;
 
+  /**
+   * 真实连接上的 PreparedStatement 缓存，未开启时为 null
+   */
+  private final PreparedStatementCache statementCache;
+
   /**
    * 获取的时间
    */
@@ -87,7 +93,17 @@ class PooledConnection implements InvocationHandler {
    * @param dataSource - the dataSource that the connection is from
    */
   public PooledConnection(Connection connection, PooledDataSource dataSource) {
+    this(connection, dataSource, dataSource.getPoolPreparedStatementCacheSize() > 0
+        ? new PreparedStatementCache(connection, dataSource.getPoolPreparedStatementCacheSize()) : null);
+  }
+
+  /**
+   * 连接归还到连接池时重新包装真实连接，沿用真实连接上的 PreparedStatement 缓存。
+   * 只有归还的连接不会再被原持有者使用时才能共享缓存
+   */
+  PooledConnection(Connection connection, PooledDataSource dataSource, PreparedStatementCache statementCache) {
     this.hashCode = connection.hashCode();
+    this.statementCache = statementCache;
     this.realConnection = connection;
     this.dataSource = dataSource;
     this.createdTimestamp = System.currentTimeMillis();
@@ -132,6 +148,22 @@ class PooledConnection implements InvocationHandler {
     return proxyConnection;
   }
 
+  /**
+   * @return 真实连接上的 PreparedStatement 缓存，未开启时为 null
+   */
+  PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * 关闭缓存的 PreparedStatement，在关闭真实连接前调用
+   */
+  void closeStatementCache() {
+    if (statementCache != null) {
+      statementCache.closeAll();
+    }
+  }
+
   /*
    * Gets the hashcode of the real connection (or 0 if it is null)
    *
@@ -288,6 +320,9 @@ class PooledConnection implements InvocationHandler {
           // 判断是否正在使用
           checkConnection();
         }
+        if (statementCache != null && PREPARE_STATEMENT.equals(methodName)) {
+          return statementCache.prepare(method, args, proxyConnection);
+        }
         // 反射调用
         return method.invoke(realConnection, args);
       } catch (Throwable t) {
@@ -24,6 +24,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -89,6 +90,11 @@ public class PooledDataSource implements DataSource {
    */
   protected int poolPingConnectionsNotUsedFor;
 
+  /**
+   * 每个连接缓存的 PreparedStatement 数，0 表示不缓存
+   */
+  protected int poolPreparedStatementCacheSize;
+
   /**
    * 其实Connection连接码 通过 {@link #assembleConnectionTypeCode(String, String, String)} 计算。
    *
@@ -274,6 +280,17 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * Number of prepared statements cached per pooled connection, 0 disables the cache.
+   * Cached statements survive returning the connection to the pool.
+   *
+   * @param poolPreparedStatementCacheSize the maximum number of cached statements per connection
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -334,13 +351,18 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    * 关闭所有连接
    *
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    state.lock.lock();
+    try {
       //如果codee匹配
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       //循环遍历活跃连接
@@ -358,6 +380,7 @@ public class PooledDataSource implements DataSource {
             realConn.rollback();
           }
           //连接关闭
+          conn.closeStatementCache();
           realConn.close();
         } catch (Exception e) {
           // ignore
@@ -378,17 +401,24 @@ public class PooledDataSource implements DataSource {
             realConn.rollback();
           }
           //关闭
+          conn.closeStatementCache();
           realConn.close();
         } catch (Exception e) {
           // ignore
         }
       }
+    } finally {
+      state.lock.unlock();
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
     }
   }
 
+  /**
+   * 连接池状态。对返回值加 synchronized 不再与连接池互斥，需要时持有 {@link PoolState#getLock()}
+   * @return
+   */
   public PoolState getPoolState() {
     return state;
   }
@@ -404,7 +434,8 @@ public class PooledDataSource implements DataSource {
    */
   protected void pushConnection(PooledConnection conn) throws SQLException {
 
-    synchronized (state) {
+    state.lock.lock();
+    try {
       //移除活跃连接
       state.activeConnections.remove(conn);
       //判断连接是否有效
@@ -413,12 +444,13 @@ public class PooledDataSource implements DataSource {
         if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
           //统计连接使用时间
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          collectStatementCacheStatistics(conn);
           //如果非自动提交，回滚
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
           //创建新连接
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
           //添加到空闲连接
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
@@ -429,15 +461,17 @@ public class PooledDataSource implements DataSource {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
           //通知所有等待请求
-          state.notifyAll();
+          state.condition.signalAll();
         } else {
           //获取连接时长
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          collectStatementCacheStatistics(conn);
           //回滚
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
           //关闭连接
+          conn.closeStatementCache();
           conn.getRealConnection().close();
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
@@ -453,6 +487,20 @@ public class PooledDataSource implements DataSource {
         //统计坏连接次数
         state.badConnectionCount++;
       }
+    } finally {
+      state.lock.unlock();
+    }
+  }
+
+  /**
+   * 汇总连接上 PreparedStatement 缓存的命中统计，需持有 state 的锁
+   * @param conn
+   */
+  private void collectStatementCacheStatistics(PooledConnection conn) {
+    PreparedStatementCache statementCache = conn.getStatementCache();
+    if (statementCache != null) {
+      state.statementCacheHitCount += statementCache.takeHits();
+      state.statementCacheMissCount += statementCache.takeMisses();
     }
   }
 
@@ -476,7 +524,8 @@ public class PooledDataSource implements DataSource {
     //循环获取连接
     while (conn == null) {
       //保证线程安全
-      synchronized (state) {
+      state.lock.lock();
+      try {
         //如果空闲连接不为空
         if (!state.idleConnections.isEmpty()) {
           // Pool has available connection
@@ -531,6 +580,10 @@ public class PooledDataSource implements DataSource {
                   log.debug("Bad connection. Could not roll back");
                 }  
               }
+              // 原持有者可能仍在使用旧的 PreparedStatement 缓存，新连接使用自己的缓存；
+              // 缓存内部加锁，可以在这里关闭旧缓存中未借出的语句，借出的语句在原持有者关闭时才关闭
+              collectStatementCacheStatistics(oldestActiveConnection);
+              oldestActiveConnection.closeStatementCache();
               //创建新的连接
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
@@ -554,7 +607,7 @@ public class PooledDataSource implements DataSource {
                 }
                 long wt = System.currentTimeMillis();
                 //等待超时，或者等待唤醒
-                state.wait(poolTimeToWait);
+                state.condition.await(poolTimeToWait, TimeUnit.MILLISECONDS);
                 // 记录累计等待时间
                 state.accumulatedWaitTime += System.currentTimeMillis() - wt;
               } catch (InterruptedException e) {
@@ -598,6 +651,8 @@ public class PooledDataSource implements DataSource {
             }
           }
         }
+      } finally {
+        state.lock.unlock();
       }
 
     }
@@ -0,0 +1,337 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * 真实连接上的 PreparedStatement 缓存
+ *
+ * 随真实连接在连接池中存活，跨越多次借出和归还。按最近最少使用淘汰。
+ * 借出的是 PreparedStatement 的代理，close 时归还到缓存而不是真正关闭；
+ * 同一条 sql 的缓存正在使用时，直接创建不缓存的 PreparedStatement。
+ * 缓存通常只被借出连接的线程使用，但回收超时连接时连接池线程会关闭旧缓存、汇总统计，
+ * 而原持有者可能仍在使用，所以所有操作都持有 {@link #lock}。
+ * 回收后新的包装使用新的缓存，正在使用的语句在原持有者关闭时才真正关闭。
+ */
+final class PreparedStatementCache {
+
+  private static final Log log = LogFactory.getLog(PreparedStatementCache.class);
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  private final Connection realConnection;
+  private final int maxSize;
+  private final LinkedHashMap<StatementKey, CachedStatement> statements;
+  /**
+   * 保护 statements、统计以及 CachedStatement 的状态
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * 上次汇总到 {@link PoolState} 之后的命中和未命中次数
+   */
+  private long hits;
+  private long misses;
+
+  PreparedStatementCache(Connection realConnection, int maxSize) {
+    this.realConnection = realConnection;
+    this.maxSize = maxSize;
+    this.statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+        if (size() > PreparedStatementCache.this.maxSize) {
+          evict(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * 通过缓存创建 PreparedStatement
+   * @param method Connection 的某个 prepareStatement 方法
+   * @param args 方法参数
+   * @param proxyConnection 借出的连接，作为 PreparedStatement#getConnection() 的返回值
+   * @return
+   * @throws SQLException
+   */
+  PreparedStatement prepare(Method method, Object[] args, Connection proxyConnection) throws SQLException {
+    StatementKey key = new StatementKey(args);
+    CachedStatement cached;
+    lock.lock();
+    try {
+      cached = statements.get(key);
+      if (cached != null && !cached.inUse) {
+        hits++;
+      } else {
+        misses++;
+        PreparedStatement statement = (PreparedStatement) invoke(method, realConnection, args);
+        if (cached != null) {
+          // 同一条 sql 嵌套使用，不缓存
+          return statement;
+        }
+        cached = new CachedStatement(statement);
+        statements.put(key, cached);
+      }
+      cached.inUse = true;
+    } finally {
+      lock.unlock();
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES,
+        new StatementHandle(cached, proxyConnection));
+  }
+
+  int size() {
+    lock.lock();
+    try {
+      return statements.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long takeHits() {
+    lock.lock();
+    try {
+      long result = hits;
+      hits = 0;
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  long takeMisses() {
+    lock.lock();
+    try {
+      long result = misses;
+      misses = 0;
+      return result;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 关闭所有缓存的 PreparedStatement，真实连接关闭前或回收超时连接时调用
+   */
+  void closeAll() {
+    lock.lock();
+    try {
+      for (Iterator<CachedStatement> iterator = statements.values().iterator(); iterator.hasNext();) {
+        evict(iterator.next());
+        iterator.remove();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evict(CachedStatement cached) {
+    cached.evicted = true;
+    if (!cached.inUse) {
+      closeQuietly(cached.statement);
+    }
+  }
+
+  private void release(CachedStatement cached) {
+    lock.lock();
+    try {
+      cached.inUse = false;
+      if (cached.evicted) {
+        closeQuietly(cached.statement);
+        return;
+      }
+      try {
+        cached.reset();
+      } catch (SQLException e) {
+        if (log.isDebugEnabled()) {
+          log.debug("Could not reset cached statement, closing it.  Cause: " + e);
+        }
+        statements.values().remove(cached);
+        cached.evicted = true;
+        closeQuietly(cached.statement);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  private static Object invoke(Method method, Object target, Object[] args) throws SQLException {
+    try {
+      return method.invoke(target, args);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new SQLException("Error preparing statement.  Cause: " + cause, cause);
+    }
+  }
+
+  /**
+   * prepareStatement 的参数，sql 及结果集类型、主键列等选项都相同才能复用
+   */
+  private static final class StatementKey {
+
+    private final Object[] args;
+    private final int hashCode;
+
+    StatementKey(Object[] args) {
+      this.args = args;
+      this.hashCode = Arrays.deepHashCode(args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof StatementKey && Arrays.deepEquals(args, ((StatementKey) o).args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+  private static final class CachedStatement {
+
+    private final PreparedStatement statement;
+    private final int fetchSize;
+    private final int queryTimeout;
+    private final int maxRows;
+    private boolean inUse;
+    private boolean evicted;
+    /**
+     * 借出期间最后一次返回的结果集，部分驱动在 executeQuery 之后 getResultSet 返回 null
+     */
+    private ResultSet resultSet;
+
+    CachedStatement(PreparedStatement statement) throws SQLException {
+      this.statement = statement;
+      this.fetchSize = statement.getFetchSize();
+      this.queryTimeout = statement.getQueryTimeout();
+      this.maxRows = statement.getMaxRows();
+    }
+
+    /**
+     * 归还时关闭未关闭的结果集，清除参数和批次，恢复借出期间修改的选项
+     */
+    void reset() throws SQLException {
+      if (resultSet != null) {
+        ResultSet opened = resultSet;
+        resultSet = null;
+        opened.close();
+      }
+      ResultSet current = statement.getResultSet();
+      if (current != null) {
+        current.close();
+      }
+      statement.clearParameters();
+      statement.clearBatch();
+      statement.clearWarnings();
+      if (statement.getFetchSize() != fetchSize) {
+        statement.setFetchSize(fetchSize);
+      }
+      if (statement.getQueryTimeout() != queryTimeout) {
+        statement.setQueryTimeout(queryTimeout);
+      }
+      if (statement.getMaxRows() != maxRows) {
+        statement.setMaxRows(maxRows);
+      }
+    }
+
+  }
+
+  /**
+   * 借出的 PreparedStatement 代理
+   */
+  private final class StatementHandle implements InvocationHandler {
+
+    private final CachedStatement cached;
+    private final Connection proxyConnection;
+    private boolean closed;
+
+    StatementHandle(CachedStatement cached, Connection proxyConnection) {
+      this.cached = cached;
+      this.proxyConnection = proxyConnection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if (Object.class.equals(method.getDeclaringClass())) {
+        if ("equals".equals(methodName)) {
+          return proxy == args[0];
+        } else if ("hashCode".equals(methodName)) {
+          return System.identityHashCode(proxy);
+        }
+        return "Cached " + cached.statement;
+      }
+      if ("close".equals(methodName)) {
+        if (!closed) {
+          closed = true;
+          release(cached);
+        }
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return closed;
+      } else if (closed) {
+        throw new SQLException("Statement is closed.");
+      } else if ("getConnection".equals(methodName)) {
+        return proxyConnection;
+      }
+      Object result = PreparedStatementCache.invoke(method, cached.statement, args);
+      if (result instanceof ResultSet) {
+        cached.resultSet = (ResultSet) result;
+      }
+      return result;
+    }
+
+  }
+
+}
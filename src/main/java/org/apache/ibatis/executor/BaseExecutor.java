@@ -18,14 +18,23 @@ package org.apache.ibatis.executor;
 import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import javax.sql.DataSource;
+
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementStatistics;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -34,6 +43,7 @@ import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
@@ -51,6 +61,11 @@ public abstract class BaseExecutor implements Executor {
 
   private static final Log log = LogFactory.getLog(BaseExecutor.class);
 
+  /**
+   * 游标查询默认的 fetchSize
+   */
+  protected static final int CURSOR_FETCH_SIZE = 1000;
+
   protected Transaction transaction;
   protected Executor wrapper;
 
@@ -178,6 +193,160 @@ public abstract class BaseExecutor implements Executor {
     return doQueryCursor(ms, parameter, rowBounds, boundSql);
   }
 
+  @Override
+  public List<List<Object>> queryMultiple(List<MappedStatement> mappedStatements, List<Object> parameters) throws SQLException {
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    int size = mappedStatements.size();
+    List<List<Object>> results = new ArrayList<>(Collections.nCopies(size, (List<Object>) null));
+    if (configuration.isMultiStatementQueries() && queryStack == 0 && size > 1) {
+      List<Integer> indexes = new ArrayList<>();
+      List<BoundSql> boundSqls = new ArrayList<>();
+      List<CacheKey> keys = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        MappedStatement ms = mappedStatements.get(i);
+        if (!isMultiStatementCandidate(ms)) {
+          continue;
+        }
+        BoundSql boundSql = ms.getBoundSql(parameters.get(i));
+        CacheKey key = createCacheKey(ms, parameters.get(i), RowBounds.DEFAULT, boundSql);
+        if (localCache.getObject(key) == null) {
+          indexes.add(i);
+          boundSqls.add(boundSql);
+          keys.add(key);
+        }
+      }
+      List<List<Object>> lists = null;
+      if (indexes.size() > 1) {
+        List<MappedStatement> combined = new ArrayList<>(indexes.size());
+        List<Object> combinedParameters = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+          combined.add(mappedStatements.get(index));
+          combinedParameters.add(parameters.get(index));
+        }
+        try {
+          queryStack++;
+          lists = queryMultipleIfSupported(combined, combinedParameters, boundSqls);
+        } finally {
+          queryStack--;
+        }
+      }
+      if (lists != null) {
+        for (int i = 0; i < indexes.size(); i++) {
+          localCache.putObject(keys.get(i), lists.get(i));
+          results.set(indexes.get(i), lists.get(i));
+        }
+        if (queryStack == 0) {
+          for (DeferredLoad deferredLoad : deferredLoads) {
+            deferredLoad.load();
+          }
+          deferredLoads.clear();
+          if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
+            clearLocalCache();
+          }
+        }
+      }
+    }
+    // 不能合并的查询和本地缓存命中的查询逐个执行
+    for (int i = 0; i < size; i++) {
+      if (results.get(i) == null) {
+        results.set(i, query(mappedStatements.get(i), parameters.get(i), RowBounds.DEFAULT, NO_RESULT_HANDLER));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * 只合并单一结果映射、只向前读取的普通预编译查询，存储过程、多结果集、可滚动结果集和需要刷新缓存的语句逐个执行
+   */
+  private boolean isMultiStatementCandidate(MappedStatement ms) {
+    return ms.getStatementType() == StatementType.PREPARED
+        && (ms.getResultSetType() == null || ms.getResultSetType() == ResultSetType.FORWARD_ONLY)
+        && ms.getResultSets() == null
+        && ms.getResultMaps().size() == 1
+        && !ms.isFlushCacheRequired();
+  }
+
+  /**
+   * 合并执行，驱动不支持时返回 null，由调用方逐个执行。
+   * 每个数据源第一次合并执行时探测驱动是否接受多语句 sql：元数据表明不支持多结果集，
+   * 或执行时抛出超时以外的 SQLException 时记为不支持，之后直接逐个执行；成功时记为支持，之后的异常照常抛出。
+   * 探测时如果处于事务中且驱动支持保存点，失败后回滚到保存点，以免事务因语法错误而中止
+   */
+  private List<List<Object>> queryMultipleIfSupported(List<MappedStatement> mappedStatements, List<Object> parameters,
+      List<BoundSql> boundSqls) throws SQLException {
+    DataSource dataSource = configuration.getEnvironment() != null ? configuration.getEnvironment().getDataSource() : null;
+    Boolean supported = dataSource != null ? configuration.getMultiStatementSupport(dataSource) : null;
+    if (Boolean.FALSE.equals(supported)) {
+      return null;
+    }
+    if (Boolean.TRUE.equals(supported)) {
+      return doQueryMultiple(mappedStatements, parameters, boundSqls);
+    }
+    Connection connection = getConnection(mappedStatements.get(0).getStatementLog());
+    DatabaseMetaData metaData = connection.getMetaData();
+    if (!metaData.supportsMultipleResultSets()) {
+      rememberMultiStatementSupport(dataSource, false);
+      return null;
+    }
+    Savepoint savepoint = null;
+    if (!connection.getAutoCommit() && metaData.supportsSavepoints()) {
+      savepoint = connection.setSavepoint();
+    }
+    List<List<Object>> lists;
+    try {
+      lists = doQueryMultiple(mappedStatements, parameters, boundSqls);
+    } catch (SQLException e) {
+      if (StatementStatistics.isTimeout(e)) {
+        throw e;
+      }
+      if (savepoint != null) {
+        connection.rollback(savepoint);
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Driver rejected combined queries, executing them one by one.  Cause: " + e);
+      }
+      // 丢弃失败的执行中登记的延迟加载
+      deferredLoads.clear();
+      rememberMultiStatementSupport(dataSource, false);
+      return null;
+    }
+    if (savepoint != null) {
+      try {
+        connection.releaseSavepoint(savepoint);
+      } catch (SQLException e) {
+        // 部分驱动不支持释放保存点，提交或回滚时一并释放
+      }
+    }
+    rememberMultiStatementSupport(dataSource, true);
+    return lists;
+  }
+
+  private void rememberMultiStatementSupport(DataSource dataSource, boolean supported) {
+    if (dataSource != null) {
+      configuration.setMultiStatementSupport(dataSource, supported);
+    }
+  }
+
+  /**
+   * 通过 {@link org.apache.ibatis.executor.statement.MultiStatementHandler} 把多个查询合并为一条以分号分隔的 sql 执行，
+   * 与普通查询一样经过插件、设置超时时间和记录语句日志
+   */
+  protected List<List<Object>> doQueryMultiple(List<MappedStatement> mappedStatements, List<Object> parameters, List<BoundSql> boundSqls)
+      throws SQLException {
+    Statement statement = null;
+    try {
+      StatementHandler handler = configuration.newMultiStatementHandler(wrapper, mappedStatements, parameters, boundSqls);
+      Connection connection = getConnection(mappedStatements.get(0).getStatementLog());
+      statement = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(statement);
+      return handler.query(statement, NO_RESULT_HANDLER);
+    } finally {
+      closeStatement(statement);
+    }
+  }
+
   @Override
   public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
     if (closed) {
@@ -279,6 +448,37 @@ public abstract class BaseExecutor implements Executor {
   protected abstract <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql)
       throws SQLException;
 
+  /**
+   * 映射语句和 defaultFetchSize 都没有配置时，游标查询使用 defaultCursorFetchSize。
+   * 没有配置时按 databaseId 选择，避免驱动一次读入整个结果集或每次只取很少几行：
+   * MySQL、MariaDB 只在开启 cursorStreaming 时使用 Integer.MIN_VALUE 逐行读取，否则保持驱动的默认值，
+   * 因为流式读取会占用连接，游标打开期间的嵌套查询和延迟加载会失败；其他数据库使用 {@link #CURSOR_FETCH_SIZE}
+   * @param ms
+   * @param statement
+   * @throws SQLException
+   */
+  protected void applyCursorFetchSize(MappedStatement ms, Statement statement) throws SQLException {
+    if (ms.getFetchSize() != null || configuration.getDefaultFetchSize() != null) {
+      return;
+    }
+    Integer fetchSize = configuration.getDefaultCursorFetchSize();
+    if (fetchSize == null) {
+      String databaseId = configuration.getDatabaseId();
+      if (databaseId != null) {
+        databaseId = databaseId.toLowerCase(Locale.ENGLISH);
+      }
+      if (databaseId != null && (databaseId.contains("mysql") || databaseId.contains("mariadb"))) {
+        if (!configuration.isCursorStreaming()) {
+          return;
+        }
+        fetchSize = Integer.MIN_VALUE;
+      } else {
+        fetchSize = CURSOR_FETCH_SIZE;
+      }
+    }
+    statement.setFetchSize(fetchSize);
+  }
+
   protected void closeStatement(Statement statement) {
     if (statement != null) {
       try {
@@ -21,15 +21,28 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementUtil;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.scripting.defaults.ParameterBindingPlan;
+import org.apache.ibatis.session.BatchGrouping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -40,23 +53,115 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class BatchExecutor extends BaseExecutor {
 
+  private static final Log log = LogFactory.getLog(BatchExecutor.class);
+
   public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
 
+  /**
+   * 估算参数大小时每行的固定开销
+   */
+  private static final int ROW_OVERHEAD_BYTES = 16;
+
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
   private String currentSql;
   private MappedStatement currentStatement;
 
+  /**
+   * 合并语句的方式
+   */
+  private final BatchGrouping grouping;
+  /**
+   * 分组模式下 (MappedStatement, sql) 到 statementList 下标的映射
+   */
+  private final Map<BatchKey, Integer> batchIndexes = new HashMap<>();
+  /**
+   * 分组模式下因语句类型变化提前执行的批次结果，下次 flush 时一并返回
+   */
+  private final List<BatchResult> executedResults = new ArrayList<>();
+  private SqlCommandType currentCommandType;
+
+  /**
+   * 自动执行批次的阈值，为 null 时不限制
+   */
+  private final Integer flushRows;
+  private final Integer flushBytes;
+  private final Integer flushInterval;
+  /**
+   * 批次执行后是否在 BatchResult 中保留参数对象
+   */
+  private final boolean retainParameters;
+  /**
+   * 尚未执行的行数、估算字节数以及第一行的加入时间
+   */
+  private int pendingRows;
+  private long pendingBytes;
+  private long pendingSince;
+
+  /**
+   * 是否在后台线程中执行自动触发的批次
+   */
+  private final boolean pipelining;
+  /**
+   * 后台执行中的批次，完成时返回包括之前结果在内的全部已执行结果。
+   * 不为 null 时连接归后台线程使用，调用方再次使用连接前必须先等待
+   */
+  private CompletableFuture<List<BatchResult>> inFlight;
+
+  /**
+   * 保护执行统计，流水线模式下后台线程也会更新
+   */
+  private final ReentrantLock statisticsLock = new ReentrantLock();
+  private long flushCount;
+  private long autoFlushCount;
+  private long statementCount;
+  private long rowCount;
+  private long elapsedMillis;
+
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.grouping = configuration.getBatchGrouping();
+    this.flushRows = configuration.getBatchFlushRows();
+    this.flushBytes = configuration.getBatchFlushBytes();
+    this.flushInterval = configuration.getBatchFlushInterval();
+    this.retainParameters = configuration.isBatchRetainParameters();
+    this.pipelining = configuration.isBatchPipelining();
+  }
+
+  /**
+   * @return 当前执行器的批次执行统计
+   */
+  public BatchStatistics getStatistics() {
+    statisticsLock.lock();
+    try {
+      return new BatchStatistics(flushCount, autoFlushCount, statementCount, rowCount, elapsedMillis);
+    } finally {
+      statisticsLock.unlock();
+    }
   }
 
   @Override
   public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
     final Configuration configuration = ms.getConfiguration();
+    if (!canExecuteInBackground(ms)) {
+      // selectKey 在创建 StatementHandler 时就会使用连接
+      awaitInFlight();
+    }
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
+    // JDBC 不保证 Connection 可以被多个线程同时使用，prepare、parameterize 之前等待后台批次执行完
+    awaitInFlight();
+    if (grouping != BatchGrouping.NONE) {
+      doGroupedUpdate(ms, handler, sql, parameterObject);
+    } else {
+      doSequentialUpdate(ms, handler, sql, parameterObject);
+    }
+    autoFlushIfNecessary(ms, boundSql, parameterObject);
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  private void doSequentialUpdate(MappedStatement ms, StatementHandler handler, String sql, Object parameterObject) throws SQLException {
     final Statement stmt;
     if (sql.equals(currentSql) && ms.equals(currentStatement)) {
       int last = statementList.size() - 1;
@@ -64,7 +169,7 @@ public class BatchExecutor extends BaseExecutor {
       applyTransactionTimeout(stmt);
      handler.parameterize(stmt);//fix Issues 322
       BatchResult batchResult = batchResultList.get(last);
-      batchResult.addParameterObject(parameterObject);
+      addParameterObject(batchResult, parameterObject);
     } else {
       Connection connection = getConnection(ms.getStatementLog());
       stmt = handler.prepare(connection, transaction.getTimeout());
@@ -72,11 +177,130 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResultList.add(newBatchResult(ms, sql, parameterObject));
     }
   // handler.parameterize(stmt);
     handler.batch(stmt);
-    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  private void doGroupedUpdate(MappedStatement ms, StatementHandler handler, String sql, Object parameterObject) throws SQLException {
+    if (grouping == BatchGrouping.COMMAND_BARRIER && currentCommandType != null
+        && currentCommandType != ms.getSqlCommandType()) {
+      executePending("command type change");
+    }
+    currentCommandType = ms.getSqlCommandType();
+    final BatchKey key = new BatchKey(ms, sql);
+    final Integer index = batchIndexes.get(key);
+    final Statement stmt;
+    if (index != null) {
+      stmt = statementList.get(index);
+      applyTransactionTimeout(stmt);
+      handler.parameterize(stmt);
+      addParameterObject(batchResultList.get(index), parameterObject);
+    } else {
+      Connection connection = getConnection(ms.getStatementLog());
+      stmt = handler.prepare(connection, transaction.getTimeout());
+      handler.parameterize(stmt);
+      batchIndexes.put(key, statementList.size());
+      statementList.add(stmt);
+      batchResultList.add(newBatchResult(ms, sql, parameterObject));
+    }
+    handler.batch(stmt);
+  }
+
+  private BatchResult newBatchResult(MappedStatement ms, String sql, Object parameterObject) {
+    BatchResult batchResult = new BatchResult(ms, sql);
+    addParameterObject(batchResult, parameterObject);
+    return batchResult;
+  }
+
+  private void addParameterObject(BatchResult batchResult, Object parameterObject) {
+    // 主键回填需要参数对象，执行后再释放
+    if (retainParameters || !NoKeyGenerator.class.equals(batchResult.getMappedStatement().getKeyGenerator().getClass())) {
+      batchResult.addParameterObject(parameterObject);
+    }
+  }
+
+  /**
+   * 达到行数、字节数或时间阈值时执行已累积的批次，结果在下次 flush 时返回
+   */
+  private void autoFlushIfNecessary(MappedStatement ms, BoundSql boundSql, Object parameterObject) throws SQLException {
+    if (pendingRows++ == 0) {
+      pendingSince = System.currentTimeMillis();
+    }
+    String reason = null;
+    if (flushRows != null && pendingRows >= flushRows) {
+      reason = "row threshold";
+    } else if (flushBytes != null && (pendingBytes += estimateSize(ms, boundSql, parameterObject)) >= flushBytes) {
+      reason = "byte threshold";
+    } else if (flushInterval != null && System.currentTimeMillis() - pendingSince >= flushInterval) {
+      reason = "time threshold";
+    }
+    if (reason != null) {
+      statisticsLock.lock();
+      try {
+        autoFlushCount++;
+      } finally {
+        statisticsLock.unlock();
+      }
+      executePending(reason);
+    }
+  }
+
+  /**
+   * 估算一行参数占用的内存，只用于判断字节阈值
+   */
+  private long estimateSize(MappedStatement ms, BoundSql boundSql, Object parameterObject) {
+    long size = ROW_OVERHEAD_BYTES;
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings == null) {
+      return size;
+    }
+    ParameterBindingPlan plan = null;
+    ParameterBindingPlan.Binding[] bindings = null;
+    if (parameterObject != null) {
+      plan = ms.getParameterBindingPlan(parameterObject.getClass());
+      bindings = plan.getBindings(parameterMappings);
+    }
+    boolean hasAdditionalParameters = boundSql.hasAdditionalParameters();
+    for (int i = 0; i < parameterMappings.size(); i++) {
+      ParameterMapping parameterMapping = parameterMappings.get(i);
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        continue;
+      }
+      String propertyName = parameterMapping.getProperty();
+      Object value;
+      if (hasAdditionalParameters && boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else {
+        value = plan.getBinding(bindings, i, parameterMapping).getValue(parameterObject);
+      }
+      size += sizeOf(value);
+    }
+    return size;
+  }
+
+  private static long sizeOf(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return 2L * ((char[]) value).length;
+    } else {
+      return 8;
+    }
+  }
+
+  @Override
+  protected List<List<Object>> doQueryMultiple(List<MappedStatement> mappedStatements, List<Object> parameters, List<BoundSql> boundSqls)
+      throws SQLException {
+    flushStatements();
+    return super.doQueryMultiple(mappedStatements, parameters, boundSqls);
   }
 
   @Override
@@ -104,20 +328,137 @@ public class BatchExecutor extends BaseExecutor {
     Connection connection = getConnection(ms.getStatementLog());
     Statement stmt = handler.prepare(connection, transaction.getTimeout());
     handler.parameterize(stmt);
+    applyCursorFetchSize(ms, stmt);
     return handler.<E>queryCursor(stmt);
   }
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
+        awaitQuietly();
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
+      awaitInFlight();
+      Integer transactionTimeout = transaction.getTimeout();
+      List<BatchResult> results = new ArrayList<>(executedResults);
+      executeBatches(detachStatements(), detachBatchResults(), results, transactionTimeout, "flush");
+      return results;
+    } finally {
+      closeStatements();
+      executedResults.clear();
+      currentCommandType = null;
+    }
+  }
+
+  /**
+   * 执行已累积的批次，结果在下次 flush 时返回。
+   * 流水线模式下交给 {@link Configuration#getBatchWriterExecutor()} 执行，调用方返回后可以继续准备下一行数据，
+   * 但下次使用连接前会等待该批次完成，同一时间只有一个线程使用连接
+   * @param reason 执行的原因，用于日志
+   * @throws SQLException
+   */
+  private void executePending(final String reason) throws SQLException {
+    // 保证批次按顺序执行，也是对调用方的背压
+    awaitInFlight();
+    // 事务超时可能绑定在调用方线程上（如 Spring），在这里读取
+    final Integer transactionTimeout = transaction.getTimeout();
+    final List<Statement> statements = detachStatements();
+    final List<BatchResult> batchResults = detachBatchResults();
+    if (!pipelining || !canExecuteInBackground(batchResults)) {
+      executeBatches(statements, batchResults, executedResults, transactionTimeout, reason);
+      return;
+    }
+    final List<BatchResult> results = new ArrayList<>(executedResults);
+    inFlight = CompletableFuture.supplyAsync(() -> {
+      try {
+        executeBatches(statements, batchResults, results, transactionTimeout, reason);
+        return results;
+      } catch (SQLException e) {
+        throw new CompletionException(e);
+      }
+    }, configuration.getBatchWriterExecutor());
+  }
+
+  /**
+   * 只有不回调执行器的主键生成器才能在后台线程处理，{@link org.apache.ibatis.executor.keygen.SelectKeyGenerator} 需要在调用方线程执行查询
+   */
+  private boolean canExecuteInBackground(List<BatchResult> batchResults) {
+    for (BatchResult batchResult : batchResults) {
+      if (!canExecuteInBackground(batchResult.getMappedStatement())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean canExecuteInBackground(MappedStatement ms) {
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    return NoKeyGenerator.class.equals(keyGeneratorType) || Jdbc3KeyGenerator.class.equals(keyGeneratorType);
+  }
+
+  /**
+   * 等待后台执行的批次完成，并把异常抛给调用方
+   * @throws SQLException
+   */
+  private void awaitInFlight() throws SQLException {
+    CompletableFuture<List<BatchResult>> future = inFlight;
+    if (future == null) {
+      return;
+    }
+    inFlight = null;
+    List<BatchResult> results;
+    try {
+      results = future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+    executedResults.clear();
+    executedResults.addAll(results);
+  }
+
+  /**
+   * 回滚时等待后台批次结束，忽略其异常
+   */
+  private void awaitQuietly() {
+    try {
+      awaitInFlight();
+    } catch (SQLException | RuntimeException e) {
+      // ignore, the transaction is rolled back anyway
+      log.debug("Ignoring batch failure on rollback.  Cause: " + e);
+    }
+  }
+
+  /**
+   * 按顺序执行批次，结果追加到 results 中，执行后关闭 Statement。
+   * 流水线模式下在后台线程中调用，只访问传入的列表
+   * @param statements
+   * @param batchResults
+   * @param results
+   * @param transactionTimeout 调用方线程上读取的事务超时时间
+   * @param reason 执行的原因，用于日志
+   * @throws SQLException
+   */
+  private void executeBatches(List<Statement> statements, List<BatchResult> batchResults, List<BatchResult> results,
+      Integer transactionTimeout, String reason) throws SQLException {
+    if (statements.isEmpty()) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    int rows = 0;
+    try {
+      for (int i = 0, n = statements.size(); i < n; i++) {
+        Statement stmt = statements.get(i);
+        StatementUtil.applyTransactionTimeout(stmt, stmt.getQueryTimeout(), transactionTimeout);
+        BatchResult batchResult = batchResults.get(i);
         try {
           batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
@@ -133,31 +474,109 @@ public class BatchExecutor extends BaseExecutor {
           }
           // Close statement to close cursor #1109
           closeStatement(stmt);
+          rows += batchResult.getUpdateCounts().length;
+          if (!retainParameters) {
+            batchResult.clearParameterObjects();
+          }
         } catch (BatchUpdateException e) {
+          int completed = results.size();
           StringBuilder message = new StringBuilder();
           message.append(batchResult.getMappedStatement().getId())
               .append(" (batch index #")
-              .append(i + 1)
+              .append(completed + 1)
               .append(")")
               .append(" failed.");
-          if (i > 0) {
+          if (completed > 0) {
             message.append(" ")
-                .append(i)
+                .append(completed)
                 .append(" prior sub executor(s) completed successfully, but will be rolled back.");
           }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+          throw new BatchExecutorException(message.toString(), e, new ArrayList<>(results), batchResult);
         }
         results.add(batchResult);
       }
-      return results;
     } finally {
-      for (Statement stmt : statementList) {
+      for (Statement stmt : statements) {
         closeStatement(stmt);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      long elapsed = System.currentTimeMillis() - start;
+      recordExecution(statements.size(), rows, elapsed);
+      if (log.isDebugEnabled()) {
+        log.debug("Batch executed (" + reason + "): " + statements.size() + " statement(s), " + rows + " row(s) in " + elapsed + " ms");
+      }
+    }
+  }
+
+  private void recordExecution(int statements, int rows, long elapsed) {
+    statisticsLock.lock();
+    try {
+      flushCount++;
+      statementCount += statements;
+      rowCount += rows;
+      elapsedMillis += elapsed;
+    } finally {
+      statisticsLock.unlock();
+    }
+  }
+
+  private List<Statement> detachStatements() {
+    List<Statement> statements = new ArrayList<>(statementList);
+    statementList.clear();
+    return statements;
+  }
+
+  private List<BatchResult> detachBatchResults() {
+    List<BatchResult> batchResults = new ArrayList<>(batchResultList);
+    resetBatches();
+    return batchResults;
+  }
+
+  private void closeStatements() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
     }
+    statementList.clear();
+    resetBatches();
+  }
+
+  private void resetBatches() {
+    currentSql = null;
+    batchResultList.clear();
+    batchIndexes.clear();
+    pendingRows = 0;
+    pendingBytes = 0;
+  }
+
+  /**
+   * 分组模式下批次的标识，同一个 MappedStatement 的同一条 sql 合并为一个批次
+   */
+  private static final class BatchKey {
+
+    private final MappedStatement mappedStatement;
+    private final String sql;
+
+    BatchKey(MappedStatement mappedStatement, String sql) {
+      this.mappedStatement = mappedStatement;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey other = (BatchKey) o;
+      return mappedStatement.equals(other.mappedStatement) && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * mappedStatement.hashCode() + sql.hashCode();
+    }
+
   }
 
 }
@@ -30,6 +30,10 @@ public class BatchResult {
   private final List<Object> parameterObjects;
 
   private int[] updateCounts;
+  /**
+   * 参数对象是否已在执行后释放
+   */
+  private boolean parametersReleased;
 
   public BatchResult(MappedStatement mappedStatement, String sql) {
     super();
@@ -53,10 +57,18 @@ public class BatchResult {
 
   @Deprecated
   public Object getParameterObject() {
-    return parameterObjects.get(0);
+    return getParameterObjects().get(0);
   }
 
+  /**
+   * @return 批次的参数对象
+   * @throws IllegalStateException batchRetainParameters 为 false，参数对象已在执行后释放
+   */
   public List<Object> getParameterObjects() {
+    if (parametersReleased) {
+      throw new IllegalStateException("Parameter objects of " + mappedStatement.getId()
+          + " were released after execution because batchRetainParameters is false");
+    }
     return parameterObjects;
   }
 
@@ -72,4 +84,12 @@ public class BatchResult {
     this.parameterObjects.add(parameterObject);
   }
 
+  /**
+   * 不保留参数对象时，批次执行后释放
+   */
+  void clearParameterObjects() {
+    this.parameterObjects.clear();
+    this.parametersReleased = true;
+  }
+
 }
@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * 批量执行器的执行统计，不可变的快照
+ *
+ * @see BatchExecutor#getStatistics()
+ */
+public final class BatchStatistics {
+
+  private final long flushCount;
+  private final long autoFlushCount;
+  private final long statementCount;
+  private final long rowCount;
+  private final long elapsedMillis;
+
+  BatchStatistics(long flushCount, long autoFlushCount, long statementCount, long rowCount, long elapsedMillis) {
+    this.flushCount = flushCount;
+    this.autoFlushCount = autoFlushCount;
+    this.statementCount = statementCount;
+    this.rowCount = rowCount;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  /**
+   * @return 执行批次的次数，包括自动执行
+   */
+  public long getFlushCount() {
+    return flushCount;
+  }
+
+  /**
+   * @return 达到阈值或语句类型变化时自动执行批次的次数
+   */
+  public long getAutoFlushCount() {
+    return autoFlushCount;
+  }
+
+  /**
+   * @return 执行的 Statement 数
+   */
+  public long getStatementCount() {
+    return statementCount;
+  }
+
+  /**
+   * @return 执行的行数，即各批次 update count 的个数之和
+   */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @return executeBatch 及主键处理的累计耗时
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchStatistics{flushCount=" + flushCount + ", autoFlushCount=" + autoFlushCount + ", statementCount="
+        + statementCount + ", rowCount=" + rowCount + ", elapsedMillis=" + elapsedMillis + "}";
+  }
+
+}
@@ -89,6 +89,17 @@ public class CachingExecutor implements Executor {
     return delegate.queryCursor(ms, parameter, rowBounds);
   }
 
+  @Override
+  public List<List<Object>> queryMultiple(List<MappedStatement> mappedStatements, List<Object> parameters) throws SQLException {
+    for (MappedStatement ms : mappedStatements) {
+      if (ms.getCache() != null) {
+        // 需要经过二级缓存，逐个执行
+        return Executor.super.queryMultiple(mappedStatements, parameters);
+      }
+    }
+    return delegate.queryMultiple(mappedStatements, parameters);
+  }
+
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
       throws SQLException {
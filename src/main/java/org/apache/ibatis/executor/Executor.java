@@ -16,6 +16,7 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.ibatis.cache.CacheKey;
@@ -44,6 +45,18 @@ public interface Executor {
 
   <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException;
 
+  /**
+   * 按顺序执行多个查询，返回每个查询的结果列表。
+   * 默认逐个调用 query，执行器可以合并为一次数据库往返
+   */
+  default List<List<Object>> queryMultiple(List<MappedStatement> mappedStatements, List<Object> parameters) throws SQLException {
+    List<List<Object>> results = new ArrayList<>(mappedStatements.size());
+    for (int i = 0; i < mappedStatements.size(); i++) {
+      results.add(query(mappedStatements.get(i), parameters.get(i), RowBounds.DEFAULT, NO_RESULT_HANDLER));
+    }
+    return results;
+  }
+
   List<BatchResult> flushStatements() throws SQLException;
 
   void commit(boolean required) throws SQLException;
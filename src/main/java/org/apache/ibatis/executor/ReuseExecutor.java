@@ -18,10 +18,14 @@ package org.apache.ibatis.executor;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementHandler;
@@ -38,10 +42,31 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class ReuseExecutor extends BaseExecutor {
 
-  private final Map<String, Statement> statementMap = new HashMap<>();
+  /**
+   * sql 到 Statement 的映射，按最近使用排序
+   */
+  private final Map<String, Statement> statementMap = new LinkedHashMap<>(16, 0.75f, true);
+  /**
+   * 复用的 Statement 数上限，为 null 时不限制
+   */
+  private final Integer statementLimit;
+  /**
+   * 超出上限被移出的 Statement，仍在使用时等使用结束后再关闭
+   */
+  private final List<Statement> evictedStatements = new ArrayList<>();
+  /**
+   * 正在执行查询的 Statement。嵌套查询或 ResultHandler 中执行的语句可能使它们被移出，
+   * 同一 Statement 嵌套使用时出现多次
+   */
+  private final List<Statement> activeStatements = new ArrayList<>();
+  /**
+   * 游标使用中的 Statement，只在 flush 时关闭
+   */
+  private final Set<Statement> cursorStatements = new HashSet<>();
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.statementLimit = configuration.getReuseExecutorStatementLimit();
   }
 
   @Override
@@ -57,7 +82,13 @@ public class ReuseExecutor extends BaseExecutor {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
     Statement stmt = prepareStatement(handler, ms.getStatementLog());
-    return handler.<E>query(stmt, resultHandler);
+    activeStatements.add(stmt);
+    try {
+      return handler.<E>query(stmt, resultHandler);
+    } finally {
+      activeStatements.remove(stmt);
+      closeEvictedStatements();
+    }
   }
 
   @Override
@@ -65,6 +96,8 @@ public class ReuseExecutor extends BaseExecutor {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
     Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    cursorStatements.add(stmt);
+    applyCursorFetchSize(ms, stmt);
     return handler.<E>queryCursor(stmt);
   }
 
@@ -74,6 +107,12 @@ public class ReuseExecutor extends BaseExecutor {
       closeStatement(stmt);
     }
     statementMap.clear();
+    for (Statement stmt : evictedStatements) {
+      closeStatement(stmt);
+    }
+    evictedStatements.clear();
+    activeStatements.clear();
+    cursorStatements.clear();
     return Collections.emptyList();
   }
 
@@ -107,6 +146,25 @@ public class ReuseExecutor extends BaseExecutor {
 
   private void putStatement(String sql, Statement stmt) {
     statementMap.put(sql, stmt);
+    if (statementLimit != null && statementMap.size() > statementLimit) {
+      Iterator<Statement> eldest = statementMap.values().iterator();
+      evictedStatements.add(eldest.next());
+      eldest.remove();
+    }
+    closeEvictedStatements();
+  }
+
+  /**
+   * 关闭已移出且不再被查询或游标使用的 Statement
+   */
+  private void closeEvictedStatements() {
+    for (Iterator<Statement> iterator = evictedStatements.iterator(); iterator.hasNext();) {
+      Statement evicted = iterator.next();
+      if (!activeStatements.contains(evicted) && !cursorStatements.contains(evicted)) {
+        closeStatement(evicted);
+        iterator.remove();
+      }
+    }
   }
 
 }
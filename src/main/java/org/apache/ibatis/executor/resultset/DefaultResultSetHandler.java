@@ -131,6 +131,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.resultHandler = resultHandler;
   }
 
+  public Configuration getConfiguration() {
+    return configuration;
+  }
+
   //
   // HANDLE OUTPUT PARAMETER
   //
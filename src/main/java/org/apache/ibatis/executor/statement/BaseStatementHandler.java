@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.apache.ibatis.executor.statement;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -104,8 +105,11 @@ public abstract class BaseStatementHandler implements StatementHandler {
     Integer queryTimeout = null;
     if (mappedStatement.getTimeout() != null) {
       queryTimeout = mappedStatement.getTimeout();
-    } else if (configuration.getDefaultStatementTimeout() != null) {
-      queryTimeout = configuration.getDefaultStatementTimeout();
+    } else {
+      queryTimeout = StatementStatistics.adaptiveTimeout(configuration, mappedStatement);
+      if (queryTimeout == null) {
+        queryTimeout = configuration.getDefaultStatementTimeout();
+      }
     }
     if (queryTimeout != null) {
       stmt.setQueryTimeout(queryTimeout);
@@ -119,12 +123,51 @@ public abstract class BaseStatementHandler implements StatementHandler {
       stmt.setFetchSize(fetchSize);
       return;
     }
+    fetchSize = StatementStatistics.adaptiveFetchSize(configuration, mappedStatement, rowBounds);
+    if (fetchSize != null) {
+      stmt.setFetchSize(fetchSize);
+      return;
+    }
     Integer defaultFetchSize = configuration.getDefaultFetchSize();
     if (defaultFetchSize != null) {
       stmt.setFetchSize(defaultFetchSize);
     }
   }
 
+  /**
+   * 开启 adaptiveFetchSize 或 adaptiveStatementTimeout 时记录查询的结果数和耗时，
+   * 使用 ResultHandler 的查询不返回结果列表，不记录
+   * @param results 查询结果
+   * @param startNanos 执行前的 System.nanoTime()
+   * @param resultHandler 查询使用的 ResultHandler，不为 null 时不记录
+   * @return results
+   */
+  protected <E> List<E> recordStatistics(List<E> results, long startNanos, ResultHandler<?> resultHandler) {
+    if (resultHandler == null) {
+      StatementStatistics.recordExecution(configuration, mappedStatement, results.size(), startNanos);
+    }
+    return results;
+  }
+
+  /**
+   * 开启 adaptiveStatementTimeout 时记录超时的查询，耗时按语句当时的超时时间计，其他异常不记录
+   * @param statement 执行的语句
+   * @param startNanos 执行前的 System.nanoTime()
+   * @param e 执行时抛出的异常
+   */
+  protected void recordTimeout(Statement statement, long startNanos, SQLException e) {
+    if (!configuration.isAdaptiveStatementTimeout() || !StatementStatistics.isTimeout(e)) {
+      return;
+    }
+    int timeout = 0;
+    try {
+      timeout = statement.getQueryTimeout();
+    } catch (SQLException ignore) {
+      // 语句可能已被关闭，按实际耗时记录
+    }
+    StatementStatistics.recordTimeout(configuration, mappedStatement, timeout, startNanos);
+  }
+
   protected void closeStatement(Statement statement) {
     try {
       if (statement != null) {
@@ -64,10 +64,16 @@ public class CallableStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     CallableStatement cs = (CallableStatement) statement;
-    cs.execute();
-    List<E> resultList = resultSetHandler.<E>handleResultSets(cs);
-    resultSetHandler.handleOutputParameters(cs);
-    return resultList;
+    long start = System.nanoTime();
+    try {
+      cs.execute();
+      List<E> resultList = resultSetHandler.<E>handleResultSets(cs);
+      resultSetHandler.handleOutputParameters(cs);
+      return recordStatistics(resultList, start, resultHandler);
+    } catch (SQLException e) {
+      recordTimeout(cs, start, e);
+      throw e;
+    }
   }
 
   @Override
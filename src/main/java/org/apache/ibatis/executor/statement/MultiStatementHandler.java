@@ -0,0 +1,269 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 把多个查询合并为一条以分号分隔的 sql 执行的 StatementHandler
+ *
+ * 每个查询使用自己的 ParameterHandler、ResultSetHandler（同样经过插件），参数按位置依次设置，
+ * 结果集按顺序处理，处理完一个结果映射后会通过 getMoreResults 移到下一个结果集。
+ * {@link #query(Statement, ResultHandler)} 返回每个查询的结果列表组成的列表。
+ * 超时时间和 fetchSize 按与 {@link BaseStatementHandler} 相同的规则为每个查询选择后取最大值。
+ * {@link #getBoundSql()} 返回合并后的 sql 和依次拼接的参数映射，只用于查看，参数由各个查询的 ParameterHandler 设置
+ */
+public class MultiStatementHandler implements StatementHandler {
+
+  private final Configuration configuration;
+  private final List<MappedStatement> mappedStatements;
+  private final List<BoundSql> boundSqls;
+  private final List<ParameterHandler> parameterHandlers;
+  private final List<ResultSetHandler> resultSetHandlers;
+  private final BoundSql boundSql;
+  private final ParameterHandler parameterHandler;
+
+  public MultiStatementHandler(Executor executor, List<MappedStatement> mappedStatements, List<Object> parameters, List<BoundSql> boundSqls) {
+    this.configuration = mappedStatements.get(0).getConfiguration();
+    this.mappedStatements = mappedStatements;
+    this.boundSqls = boundSqls;
+    this.parameterHandlers = new ArrayList<>(mappedStatements.size());
+    this.resultSetHandlers = new ArrayList<>(mappedStatements.size());
+    StringBuilder sql = new StringBuilder();
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    for (int i = 0; i < mappedStatements.size(); i++) {
+      MappedStatement ms = mappedStatements.get(i);
+      BoundSql statementBoundSql = boundSqls.get(i);
+      String statementSql = statementBoundSql.getSql().trim();
+      while (statementSql.endsWith(";")) {
+        statementSql = statementSql.substring(0, statementSql.length() - 1).trim();
+      }
+      if (i > 0) {
+        sql.append(";\n");
+      }
+      sql.append(statementSql);
+      parameterMappings.addAll(statementBoundSql.getParameterMappings());
+      ParameterHandler statementParameterHandler = configuration.newParameterHandler(ms, parameters.get(i), statementBoundSql);
+      parameterHandlers.add(statementParameterHandler);
+      resultSetHandlers.add(configuration.newResultSetHandler(executor, ms, RowBounds.DEFAULT, statementParameterHandler,
+          null, statementBoundSql));
+    }
+    this.boundSql = new BoundSql(configuration, sql.toString(), parameterMappings, parameters);
+    this.parameterHandler = new MultiParameterHandler(parameters);
+  }
+
+  @Override
+  public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
+    ErrorContext.instance().sql(boundSql.getSql());
+    Statement statement = null;
+    try {
+      statement = connection.prepareStatement(boundSql.getSql());
+      setStatementTimeout(statement, transactionTimeout);
+      setFetchSize(statement);
+      return statement;
+    } catch (SQLException e) {
+      closeStatement(statement);
+      throw e;
+    } catch (Exception e) {
+      closeStatement(statement);
+      throw new ExecutorException("Error preparing statement.  Cause: " + e, e);
+    }
+  }
+
+  private void setStatementTimeout(Statement stmt, Integer transactionTimeout) throws SQLException {
+    Integer queryTimeout = null;
+    for (MappedStatement ms : mappedStatements) {
+      Integer timeout = ms.getTimeout() != null ? ms.getTimeout() : StatementStatistics.adaptiveTimeout(configuration, ms);
+      if (timeout != null && (queryTimeout == null || timeout > queryTimeout)) {
+        queryTimeout = timeout;
+      }
+    }
+    if (queryTimeout == null) {
+      queryTimeout = configuration.getDefaultStatementTimeout();
+    }
+    if (queryTimeout != null) {
+      stmt.setQueryTimeout(queryTimeout);
+    }
+    StatementUtil.applyTransactionTimeout(stmt, queryTimeout, transactionTimeout);
+  }
+
+  private void setFetchSize(Statement stmt) throws SQLException {
+    Integer fetchSize = null;
+    for (MappedStatement ms : mappedStatements) {
+      Integer size = ms.getFetchSize() != null ? ms.getFetchSize() : StatementStatistics.adaptiveFetchSize(configuration, ms, RowBounds.DEFAULT);
+      if (size != null && (fetchSize == null || size > fetchSize)) {
+        fetchSize = size;
+      }
+    }
+    if (fetchSize == null) {
+      fetchSize = configuration.getDefaultFetchSize();
+    }
+    if (fetchSize != null) {
+      stmt.setFetchSize(fetchSize);
+    }
+  }
+
+  @Override
+  public void parameterize(Statement statement) throws SQLException {
+    parameterHandler.setParameters((PreparedStatement) statement);
+  }
+
+  @Override
+  public void batch(Statement statement) throws SQLException {
+    throw new UnsupportedOperationException("Combined queries cannot be batched");
+  }
+
+  @Override
+  public int update(Statement statement) throws SQLException {
+    throw new UnsupportedOperationException("Combined queries cannot be used for updates");
+  }
+
+  /**
+   * 开启 adaptiveFetchSize 或 adaptiveStatementTimeout 时，每个查询记录整条语句开始执行到其结果处理完的耗时
+   * @param resultHandler 必须为 null，结果以列表返回
+   * @return 每个查询的结果列表组成的列表
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+    PreparedStatement ps = (PreparedStatement) statement;
+    long start = System.nanoTime();
+    List<List<Object>> results = new ArrayList<>(mappedStatements.size());
+    try {
+      ps.execute();
+      for (int i = 0; i < mappedStatements.size(); i++) {
+        List<Object> list = resultSetHandlers.get(i).handleResultSets(ps);
+        StatementStatistics.recordExecution(configuration, mappedStatements.get(i), list.size(), start);
+        results.add(list);
+      }
+    } catch (SQLException e) {
+      recordTimeout(statement, start, e);
+      throw e;
+    }
+    return (List<E>) results;
+  }
+
+  private void recordTimeout(Statement statement, long startNanos, SQLException e) {
+    if (!configuration.isAdaptiveStatementTimeout() || !StatementStatistics.isTimeout(e)) {
+      return;
+    }
+    int timeout = 0;
+    try {
+      timeout = statement.getQueryTimeout();
+    } catch (SQLException ignore) {
+      // 语句可能已被关闭，按实际耗时记录
+    }
+    for (MappedStatement ms : mappedStatements) {
+      StatementStatistics.recordTimeout(configuration, ms, timeout, startNanos);
+    }
+  }
+
+  @Override
+  public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+    throw new UnsupportedOperationException("Combined queries cannot return a Cursor");
+  }
+
+  @Override
+  public BoundSql getBoundSql() {
+    return boundSql;
+  }
+
+  @Override
+  public ParameterHandler getParameterHandler() {
+    return parameterHandler;
+  }
+
+  private void closeStatement(Statement statement) {
+    try {
+      if (statement != null) {
+        statement.close();
+      }
+    } catch (SQLException e) {
+      //ignore
+    }
+  }
+
+  /**
+   * 依次调用各个查询的 ParameterHandler，参数位置加上前面查询的参数个数
+   */
+  private class MultiParameterHandler implements ParameterHandler {
+
+    private final List<Object> parameters;
+
+    MultiParameterHandler(List<Object> parameters) {
+      this.parameters = parameters;
+    }
+
+    @Override
+    public Object getParameterObject() {
+      return parameters;
+    }
+
+    @Override
+    public void setParameters(PreparedStatement ps) throws SQLException {
+      int offset = 0;
+      for (int i = 0; i < parameterHandlers.size(); i++) {
+        parameterHandlers.get(i).setParameters(offsetParameters(ps, offset));
+        offset += boundSqls.get(i).getParameterMappings().size();
+      }
+    }
+
+  }
+
+  /**
+   * 参数位置加上偏移量的 PreparedStatement 代理，用于在合并的 sql 中设置后续查询的参数
+   */
+  private static PreparedStatement offsetParameters(PreparedStatement statement, int offset) {
+    if (offset == 0) {
+      return statement;
+    }
+    InvocationHandler handler = (proxy, method, args) -> {
+      if (PreparedStatement.class.equals(method.getDeclaringClass()) && method.getName().startsWith("set")
+          && args != null && args.length > 1 && args[0] instanceof Integer) {
+        args[0] = (Integer) args[0] + offset;
+      }
+      try {
+        return method.invoke(statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    };
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, handler);
+  }
+
+}
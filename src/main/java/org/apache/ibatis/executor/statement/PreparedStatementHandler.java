@@ -60,8 +60,14 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
-    ps.execute();
-    return resultSetHandler.<E> handleResultSets(ps);
+    long start = System.nanoTime();
+    try {
+      ps.execute();
+      return recordStatistics(resultSetHandler.<E> handleResultSets(ps), start, resultHandler);
+    } catch (SQLException e) {
+      recordTimeout(ps, start, e);
+      throw e;
+    }
   }
 
   @Override
@@ -70,8 +70,14 @@ public class SimpleStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     String sql = boundSql.getSql();
-    statement.execute(sql);
-    return resultSetHandler.<E>handleResultSets(statement);
+    long start = System.nanoTime();
+    try {
+      statement.execute(sql);
+      return recordStatistics(resultSetHandler.<E> handleResultSets(statement), start, resultHandler);
+    } catch (SQLException e) {
+      recordTimeout(statement, start, e);
+      throw e;
+    }
   }
 
   @Override
@@ -0,0 +1,381 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 映射语句的执行统计
+ *
+ * 记录每次查询返回的行数和耗时：最近 {@link #WINDOW} 次保存原始值，用于选择 fetchSize；
+ * 全部执行按行数的 2 的幂分桶计入直方图，供运维查看。
+ * 超时时间按全部执行的峰值耗时选择，峰值每 {@link #PEAK_HALF_LIFE_MILLIS} 减半，
+ * 偶尔才执行一次的慢查询（比如月底的报表）不会因为期间的大量快速执行而被遗忘。
+ * 超时的执行只记录耗时（按超时时间计），不计入行数，使后续的超时时间随之增大。
+ * 行数是映射后的结果数，嵌套结果映射合并多行时会比实际读取的行数少。
+ */
+public class StatementStatistics {
+
+  /**
+   * 参与计算的最近执行次数
+   */
+  public static final int WINDOW = 32;
+
+  /**
+   * 少于这个次数时不调整
+   */
+  public static final int MIN_SAMPLES = 5;
+
+  /**
+   * 超时时间取最近最大耗时的倍数
+   */
+  public static final int TIMEOUT_FACTOR = 10;
+
+  /**
+   * 峰值耗时减半的时间，30 天
+   */
+  public static final long PEAK_HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+  private static final int BUCKETS = 32;
+
+  /**
+   * 超时样本的行数占位，计算行数分位数时跳过
+   */
+  private static final int NO_ROWS = -1;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final int[] recentRows = new int[WINDOW];
+  private final long[] recentMillis = new long[WINDOW];
+  private final long[] histogram = new long[BUCKETS];
+  private int next;
+  private int samples;
+  private long executions;
+  private long totalRows;
+  private long timeouts;
+  private final LongSupplier clock;
+  private double peakMillis;
+  private long peakUpdatedAt;
+
+  public StatementStatistics() {
+    this(System::currentTimeMillis);
+  }
+
+  /**
+   * @param clock 返回当前时间（毫秒），用于峰值耗时的衰减
+   */
+  StatementStatistics(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  public void record(int rows, long elapsedMillis) {
+    lock.lock();
+    try {
+      addSample(rows, elapsedMillis);
+      histogram[bucket(rows)]++;
+      executions++;
+      totalRows += rows;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 记录一次超时的执行，只参与超时时间的计算
+   * @param elapsedMillis 耗时，一般取当时的超时时间
+   */
+  public void recordTimeout(long elapsedMillis) {
+    lock.lock();
+    try {
+      addSample(NO_ROWS, elapsedMillis);
+      timeouts++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void addSample(int rows, long elapsedMillis) {
+    long now = clock.getAsLong();
+    peakMillis = Math.max(decayedPeak(now), elapsedMillis);
+    peakUpdatedAt = now;
+    recentRows[next] = rows;
+    recentMillis[next] = elapsedMillis;
+    next = (next + 1) % WINDOW;
+    if (samples < WINDOW) {
+      samples++;
+    }
+  }
+
+  /**
+   * 根据最近行数的 90 分位选择 fetchSize，多取一行让驱动一次往返即可确认结果结束
+   * @param min fetchSize 下限
+   * @param max fetchSize 上限
+   * @return 样本不足时返回 null
+   */
+  public Integer suggestFetchSize(int min, int max) {
+    lock.lock();
+    try {
+      if (rowSamples() < MIN_SAMPLES) {
+        return null;
+      }
+      long fetchSize = (long) percentile(90) + 1;
+      return (int) Math.max(min, Math.min(max, fetchSize));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 根据衰减后的峰值耗时选择超时时间（秒），上限优先于下限。
+   * 超过峰值 {@link #TIMEOUT_FACTOR} 倍的执行会被取消，即使同样的查询以前成功过
+   * @param min 超时时间下限，避免耗时偶尔变长的查询被过早取消
+   * @param max 超时时间上限，可以为 null
+   * @return 样本不足时返回 null
+   */
+  public Integer suggestTimeout(int min, Integer max) {
+    lock.lock();
+    try {
+      if (samples < MIN_SAMPLES) {
+        return null;
+      }
+      long maxMillis = (long) Math.ceil(decayedPeak(clock.getAsLong()));
+      long timeout = Math.max(Math.max(1, min), (maxMillis * TIMEOUT_FACTOR + 999) / 1000);
+      if (max != null && max > 0) {
+        timeout = Math.min(max, timeout);
+      }
+      return (int) Math.min(Integer.MAX_VALUE, timeout);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 开启 adaptiveFetchSize 时按映射语句的统计选择 fetchSize
+   * @param configuration
+   * @param ms
+   * @param rowBounds 分页时最多读取 offset + limit 行，可以为 null
+   * @return 未开启或样本不足时返回 null
+   */
+  public static Integer adaptiveFetchSize(Configuration configuration, MappedStatement ms, RowBounds rowBounds) {
+    if (!configuration.isAdaptiveFetchSize()) {
+      return null;
+    }
+    StatementStatistics statistics = configuration.getStatementStatistics(ms.getId(), false);
+    if (statistics == null) {
+      return null;
+    }
+    int max = configuration.getMaxAdaptiveFetchSize();
+    if (rowBounds != null && rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT) {
+      max = (int) Math.min(max, (long) rowBounds.getOffset() + rowBounds.getLimit());
+    }
+    return statistics.suggestFetchSize(Math.min(configuration.getMinAdaptiveFetchSize(), max), max);
+  }
+
+  /**
+   * 开启 adaptiveStatementTimeout 时按映射语句的统计选择超时时间（秒），
+   * 不小于 minAdaptiveStatementTimeout，不超过 defaultStatementTimeout，见 {@link #suggestTimeout(int, Integer)}
+   * @param configuration
+   * @param ms
+   * @return 未开启或样本不足时返回 null
+   */
+  public static Integer adaptiveTimeout(Configuration configuration, MappedStatement ms) {
+    if (!configuration.isAdaptiveStatementTimeout()) {
+      return null;
+    }
+    StatementStatistics statistics = configuration.getStatementStatistics(ms.getId(), false);
+    return statistics == null ? null : statistics.suggestTimeout(configuration.getMinAdaptiveStatementTimeout(),
+        configuration.getDefaultStatementTimeout());
+  }
+
+  /**
+   * 开启 adaptiveFetchSize 或 adaptiveStatementTimeout 时记录一次查询的结果数和耗时
+   * @param configuration
+   * @param ms
+   * @param rows 结果数
+   * @param startNanos 执行前的 System.nanoTime()
+   */
+  public static void recordExecution(Configuration configuration, MappedStatement ms, int rows, long startNanos) {
+    if (configuration.isAdaptiveFetchSize() || configuration.isAdaptiveStatementTimeout()) {
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      configuration.getStatementStatistics(ms.getId(), true).record(rows, elapsedMillis);
+    }
+  }
+
+  /**
+   * 开启 adaptiveStatementTimeout 时记录一次超时的查询，耗时按当时的超时时间计
+   * @param configuration
+   * @param ms
+   * @param timeoutSeconds 语句的超时时间（秒），0 表示未知，此时按实际耗时计
+   * @param startNanos 执行前的 System.nanoTime()
+   */
+  public static void recordTimeout(Configuration configuration, MappedStatement ms, int timeoutSeconds, long startNanos) {
+    if (configuration.isAdaptiveStatementTimeout()) {
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      long timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+      configuration.getStatementStatistics(ms.getId(), true).recordTimeout(Math.max(elapsedMillis, timeoutMillis));
+    }
+  }
+
+  /**
+   * 判断异常是否由查询超时引起，除 SQLTimeoutException 外也识别常见的超时 SQLState
+   * @param e
+   * @return
+   */
+  public static boolean isTimeout(SQLException e) {
+    if (e instanceof SQLTimeoutException) {
+      return true;
+    }
+    String sqlState = e.getSQLState();
+    // HYT00/HYT01：ODBC 超时；57014：DB2/PostgreSQL 语句被取消
+    return "HYT00".equals(sqlState) || "HYT01".equals(sqlState) || "57014".equals(sqlState);
+  }
+
+  public long getExecutions() {
+    lock.lock();
+    try {
+      return executions;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 超时的执行次数，不计入 {@link #getExecutions()}
+   */
+  public long getTimeouts() {
+    lock.lock();
+    try {
+      return timeouts;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getTotalRows() {
+    lock.lock();
+    try {
+      return totalRows;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param percent 0 到 100
+   * @return 最近执行行数的分位数，没有样本时返回 0
+   */
+  public int getRowsPercentile(int percent) {
+    lock.lock();
+    try {
+      return percentile(percent);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 全部执行的峰值耗时，按 {@link #PEAK_HALF_LIFE_MILLIS} 衰减到当前时间
+   */
+  public long getPeakElapsedMillis() {
+    lock.lock();
+    try {
+      return (long) Math.ceil(decayedPeak(clock.getAsLong()));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return 最近 {@link #WINDOW} 次执行的最大耗时
+   */
+  public long getMaxElapsedMillis() {
+    lock.lock();
+    try {
+      long max = 0;
+      for (int i = 0; i < samples; i++) {
+        max = Math.max(max, recentMillis[i]);
+      }
+      return max;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 行数直方图，第 0 个桶是 0 行，第 i 个桶是 [2^(i-1), 2^i) 行
+   * @return
+   */
+  public long[] getHistogram() {
+    lock.lock();
+    try {
+      return histogram.clone();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private double decayedPeak(long now) {
+    long age = Math.max(0, now - peakUpdatedAt);
+    return peakMillis * Math.pow(0.5, (double) age / PEAK_HALF_LIFE_MILLIS);
+  }
+
+  private int rowSamples() {
+    int count = 0;
+    for (int i = 0; i < samples; i++) {
+      if (recentRows[i] != NO_ROWS) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private int percentile(int percent) {
+    int count = rowSamples();
+    if (count == 0) {
+      return 0;
+    }
+    int[] sorted = Arrays.copyOf(recentRows, samples);
+    Arrays.sort(sorted);
+    // 超时样本的 NO_ROWS 排在最前面
+    int first = samples - count;
+    int index = (int) Math.ceil(percent / 100.0 * count) - 1;
+    return sorted[first + Math.max(0, Math.min(count - 1, index))];
+  }
+
+  private static int bucket(int rows) {
+    return rows <= 0 ? 0 : Math.min(BUCKETS - 1, 32 - Integer.numberOfLeadingZeros(rows));
+  }
+
+  @Override
+  public String toString() {
+    lock.lock();
+    try {
+      return "StatementStatistics{executions=" + executions + ", totalRows=" + totalRows
+          + ", p50Rows=" + percentile(50) + ", p90Rows=" + percentile(90) + ", maxRows=" + percentile(100) + "}";
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
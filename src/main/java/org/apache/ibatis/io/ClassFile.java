@@ -0,0 +1,310 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * class 文件的摘要信息
+ *
+ * 只读取类名、父类、接口、访问标志、类上的运行期注解以及内部类信息，
+ * 用于在 {@link ResolverUtil} 中不加载类即可排除候选。
+ * 无法确定时所有判断都返回可能匹配。
+ */
+public final class ClassFile {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final int ACC_INTERFACE = 0x0200;
+  private static final int ACC_ANNOTATION = 0x2000;
+
+  private final String name;
+  private final String superName;
+  private final String[] interfaceNames;
+  private final int access;
+  private final Set<String> annotationNames;
+  private final boolean memberClass;
+  private final boolean anonymousClass;
+
+  /**
+   * 按类名查找其他类的 class 文件，找不到时返回 null
+   */
+  private final Function<String, ClassFile> lookup;
+
+  private ClassFile(String name, String superName, String[] interfaceNames, int access, Set<String> annotationNames,
+      boolean memberClass, boolean anonymousClass, Function<String, ClassFile> lookup) {
+    this.name = name;
+    this.superName = superName;
+    this.interfaceNames = interfaceNames;
+    this.access = access;
+    this.annotationNames = annotationNames;
+    this.memberClass = memberClass;
+    this.anonymousClass = anonymousClass;
+    this.lookup = lookup;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getSuperName() {
+    return superName;
+  }
+
+  public String[] getInterfaceNames() {
+    return interfaceNames.clone();
+  }
+
+  public boolean isInterface() {
+    return (access & ACC_INTERFACE) != 0;
+  }
+
+  public boolean isAnnotation() {
+    return (access & ACC_ANNOTATION) != 0;
+  }
+
+  public boolean isAbstract() {
+    return Modifier.isAbstract(access);
+  }
+
+  public boolean isMemberClass() {
+    return memberClass;
+  }
+
+  public boolean isAnonymousClass() {
+    return anonymousClass;
+  }
+
+  /**
+   * @return 类上直接声明的运行期注解
+   */
+  public Set<String> getAnnotationNames() {
+    return annotationNames;
+  }
+
+  /**
+   * 是否可能是指定类型的子类型（包括自身），父类型的 class 文件无法读取时返回 true
+   * @param typeName 类的全名
+   * @return
+   */
+  public boolean maybeSubtypeOf(String typeName) {
+    if (Object.class.getName().equals(typeName) || name.equals(typeName)) {
+      return true;
+    }
+    if (superName != null && maybeSubtypeOf(superName, typeName)) {
+      return true;
+    }
+    for (String interfaceName : interfaceNames) {
+      if (maybeSubtypeOf(interfaceName, typeName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean maybeSubtypeOf(String candidate, String typeName) {
+    if (candidate.equals(typeName)) {
+      return true;
+    }
+    ClassFile classFile = lookup.apply(candidate);
+    return classFile == null || classFile.maybeSubtypeOf(typeName);
+  }
+
+  /**
+   * 是否可能带有指定注解
+   * @param annotationName 注解的全名
+   * @param inherited 注解是否标记了 {@link java.lang.annotation.Inherited}
+   * @return
+   */
+  public boolean maybeAnnotatedWith(String annotationName, boolean inherited) {
+    if (annotationNames.contains(annotationName)) {
+      return true;
+    }
+    if (!inherited || superName == null || isInterface()) {
+      return false;
+    }
+    ClassFile superClass = lookup.apply(superName);
+    return superClass == null || superClass.maybeAnnotatedWith(annotationName, true);
+  }
+
+  /**
+   * 读取 class 文件
+   * @param in
+   * @param lookup 按类名查找其他类的 class 文件，用于判断继承关系
+   * @return
+   * @throws IOException 不是合法的 class 文件
+   */
+  public static ClassFile read(InputStream in, Function<String, ClassFile> lookup) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    // minor_version, major_version
+    input.skipBytes(4);
+    int poolSize = input.readUnsignedShort();
+    String[] utf8 = new String[poolSize];
+    int[] classNameIndex = new int[poolSize];
+    for (int i = 1; i < poolSize; i++) {
+      int tag = input.readUnsignedByte();
+      switch (tag) {
+        case 1:
+          utf8[i] = input.readUTF();
+          break;
+        case 7:
+          classNameIndex[i] = input.readUnsignedShort();
+          break;
+        case 8:
+        case 16:
+        case 19:
+        case 20:
+          input.skipBytes(2);
+          break;
+        case 15:
+          input.skipBytes(3);
+          break;
+        case 3:
+        case 4:
+        case 9:
+        case 10:
+        case 11:
+        case 12:
+        case 17:
+        case 18:
+          input.skipBytes(4);
+          break;
+        case 5:
+        case 6:
+          input.skipBytes(8);
+          // long 和 double 占两个位置
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+    int access = input.readUnsignedShort();
+    int thisClass = input.readUnsignedShort();
+    String name = className(utf8, classNameIndex, thisClass);
+    int superClass = input.readUnsignedShort();
+    String superName = superClass == 0 ? null : className(utf8, classNameIndex, superClass);
+    String[] interfaceNames = new String[input.readUnsignedShort()];
+    for (int i = 0; i < interfaceNames.length; i++) {
+      interfaceNames[i] = className(utf8, classNameIndex, input.readUnsignedShort());
+    }
+    // fields, methods
+    for (int member = 0; member < 2; member++) {
+      int count = input.readUnsignedShort();
+      for (int i = 0; i < count; i++) {
+        input.skipBytes(6);
+        skipAttributes(input);
+      }
+    }
+    Set<String> annotationNames = new HashSet<>();
+    boolean memberClass = false;
+    boolean anonymousClass = false;
+    int attributeCount = input.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      String attributeName = utf8[input.readUnsignedShort()];
+      int length = input.readInt();
+      if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+        int annotationCount = input.readUnsignedShort();
+        for (int j = 0; j < annotationCount; j++) {
+          String descriptor = utf8[input.readUnsignedShort()];
+          annotationNames.add(descriptor.substring(1, descriptor.length() - 1).replace('/', '.'));
+          skipElementValuePairs(input);
+        }
+      } else if ("InnerClasses".equals(attributeName)) {
+        int classCount = input.readUnsignedShort();
+        for (int j = 0; j < classCount; j++) {
+          int innerClass = input.readUnsignedShort();
+          int outerClass = input.readUnsignedShort();
+          int innerName = input.readUnsignedShort();
+          input.skipBytes(2);
+          if (innerClass == thisClass) {
+            memberClass = outerClass != 0;
+            anonymousClass = innerName == 0;
+          }
+        }
+      } else {
+        skipFully(input, length);
+      }
+    }
+    return new ClassFile(name, superName, interfaceNames, access, Collections.unmodifiableSet(annotationNames),
+        memberClass, anonymousClass, lookup);
+  }
+
+  private static String className(String[] utf8, int[] classNameIndex, int index) {
+    return utf8[classNameIndex[index]].replace('/', '.');
+  }
+
+  private static void skipAttributes(DataInputStream input) throws IOException {
+    int count = input.readUnsignedShort();
+    for (int i = 0; i < count; i++) {
+      input.skipBytes(2);
+      skipFully(input, input.readInt());
+    }
+  }
+
+  private static void skipElementValuePairs(DataInputStream input) throws IOException {
+    int pairs = input.readUnsignedShort();
+    for (int i = 0; i < pairs; i++) {
+      input.skipBytes(2);
+      skipElementValue(input);
+    }
+  }
+
+  private static void skipElementValue(DataInputStream input) throws IOException {
+    int tag = input.readUnsignedByte();
+    switch (tag) {
+      case 'e':
+        input.skipBytes(4);
+        break;
+      case '@':
+        input.skipBytes(2);
+        skipElementValuePairs(input);
+        break;
+      case '[':
+        int count = input.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+          skipElementValue(input);
+        }
+        break;
+      default:
+        // 基本类型、String 和 Class 都是一个常量池索引
+        input.skipBytes(2);
+        break;
+    }
+  }
+
+  private static void skipFully(DataInputStream input, int length) throws IOException {
+    int remaining = length;
+    while (remaining > 0) {
+      int skipped = input.skipBytes(remaining);
+      if (skipped <= 0) {
+        throw new IOException("Unexpected end of class file");
+      }
+      remaining -= skipped;
+    }
+  }
+
+}
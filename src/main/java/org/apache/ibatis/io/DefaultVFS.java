@@ -22,12 +22,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
+import java.lang.ref.SoftReference;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 
@@ -45,6 +49,12 @@ public class DefaultVFS extends VFS {
   /** The magic header that indicates a JAR (ZIP) file. */
   private static final byte[] JAR_MAGIC = { 'P', 'K', 3, 4 };
 
+  /**
+   * jar 中文件条目的缓存，扫描多个包时每个 jar 只读取一次。
+   * 使用软引用，内存不足时可回收
+   */
+  private static final ConcurrentMap<String, SoftReference<List<String>>> jarEntriesCache = new ConcurrentHashMap<>();
+
   @Override
   public boolean isValid() {
     return true;
@@ -60,11 +70,10 @@ public class DefaultVFS extends VFS {
       // file is found, then we'll list child resources by reading the JAR.
       URL jarUrl = findJarForResource(url);
       if (jarUrl != null) {
-        is = jarUrl.openStream();
         if (log.isDebugEnabled()) {
           log.debug("Listing " + url);
         }
-        resources = listResources(new JarInputStream(is), path);
+        resources = listResources(getJarEntries(jarUrl), path);
       }
       else {
         List<String> children = new ArrayList<>();
@@ -166,6 +175,67 @@ public class DefaultVFS extends VFS {
     }
   }
 
+  /**
+   * Returns the names of all file entries in the JAR, each with a leading slash. The list is
+   * cached per JAR URL so that scanning several packages reads each JAR only once.
+   *
+   * @param jarUrl The URL of the JAR file
+   * @return The names of the file entries in the JAR
+   * @throws IOException If I/O errors occur
+   */
+  protected List<String> getJarEntries(URL jarUrl) throws IOException {
+    String key = jarUrl.toExternalForm();
+    SoftReference<List<String>> cached = jarEntriesCache.get(key);
+    List<String> entries = cached == null ? null : cached.get();
+    if (entries != null) {
+      return entries;
+    }
+
+    entries = new ArrayList<>();
+    try (JarInputStream jar = new JarInputStream(jarUrl.openStream())) {
+      for (JarEntry entry; (entry = jar.getNextJarEntry()) != null;) {
+        if (!entry.isDirectory()) {
+          // Add leading slash if it's missing
+          String name = entry.getName();
+          entries.add(name.startsWith("/") ? name : "/" + name);
+        }
+      }
+    }
+    entries = Collections.unmodifiableList(entries);
+    jarEntriesCache.put(key, new SoftReference<>(entries));
+    return entries;
+  }
+
+  /**
+   * List the names of the cached JAR entries that begin with the specified path. Each
+   * entry name returned has its leading slash trimmed.
+   *
+   * @param entries The JAR entry names, as returned by {@link #getJarEntries(URL)}
+   * @param path The leading path to match
+   * @return The names of all the matching entries
+   */
+  protected List<String> listResources(List<String> entries, String path) {
+    // Include the leading and trailing slash when matching names
+    if (!path.startsWith("/")) {
+      path = "/" + path;
+    }
+    if (!path.endsWith("/")) {
+      path = path + "/";
+    }
+
+    List<String> resources = new ArrayList<>();
+    for (String name : entries) {
+      if (name.startsWith(path)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Found resource: " + name);
+        }
+        // Trim leading slash
+        resources.add(name.substring(1));
+      }
+    }
+    return resources;
+  }
+
   /**
    * List the names of the entries in the given {@link JarInputStream} that begin with the
    * specified {@code path}. Entries will match with or without a leading slash.
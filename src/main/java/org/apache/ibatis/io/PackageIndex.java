@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 包索引文件
+ *
+ * 构建期在包目录下生成 {@link #INDEX_FILE}，每行一个 class 的资源路径（包括子包）。
+ * {@link ResolverUtil} 扫描包时，若某个 classpath 位置带有索引，则直接使用索引而不再列举该位置的资源。
+ */
+public final class PackageIndex {
+
+  /**
+   * 索引文件名，放在包对应的目录下
+   */
+  public static final String INDEX_FILE = "mybatis-package.idx";
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  private PackageIndex() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * 为编译输出目录中的包生成索引。
+   * 可在构建时通过 exec 插件调用：PackageIndex &lt;classesDir&gt; &lt;package&gt;...
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      throw new IllegalArgumentException("Usage: PackageIndex <classesDir> <package>...");
+    }
+    File classesDir = new File(args[0]);
+    for (int i = 1; i < args.length; i++) {
+      write(classesDir, args[i]);
+    }
+  }
+
+  /**
+   * 生成包的索引文件
+   * @param classesDir 编译输出目录
+   * @param packageName 包名
+   * @return 索引的 class 数
+   * @throws IOException
+   */
+  public static int write(File classesDir, String packageName) throws IOException {
+    String path = packageName.replace('.', '/');
+    File packageDir = new File(classesDir, path);
+    if (!packageDir.isDirectory()) {
+      throw new IOException("Package directory " + packageDir + " does not exist");
+    }
+    List<String> resources = new ArrayList<>();
+    collect(packageDir, path, resources);
+    Collections.sort(resources);
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(packageDir, INDEX_FILE)), StandardCharsets.UTF_8)) {
+      for (String resource : resources) {
+        writer.write(resource);
+        writer.write('\n');
+      }
+    }
+    return resources.size();
+  }
+
+  /**
+   * 读取 classpath 某个位置上包的索引
+   * @param packageUrl 包目录的 URL
+   * @return class 的资源路径，没有索引时返回 null
+   */
+  public static List<String> read(URL packageUrl) {
+    String prefix = packageUrl.toExternalForm();
+    if (!prefix.endsWith("/")) {
+      prefix = prefix + "/";
+    }
+    InputStream in;
+    try {
+      in = new URL(prefix + INDEX_FILE).openStream();
+    } catch (IOException e) {
+      // ignore, index is not required
+      return null;
+    }
+    List<String> resources = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      for (String line; (line = reader.readLine()) != null;) {
+        line = line.trim();
+        if (!line.isEmpty()) {
+          resources.add(line);
+        }
+      }
+    } catch (IOException e) {
+      // 索引损坏时退回到列举资源
+      return null;
+    }
+    return resources;
+  }
+
+  private static void collect(File dir, String path, List<String> resources) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String resource = path + "/" + file.getName();
+      if (file.isDirectory()) {
+        collect(file, resource, resources);
+      } else if (file.getName().endsWith(CLASS_SUFFIX)) {
+        resources.add(resource);
+      }
+    }
+  }
+
+}
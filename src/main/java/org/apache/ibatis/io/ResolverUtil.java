@@ -16,9 +16,15 @@
 package org.apache.ibatis.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.ibatis.logging.Log;
@@ -78,13 +84,26 @@ public class ResolverUtil<T> {
     boolean matches(Class<?> type);
   }
 
+  /**
+   * A Test that can also reject candidates by looking at their class file, so that classes
+   * which can not match are never loaded. Returning true only means the class may match,
+   * {@link #matches(Class)} is still called for the loaded class.
+   * 可以根据 class 文件提前排除的匹配判断接口
+   */
+  public interface ClassFileTest extends Test {
+    /**
+     * Must return false only if the class described by the class file can not match.
+     */
+    boolean matches(ClassFile classFile);
+  }
+
   /**
    * A Test that checks to see if each class is assignable to the provided class. Note
    * that this test will match the parent type itself if it is presented for matching.
    *
    * 判断是否为指定类
    */
-  public static class IsA implements Test {
+  public static class IsA implements ClassFileTest {
     private Class<?> parent;
 
     /** Constructs an IsA test using the supplied Class as the parent class/interface. */
@@ -98,6 +117,11 @@ public class ResolverUtil<T> {
       return type != null && parent.isAssignableFrom(type);
     }
 
+    @Override
+    public boolean matches(ClassFile classFile) {
+      return classFile.maybeSubtypeOf(parent.getName());
+    }
+
     @Override
     public String toString() {
       return "is assignable to " + parent.getSimpleName();
@@ -110,7 +134,7 @@ public class ResolverUtil<T> {
    *
    * 判断类是否有指定🎍
    */
-  public static class AnnotatedWith implements Test {
+  public static class AnnotatedWith implements ClassFileTest {
     private Class<? extends Annotation> annotation;
 
     /** Constructs an AnnotatedWith test for the specified annotation type. */
@@ -124,6 +148,11 @@ public class ResolverUtil<T> {
       return type != null && type.isAnnotationPresent(annotation);
     }
 
+    @Override
+    public boolean matches(ClassFile classFile) {
+      return classFile.maybeAnnotatedWith(annotation.getName(), annotation.isAnnotationPresent(Inherited.class));
+    }
+
     @Override
     public String toString() {
       return "annotated with @" + annotation.getSimpleName();
@@ -140,6 +169,11 @@ public class ResolverUtil<T> {
    */
   private ClassLoader classloader;
 
+  /**
+   * 已读取的 class 文件，按类名缓存，读取失败时为 null
+   */
+  private final Map<String, ClassFile> classFiles = new HashMap<>();
+
   /**
    * Provides access to the classes discovered so far. If no calls have been made to
    * any of the {@code find()} methods, this set will be empty.
@@ -231,7 +265,7 @@ public class ResolverUtil<T> {
     String path = getPackagePath(packageName);
 
     try {
-      List<String> children = VFS.getInstance().list(path);
+      List<String> children = listClasses(path);
       for (String child : children) {
         if (child.endsWith(".class")) {
           addIfMatching(test, child);
@@ -244,6 +278,23 @@ public class ResolverUtil<T> {
     return this;
   }
 
+  /**
+   * Lists the resources of the package in every location of the class path. Locations that
+   * contain a {@link PackageIndex} are not listed, the index is used instead.
+   * 列举包下的资源，有索引的位置直接读取索引
+   *
+   * @param path the package path
+   */
+  protected List<String> listClasses(String path) throws IOException {
+    VFS vfs = VFS.getInstance();
+    List<String> resources = new ArrayList<>();
+    for (URL url : VFS.getResources(path)) {
+      List<String> indexed = PackageIndex.read(url);
+      resources.addAll(indexed != null ? indexed : vfs.list(url, path));
+    }
+    return resources;
+  }
+
   /**
    * Converts a Java package name to a path that can be looked up with a call to
    * {@link ClassLoader#getResources(String)}.
@@ -272,6 +323,14 @@ public class ResolverUtil<T> {
         log.debug("Checking to see if class " + externalName + " matches criteria [" + test + "]");
       }
 
+      // 先检查 class 文件，不可能匹配的类无需加载
+      if (test instanceof ClassFileTest) {
+        ClassFile classFile = getClassFile(externalName);
+        if (classFile != null && !((ClassFileTest) test).matches(classFile)) {
+          return;
+        }
+      }
+
       Class<?> type = loader.loadClass(externalName);
       if (test.matches(type)) {
         matches.add((Class<T>) type);
@@ -281,4 +340,36 @@ public class ResolverUtil<T> {
           t.getClass().getName() + " with message: " + t.getMessage());
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Reads the class file of the named class without loading it. Results are cached so that
+   * common super types are read only once per scan.
+   * 读取 class 文件，无法读取时返回 null
+   *
+   * @param className the fully qualified name of a class
+   */
+  protected ClassFile getClassFile(String className) {
+    if (classFiles.containsKey(className)) {
+      return classFiles.get(className);
+    }
+    ClassFile classFile = null;
+    InputStream in = getClassLoader().getResourceAsStream(className.replace('.', '/') + ".class");
+    if (in != null) {
+      try {
+        classFile = ClassFile.read(in, this::getClassFile);
+      } catch (IOException e) {
+        if (log.isDebugEnabled()) {
+          log.debug("Could not read class file of " + className + ": " + e.getMessage());
+        }
+      } finally {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+    classFiles.put(className, classFile);
+    return classFile;
+  }
+}
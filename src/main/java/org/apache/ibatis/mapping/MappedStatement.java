@@ -18,6 +18,8 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -26,6 +28,7 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.ParameterBindingPlan;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -58,6 +61,11 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private int bulkInsertSize;
+  /**
+   * 参数类型到参数绑定计划的映射
+   */
+  private final ConcurrentMap<Class<?>, ParameterBindingPlan> parameterBindingPlans = new ConcurrentHashMap<>();
 
   MappedStatement() {
     // constructor disabled
@@ -175,6 +183,11 @@ public final class MappedStatement {
       return this;
     }
 
+    public Builder bulkInsertSize(int bulkInsertSize) {
+      mappedStatement.bulkInsertSize = bulkInsertSize;
+      return this;
+    }
+
     /** @deprecated Use {@link #resultSets} */
     @Deprecated
     public Builder resulSets(String resultSet) {
@@ -284,6 +297,13 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * 多行插入时每条语句包含的最大行数，0 表示不展开
+   */
+  public int getBulkInsertSize() {
+    return bulkInsertSize;
+  }
+
   /** @deprecated Use {@link #getResultSets()} */
   @Deprecated
   public String[] getResulSets() {
@@ -311,6 +331,19 @@ public final class MappedStatement {
     return boundSql;
   }
 
+  /**
+   * 获得参数类型对应的绑定计划，首次使用时创建
+   * @param parameterType
+   * @return
+   */
+  public ParameterBindingPlan getParameterBindingPlan(Class<?> parameterType) {
+    ParameterBindingPlan plan = parameterBindingPlans.get(parameterType);
+    if (plan == null) {
+      plan = parameterBindingPlans.computeIfAbsent(parameterType, type -> new ParameterBindingPlan(configuration, type));
+    }
+    return plan;
+  }
+
   private static String[] delimitedStringToArray(String in) {
     if (in == null || in.trim().length() == 0) {
       return null;
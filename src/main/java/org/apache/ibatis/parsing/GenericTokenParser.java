@@ -43,6 +43,9 @@ public class GenericTokenParser {
 
   /**
    * token解析
+   *
+   * 单次扫描，直接在原字符串上定位，不复制字符数组；
+   * 没有 token 的文本原样返回同一个实例
    * @param text
    * @return
    */
@@ -53,63 +56,67 @@ public class GenericTokenParser {
     }
     // search open token
     // 如果不包含打开标志，不替换
-    int start = text.indexOf(openToken, 0);
+    int start = text.indexOf(openToken);
     if (start == -1) {
       return text;
     }
 
-    // 否则将text转化为数组
-    char[] src = text.toCharArray();
+    final int length = text.length();
     //偏移量
     int offset = 0;
-    //返回值
-    final StringBuilder builder = new StringBuilder();
-    //表达式
+    //返回值，按原文长度预分配
+    final StringBuilder builder = new StringBuilder(length);
+    //表达式，只有存在转义的关闭标志时才需要拼接
     StringBuilder expression = null;
 
     //如果有多个，循环替换
     while (start > -1) {
-      //如果包含转移字符
-      if (start > 0 && src[start - 1] == '\\') {
+      //如果包含转义字符
+      if (start > 0 && text.charAt(start - 1) == '\\') {
         // this open token is escaped. remove the backslash and continue.
         // 识别转义标志，不要误判
-        builder.append(src, offset, start - offset - 1).append(openToken);
+        builder.append(text, offset, start - 1).append(openToken);
         // 偏移量+打开标志长度
         offset = start + openToken.length();
       } else {
         // found open token. let's search close token.
         // 有打开标志，寻找关闭标志
 
-        // 初始化表达式
-        if (expression == null) {
-          expression = new StringBuilder();
-        } else {
-          expression.setLength(0);
-        }
         // 将不需要替换的字符原值复制
-        builder.append(src, offset, start - offset);
+        builder.append(text, offset, start);
         // 偏移量+打开标志长度
         offset = start + openToken.length();
 
         // 寻找关闭标志
         int end = text.indexOf(closeToken, offset);
+        String content = null;
+        boolean escaped = false;
 
         // 如果存在结束标志，则清除转义字符
         while (end > -1) {
-          //去除转移字符
-          if (end > offset && src[end - 1] == '\\') {
+          //去除转义字符
+          if (end > offset && text.charAt(end - 1) == '\\') {
             // this close token is escaped. remove the backslash and continue.
+            if (expression == null) {
+              expression = new StringBuilder();
+            } else if (!escaped) {
+              expression.setLength(0);
+            }
+            escaped = true;
             // 表达式添加变量字符
-            expression.append(src, offset, end - offset - 1).append(closeToken);
+            expression.append(text, offset, end - 1).append(closeToken);
             // 偏移量+关闭标志长度
             offset = end + closeToken.length();
             // 重新寻找结束标识
             end = text.indexOf(closeToken, offset);
           } else {
-            // 表达式添加
-            expression.append(src, offset, end - offset);
-            // 偏移量+关闭标志长度
-            offset = end + closeToken.length();
+            // 没有转义时直接截取，不经过 StringBuilder
+            if (escaped) {
+              expression.append(text, offset, end);
+              content = expression.toString();
+            } else {
+              content = text.substring(offset, end);
+            }
             break;
           }
         }
@@ -117,12 +124,12 @@ public class GenericTokenParser {
         if (end == -1) {
           // close token was not found.
           // 没有找到结束标志，直接添加
-          builder.append(src, start, src.length - start);
+          builder.append(text, start, length);
           //标志为设置到末尾
-          offset = src.length;
+          offset = length;
         } else {
           //否则添加替换的值
-          builder.append(handler.handleToken(expression.toString()));
+          builder.append(handler.handleToken(content));
           //标志为设置为结束位置+关闭标志
           offset = end + closeToken.length();
         }
@@ -131,9 +138,8 @@ public class GenericTokenParser {
       start = text.indexOf(openToken, offset);
     }
 
-
-    if (offset < src.length) {
-      builder.append(src, offset, src.length - offset);
+    if (offset < length) {
+      builder.append(text, offset, length);
     }
     return builder.toString();
   }
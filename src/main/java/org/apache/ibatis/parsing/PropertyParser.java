@@ -57,6 +57,10 @@ public class PropertyParser {
    * @return
    */
   public static String parse(String string, Properties variables) {
+    //不包含占位符时直接返回，避免创建处理器和解析器
+    if (string != null && string.indexOf("${") == -1) {
+      return string;
+    }
     //创建VariableTokenHandler
     VariableTokenHandler handler = new VariableTokenHandler(variables);
     //创建GenericTokenParser
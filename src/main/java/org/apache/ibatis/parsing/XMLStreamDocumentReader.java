@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * 基于 StAX 的 Document 读取器
+ *
+ * 不做 DTD 校验，直接由事件流构建 Document，节点结构与 {@link XPathParser} 的非校验解析一致：
+ * 忽略注释，保留空白文本和 CDATA，相邻文本合并为一个节点。
+ * DTD 只用于展开实体，通过 EntityResolver 从本地加载。
+ */
+public final class XMLStreamDocumentReader {
+
+  private XMLStreamDocumentReader() {
+    // Prevent Instantiation of Static Class
+  }
+
+  public static Document read(InputStream inputStream, EntityResolver entityResolver) {
+    try {
+      XMLStreamReader reader = createInputFactory(entityResolver).createXMLStreamReader(inputStream);
+      return read(reader);
+    } catch (XMLStreamException e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+  }
+
+  public static Document read(Reader characterStream, EntityResolver entityResolver) {
+    try {
+      XMLStreamReader reader = createInputFactory(entityResolver).createXMLStreamReader(characterStream);
+      return read(reader);
+    } catch (XMLStreamException e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+  }
+
+  private static Document read(XMLStreamReader reader) throws XMLStreamException {
+    Document document;
+    try {
+      document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    } catch (Exception e) {
+      throw new BuilderException("Error creating document instance.  Cause: " + e, e);
+    }
+    try {
+      Node current = document;
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            Element element = document.createElement(reader.getLocalName());
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+            current.appendChild(element);
+            current = element;
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            current = current.getParentNode();
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+            if (current != document) {
+              // 解析器可能把一段文本拆成多个事件，与 DOM 一样合并为一个文本节点
+              Node last = current.getLastChild();
+              if (last != null && last.getNodeType() == Node.TEXT_NODE) {
+                ((Text) last).appendData(reader.getText());
+              } else {
+                current.appendChild(document.createTextNode(reader.getText()));
+              }
+            }
+            break;
+          case XMLStreamConstants.CDATA:
+            current.appendChild(document.createCDATASection(reader.getText()));
+            break;
+          default:
+            // 注释、处理指令、DTD 等忽略
+            break;
+        }
+      }
+      return document;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static XMLInputFactory createInputFactory(final EntityResolver entityResolver) {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+    if (entityResolver != null) {
+      factory.setXMLResolver(new XMLResolver() {
+        @Override
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) throws XMLStreamException {
+          try {
+            InputSource source = entityResolver.resolveEntity(publicID, systemID);
+            return source == null ? null : source.getByteStream();
+          } catch (Exception e) {
+            throw new XMLStreamException("Error resolving entity " + systemID, e);
+          }
+        }
+      });
+    }
+    return factory;
+  }
+
+}
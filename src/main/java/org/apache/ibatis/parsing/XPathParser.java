@@ -220,6 +220,14 @@ public class XPathParser {
    */
   public List<XNode> evalNodes(Object root, String expression) {
     List<XNode> xnodes = new ArrayList<>();
+    //简单路径直接遍历子节点
+    List<Node> elements = evaluateSimplePath(expression, root, false);
+    if (elements != null) {
+      for (Node element : elements) {
+        xnodes.add(new XNode(this, element, variables));
+      }
+      return xnodes;
+    }
     //获取node数组
     NodeList nodes = (NodeList) evaluate(expression, root, XPathConstants.NODESET);
     //封装list
@@ -234,7 +242,13 @@ public class XPathParser {
   }
 
   public XNode evalNode(Object root, String expression) {
-    Node node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    Node node;
+    List<Node> elements = evaluateSimplePath(expression, root, true);
+    if (elements != null) {
+      node = elements.isEmpty() ? null : elements.get(0);
+    } else {
+      node = (Node) evaluate(expression, root, XPathConstants.NODE);
+    }
     if (node == null) {
       return null;
     }
@@ -251,12 +265,100 @@ public class XPathParser {
    */
   private Object evaluate(String expression, Object root, QName returnType) {
     try {
+      if (xpath == null) {
+        // 创建XPathFactory对象，只有复杂表达式才需要
+        xpath = XPathFactory.newInstance().newXPath();
+      }
       return xpath.evaluate(expression, root, returnType);
     } catch (Exception e) {
       throw new BuilderException("Error evaluating XPath.  Cause: " + e, e);
     }
   }
 
+  /**
+   * 不经过 XPath 求值简单路径：元素名或 * 组成的路径，如 /mapper/resultMap；
+   * 或单层元素名的并集，如 select|insert|update|delete
+   *
+   * @param expression 表达式
+   * @param root 指定节点
+   * @param first 是否只需要第一个节点
+   * @return 元素列表（文档顺序），不是简单路径时返回 null
+   */
+  private List<Node> evaluateSimplePath(String expression, Object root, boolean first) {
+    if (!(root instanceof Node) || expression.isEmpty() || !isSimplePath(expression)) {
+      return null;
+    }
+    List<Node> current = new ArrayList<>(1);
+    String path = expression;
+    if (path.charAt(0) == '/') {
+      //绝对路径从 document 开始
+      Node node = (Node) root;
+      current.add(node.getNodeType() == Node.DOCUMENT_NODE ? node : node.getOwnerDocument());
+      path = path.substring(1);
+    } else {
+      current.add((Node) root);
+    }
+    String[] steps = path.split("/", -1);
+    String[] alternatives = path.indexOf('|') == -1 ? null : path.split("\\|", -1);
+    if (alternatives != null) {
+      //并集只支持单层相对路径
+      if (steps.length != 1 || expression.charAt(0) == '/') {
+        return null;
+      }
+      steps = alternatives;
+    }
+    for (String step : steps) {
+      if (step.isEmpty()) {
+        return null;
+      }
+    }
+    if (alternatives != null) {
+      return matchChildren(current, alternatives, first);
+    }
+    for (int i = 0; i < steps.length; i++) {
+      current = matchChildren(current, new String[] {steps[i]}, first && i == steps.length - 1);
+      if (current.isEmpty()) {
+        break;
+      }
+    }
+    return current;
+  }
+
+  private boolean isSimplePath(String expression) {
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '/' && c != '|' && c != '*' && c != '-' && c != '_' && c != '.') {
+        return false;
+      }
+    }
+    // "//"、"." 和 ".." 仍由 XPath 处理
+    return !expression.contains("//") && !expression.startsWith(".") && !expression.contains("/.");
+  }
+
+  private List<Node> matchChildren(List<Node> parents, String[] names, boolean first) {
+    List<Node> matches = new ArrayList<>();
+    for (Node parent : parents) {
+      for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (child.getNodeType() == Node.ELEMENT_NODE && matchesAny(child.getNodeName(), names)) {
+          matches.add(child);
+          if (first) {
+            return matches;
+          }
+        }
+      }
+    }
+    return matches;
+  }
+
+  private boolean matchesAny(String name, String[] names) {
+    for (String candidate : names) {
+      if ("*".equals(candidate) || candidate.equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * 创建document对象
    * @param inputSource
@@ -313,9 +415,6 @@ public class XPathParser {
     this.validation = validation;
     this.entityResolver = entityResolver;
     this.variables = variables;
-    // 创建XPathFactory对象
-    XPathFactory factory = XPathFactory.newInstance();
-    this.xpath = factory.newXPath();
   }
 
 }
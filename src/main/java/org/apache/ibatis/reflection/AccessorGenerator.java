@@ -0,0 +1,245 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.ibatis.io.ResolverUtil;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+
+/**
+ * {@link GeneratedAccessor} 的源码生成器
+ *
+ * 构建期对编译好的模型类生成访问器源码，再与项目一起编译，
+ * 运行期由 {@link AccessorReflectorFactory} 加载。
+ * 属性和类型由 {@link Reflector} 解析，因此与反射的结果一致；
+ * 私有成员等无法直接访问的属性不会生成，运行期仍通过反射访问。
+ */
+public final class AccessorGenerator {
+
+  private AccessorGenerator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * 为包下的模型类生成访问器源码。
+   * 可在构建时通过 exec 插件调用：AccessorGenerator &lt;sourceDir&gt; &lt;package&gt;...
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      throw new IllegalArgumentException("Usage: AccessorGenerator <sourceDir> <package>...");
+    }
+    File sourceDir = new File(args[0]);
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+    resolverUtil.findImplementations(Object.class, Arrays.copyOfRange(args, 1, args.length));
+    for (Class<?> type : resolverUtil.getClasses()) {
+      write(sourceDir, type);
+    }
+  }
+
+  /**
+   * 生成访问器源码文件
+   * @param sourceDir 源码输出目录
+   * @param type 模型类
+   * @return 是否生成
+   * @throws IOException
+   */
+  public static boolean write(File sourceDir, Class<?> type) throws IOException {
+    String source = generate(type);
+    if (source == null) {
+      return false;
+    }
+    File dir = new File(sourceDir, type.getPackage().getName().replace('.', '/'));
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create directory " + dir);
+    }
+    File file = new File(dir, type.getSimpleName() + AccessorReflectorFactory.ACCESSOR_SUFFIX + ".java");
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      writer.write(source);
+    }
+    return true;
+  }
+
+  /**
+   * 生成访问器源码
+   * @param type 模型类
+   * @return 不支持的类（接口、枚举、内部类、默认包下的类、访问器本身等）返回 null
+   */
+  public static String generate(Class<?> type) {
+    if (!isSupported(type)) {
+      return null;
+    }
+    String packageName = type.getPackage().getName();
+    String typeName = type.getName();
+    Reflector reflector = new Reflector(type);
+    StringBuilder body = new StringBuilder();
+    boolean complete = true;
+
+    String[] getters = reflector.getGetablePropertyNames().clone();
+    Arrays.sort(getters);
+    for (String property : getters) {
+      Invoker invoker = reflector.getGetInvoker(property);
+      Class<?> propertyType = reflector.getGetterType(property);
+      String expression = null;
+      if (invoker instanceof MethodInvoker) {
+        Method method = ((MethodInvoker) invoker).getMethod();
+        if (isAccessible(method, packageName)) {
+          expression = "((" + typeName + ") target)." + method.getName() + "()";
+        }
+      } else if (invoker instanceof GetFieldInvoker) {
+        Field field = ((GetFieldInvoker) invoker).getField();
+        if (isAccessible(field, packageName)) {
+          expression = "((" + typeName + ") target)." + field.getName();
+        }
+      }
+      if (expression == null || !isAccessible(propertyType, packageName)) {
+        complete = false;
+        continue;
+      }
+      body.append("    addGetter(\"").append(property).append("\", ").append(classLiteral(propertyType))
+          .append(", target -> ").append(expression).append(");\n");
+    }
+
+    String[] setters = reflector.getSetablePropertyNames().clone();
+    Arrays.sort(setters);
+    for (String property : setters) {
+      Invoker invoker = reflector.getSetInvoker(property);
+      Class<?> propertyType = reflector.getSetterType(property);
+      String statement = null;
+      if (invoker instanceof MethodInvoker) {
+        Method method = ((MethodInvoker) invoker).getMethod();
+        Class<?> parameterType = method.getParameterTypes()[0];
+        if (isAccessible(method, packageName) && isAccessible(parameterType, packageName)) {
+          statement = "((" + typeName + ") target)." + method.getName() + "(" + cast(parameterType) + "value)";
+        }
+      } else if (invoker instanceof SetFieldInvoker) {
+        Field field = ((SetFieldInvoker) invoker).getField();
+        // 反射可以修改 final 字段，源码不行
+        if (isAccessible(field, packageName) && !Modifier.isFinal(field.getModifiers())
+            && isAccessible(field.getType(), packageName)) {
+          statement = "((" + typeName + ") target)." + field.getName() + " = " + cast(field.getType()) + "value";
+        }
+      }
+      if (statement == null || !isAccessible(propertyType, packageName)) {
+        complete = false;
+        continue;
+      }
+      body.append("    addSetter(\"").append(property).append("\", ").append(classLiteral(propertyType))
+          .append(", (target, value) -> ").append(statement).append(");\n");
+    }
+
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(packageName).append(";\n\n");
+    source.append("/**\n * Generated by ").append(AccessorGenerator.class.getName()).append(", do not edit.\n */\n");
+    source.append("public class ").append(type.getSimpleName()).append(AccessorReflectorFactory.ACCESSOR_SUFFIX)
+        .append(" extends ").append(GeneratedAccessor.class.getName()).append(" {\n\n");
+    source.append("  @SuppressWarnings({\"rawtypes\", \"unchecked\", \"static-access\"})\n");
+    source.append("  public ").append(type.getSimpleName()).append(AccessorReflectorFactory.ACCESSOR_SUFFIX).append("() {\n");
+    source.append("    super(").append(typeName).append(".class, ").append(complete).append(");\n");
+    source.append(body);
+    source.append("  }\n\n}\n");
+    return source.toString();
+  }
+
+  private static boolean isSupported(Class<?> type) {
+    return !type.isInterface() && !type.isEnum() && !type.isArray() && !type.isPrimitive()
+        && !type.isMemberClass() && !type.isLocalClass() && !type.isAnonymousClass()
+        && type.getPackage() != null && !type.getPackage().getName().isEmpty()
+        && !Modifier.isPrivate(type.getModifiers())
+        && !GeneratedAccessor.class.isAssignableFrom(type);
+  }
+
+  /**
+   * 生成的类与目标类在同一个包下，能否直接访问成员
+   */
+  private static boolean isAccessible(Member member, String packageName) {
+    int modifiers = member.getModifiers();
+    if (Modifier.isPublic(modifiers)) {
+      return isAccessible(member.getDeclaringClass(), packageName);
+    }
+    // protected 和包私有成员只有在同一个包中声明时才能访问
+    return !Modifier.isPrivate(modifiers) && packageName.equals(packageName(member.getDeclaringClass()));
+  }
+
+  private static boolean isAccessible(Class<?> type, String packageName) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    if (type.isLocalClass() || type.isAnonymousClass()) {
+      return false;
+    }
+    int modifiers = type.getModifiers();
+    boolean accessible = Modifier.isPublic(modifiers)
+        || (!Modifier.isPrivate(modifiers) && packageName.equals(packageName(type)));
+    return accessible && (type.getEnclosingClass() == null || isAccessible(type.getEnclosingClass(), packageName));
+  }
+
+  private static String packageName(Class<?> type) {
+    String name = type.getName();
+    int index = name.lastIndexOf('.');
+    return index == -1 ? "" : name.substring(0, index);
+  }
+
+  private static String classLiteral(Class<?> type) {
+    return type.getCanonicalName() + ".class";
+  }
+
+  private static String cast(Class<?> type) {
+    if (type == Object.class) {
+      return "";
+    }
+    // 基本类型先转换为包装类型，再自动拆箱
+    return "(" + (type.isPrimitive() ? wrapperName(type) : type.getCanonicalName()) + ") ";
+  }
+
+  private static String wrapperName(Class<?> primitive) {
+    if (primitive == int.class) {
+      return Integer.class.getName();
+    } else if (primitive == long.class) {
+      return Long.class.getName();
+    } else if (primitive == boolean.class) {
+      return Boolean.class.getName();
+    } else if (primitive == double.class) {
+      return Double.class.getName();
+    } else if (primitive == float.class) {
+      return Float.class.getName();
+    } else if (primitive == short.class) {
+      return Short.class.getName();
+    } else if (primitive == byte.class) {
+      return Byte.class.getName();
+    } else {
+      return Character.class.getName();
+    }
+  }
+}
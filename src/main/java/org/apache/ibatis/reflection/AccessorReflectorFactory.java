@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+/**
+ * 优先使用构建期生成的访问器的 ReflectorFactory
+ *
+ * 对每个类查找同一包下名为 类名 + {@link #ACCESSOR_SUFFIX} 的 {@link GeneratedAccessor}，
+ * 找不到时退回到反射。可通过 &lt;reflectorFactory type="..."/&gt; 配置。
+ */
+public class AccessorReflectorFactory extends DefaultReflectorFactory {
+
+  /**
+   * 生成的访问器类名的后缀
+   */
+  public static final String ACCESSOR_SUFFIX = "_MyBatisAccessor";
+
+  @Override
+  protected Reflector createReflector(Class<?> type) {
+    GeneratedAccessor accessor = findAccessor(type);
+    return accessor == null ? super.createReflector(type) : new Reflector(accessor);
+  }
+
+  /**
+   * 查找并创建类对应的访问器
+   * @param type
+   * @return 没有生成访问器时返回 null
+   */
+  protected GeneratedAccessor findAccessor(Class<?> type) {
+    if (type.isPrimitive() || type.isArray() || type.getClassLoader() == null) {
+      return null;
+    }
+    Class<?> accessorType = loadAccessorType(type.getName() + ACCESSOR_SUFFIX, type.getClassLoader());
+    if (accessorType == null || !GeneratedAccessor.class.isAssignableFrom(accessorType)) {
+      return null;
+    }
+    GeneratedAccessor accessor;
+    try {
+      accessor = (GeneratedAccessor) accessorType.newInstance();
+    } catch (Exception e) {
+      throw new ReflectionException("Error instantiating accessor " + accessorType.getName() + ". Cause: " + e, e);
+    }
+    return accessor.getType() == type ? accessor : null;
+  }
+
+  private Class<?> loadAccessorType(String name, ClassLoader classLoader) {
+    try {
+      return Class.forName(name, true, classLoader);
+    } catch (ClassNotFoundException e) {
+      // 访问器也可能由上下文类加载器加载
+      ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+      if (contextClassLoader == null || contextClassLoader == classLoader) {
+        return null;
+      }
+      try {
+        return Class.forName(name, true, contextClassLoader);
+      } catch (ClassNotFoundException ignored) {
+        return null;
+      }
+    }
+  }
+}
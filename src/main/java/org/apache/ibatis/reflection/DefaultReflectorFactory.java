@@ -24,6 +24,11 @@ public class DefaultReflectorFactory implements ReflectorFactory {
      */
     private boolean classCacheEnabled = true;
 
+    /**
+     * 是否使用 LambdaMetafactory/MethodHandle 代替反射调用
+     */
+    private boolean lambdaInvokers;
+
     /**
      * 反射map
      */
@@ -42,16 +47,35 @@ public class DefaultReflectorFactory implements ReflectorFactory {
         this.classCacheEnabled = classCacheEnabled;
     }
 
+    public boolean isLambdaInvokers() {
+        return lambdaInvokers;
+    }
+
+    public void setLambdaInvokers(boolean lambdaInvokers) {
+        this.lambdaInvokers = lambdaInvokers;
+        // 已缓存的反射器使用的是之前的调用方式
+        reflectorMap.clear();
+    }
+
     @Override
     public Reflector findForClass(Class<?> type) {
         //如果缓存从缓存中返回，否则直接创建
         if (classCacheEnabled) {
             // synchronized (type) removed see issue #461
             // 如果缓存没有直接创建
-            return reflectorMap.computeIfAbsent(type, Reflector::new);
+            return reflectorMap.computeIfAbsent(type, this::createReflector);
         } else {
-            return new Reflector(type);
+            return createReflector(type);
         }
     }
 
+    /**
+     * 创建反射器，子类可以覆盖以提供其他实现
+     * @param type
+     * @return
+     */
+    protected Reflector createReflector(Class<?> type) {
+        return new Reflector(type, lambdaInvokers);
+    }
+
 }
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaGetInvoker;
+import org.apache.ibatis.reflection.invoker.LambdaSetInvoker;
+
+/**
+ * 构建期生成的属性访问器的基类
+ *
+ * 子类由 {@link AccessorGenerator} 生成，与目标类在同一个包下，直接调用 getter/setter 或访问字段。
+ * {@link AccessorReflectorFactory} 找到访问器时，{@link Reflector} 使用其中的 Invoker 代替反射调用。
+ */
+public abstract class GeneratedAccessor {
+
+  private final Class<?> type;
+
+  /**
+   * 是否包含了目标类的所有属性。为 true 时 {@link Reflector} 不再通过反射查找属性
+   */
+  private final boolean complete;
+
+  private final Map<String, Invoker> getters = new HashMap<>();
+  private final Map<String, Class<?>> getterTypes = new HashMap<>();
+  private final Map<String, Invoker> setters = new HashMap<>();
+  private final Map<String, Class<?>> setterTypes = new HashMap<>();
+
+  protected GeneratedAccessor(Class<?> type, boolean complete) {
+    this.type = type;
+    this.complete = complete;
+  }
+
+  protected final void addGetter(String property, Class<?> propertyType, Function<Object, Object> getter) {
+    getters.put(property, new LambdaGetInvoker(getter, propertyType));
+    getterTypes.put(property, propertyType);
+  }
+
+  protected final void addSetter(String property, Class<?> propertyType, BiConsumer<Object, Object> setter) {
+    setters.put(property, new LambdaSetInvoker(setter, propertyType));
+    setterTypes.put(property, propertyType);
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public boolean isComplete() {
+    return complete;
+  }
+
+  Map<String, Invoker> getGetters() {
+    return Collections.unmodifiableMap(getters);
+  }
+
+  Map<String, Class<?>> getGetterTypes() {
+    return Collections.unmodifiableMap(getterTypes);
+  }
+
+  Map<String, Invoker> getSetters() {
+    return Collections.unmodifiableMap(setters);
+  }
+
+  Map<String, Class<?>> getSetterTypes() {
+    return Collections.unmodifiableMap(setterTypes);
+  }
+}
@@ -81,10 +81,13 @@ public class MetaClass {
    * @return
    */
   public String findProperty(String name) {
-    // 构建属性
-    StringBuilder prop = buildProperty(name, new StringBuilder());
-    // 判断是否能找到属性
-    return prop.length() > 0 ? prop.toString() : null;
+    // 结果只与类型有关，缓存在 Reflector 中
+    return reflector.findProperty(name, key -> {
+      // 构建属性
+      StringBuilder prop = buildProperty(key, new StringBuilder());
+      // 判断是否能找到属性
+      return prop.length() > 0 ? prop.toString() : null;
+    });
   }
 
   /**
@@ -164,6 +167,19 @@ public class MetaClass {
   }
 
   private Type getGenericGetterType(String propertyName) {
+    Type genericType = getGenericGetterType(reflector, propertyName);
+    if (genericType == null && !isReflective(reflector.getGetInvoker(propertyName))) {
+      // 生成的访问器不持有 Method/Field，通过反射解析泛型
+      genericType = getGenericGetterType(reflector.getReflectiveReflector(), propertyName);
+    }
+    return genericType;
+  }
+
+  private boolean isReflective(Invoker invoker) {
+    return invoker instanceof MethodInvoker || invoker instanceof GetFieldInvoker;
+  }
+
+  private static Type getGenericGetterType(Reflector reflector, String propertyName) {
     try {
       Invoker invoker = reflector.getGetInvoker(propertyName);
       if (invoker instanceof MethodInvoker) {
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -53,6 +53,10 @@ public class MetaObject {
    * 反射器工厂
    */
   private final ReflectorFactory reflectorFactory;
+  /**
+   * 是否为 MyBatis 自带的 BeanWrapper 或 MapWrapper，可以使用编译后的属性表达式
+   */
+  private final boolean plain;
 
   private MetaObject(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory) {
     this.originalObject = object;
@@ -62,14 +66,20 @@ public class MetaObject {
 
     if (object instanceof ObjectWrapper) {
       this.objectWrapper = (ObjectWrapper) object;
-    } else if (objectWrapperFactory.hasWrapperFor(object)) {
+      this.plain = false;
+    } else if (objectWrapperFactory.hasWrapperFor(object, reflectorFactory)) {
       this.objectWrapper = objectWrapperFactory.getWrapperFor(this, object);
+      this.plain = false;
     } else if (object instanceof Map) {
       this.objectWrapper = new MapWrapper(this, (Map) object);
+      // 编译后的属性表达式缓存在 Reflector 中，不缓存 Reflector 时不使用
+      this.plain = reflectorFactory.isClassCacheEnabled();
     } else if (object instanceof Collection) {
       this.objectWrapper = new CollectionWrapper(this, (Collection) object);
+      this.plain = false;
     } else {
       this.objectWrapper = new BeanWrapper(this, object);
+      this.plain = reflectorFactory.isClassCacheEnabled();
     }
   }
 
@@ -126,7 +136,16 @@ public class MetaObject {
   }
 
   public Object getValue(String name) {
-    PropertyTokenizer prop = new PropertyTokenizer(name);
+    if (plain) {
+      return getPropertyPath(name).getValue(this);
+    }
+    return getValue(new PropertyTokenizer(name));
+  }
+
+  /**
+   * 逐级解析属性，{@link PropertyPath} 无法处理时也从这里继续
+   */
+  Object getValue(PropertyTokenizer prop) {
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
       if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
@@ -140,7 +159,14 @@ public class MetaObject {
   }
 
   public void setValue(String name, Object value) {
-    PropertyTokenizer prop = new PropertyTokenizer(name);
+    if (plain) {
+      getPropertyPath(name).setValue(this, value);
+    } else {
+      setValue(name, new PropertyTokenizer(name), value);
+    }
+  }
+
+  void setValue(String name, PropertyTokenizer prop, Object value) {
     if (prop.hasNext()) {
       MetaObject metaValue = metaObjectForProperty(prop.getIndexedName());
       if (metaValue == SystemMetaObject.NULL_META_OBJECT) {
@@ -157,6 +183,10 @@ public class MetaObject {
     }
   }
 
+  private PropertyPath getPropertyPath(String name) {
+    return reflectorFactory.findForClass(originalObject.getClass()).getPropertyPath(name);
+  }
+
   public MetaObject metaObjectForProperty(String name) {
     Object value = getValue(name);
     return MetaObject.forObject(value, objectFactory, objectWrapperFactory, reflectorFactory);
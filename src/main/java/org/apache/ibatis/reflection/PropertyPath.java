@@ -0,0 +1,286 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+
+/**
+ * 编译后的属性表达式
+ *
+ * 表达式只解析一次，按 . 拆分为若干步，每一步缓存最近一次解析到的 Invoker。
+ * 对普通 JavaBean 和 Map 直接调用 Invoker 或 Map 取值，不再逐级创建 MetaObject；
+ * 遇到集合、自定义 ObjectWrapper 等情况时，从该步开始交给 {@link MetaObject} 处理，结果与其一致。
+ * 由 {@link Reflector} 按根对象的类型缓存。
+ */
+final class PropertyPath {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  /**
+   * 无法直接处理，需要交给 MetaObject
+   */
+  private static final Object UNRESOLVED = new Object();
+
+  private final Step[] steps;
+
+  PropertyPath(String expression) {
+    List<Step> list = new ArrayList<>();
+    PropertyTokenizer prop = new PropertyTokenizer(expression);
+    String remaining = expression;
+    while (true) {
+      list.add(new Step(prop, remaining));
+      if (!prop.hasNext()) {
+        break;
+      }
+      remaining = prop.getChildren();
+      prop = prop.next();
+    }
+    this.steps = list.toArray(new Step[list.size()]);
+  }
+
+  Object getValue(MetaObject root) {
+    Object current = root.getOriginalObject();
+    MetaObject owner = root;
+    for (int i = 0; i < steps.length; i++) {
+      Step step = steps[i];
+      if (i > 0) {
+        if (current == null) {
+          return null;
+        }
+        if (!isPlain(current, root)) {
+          return MetaObject.forObject(current, root.getObjectFactory(), root.getObjectWrapperFactory(), root.getReflectorFactory())
+              .getValue(step.expression);
+        }
+        owner = null;
+      }
+      Object value = step.get(current, root.getReflectorFactory());
+      if (value == UNRESOLVED) {
+        if (owner == null) {
+          owner = MetaObject.forObject(current, root.getObjectFactory(), root.getObjectWrapperFactory(), root.getReflectorFactory());
+        }
+        return owner.getValue(step.prop);
+      }
+      current = value;
+    }
+    return current;
+  }
+
+  void setValue(MetaObject root, Object value) {
+    Object current = root.getOriginalObject();
+    MetaObject owner = root;
+    for (int i = 0; i < steps.length; i++) {
+      Step step = steps[i];
+      if (i > 0) {
+        if (!isPlain(current, root)) {
+          MetaObject.forObject(current, root.getObjectFactory(), root.getObjectWrapperFactory(), root.getReflectorFactory())
+              .setValue(step.expression, value);
+          return;
+        }
+        owner = null;
+      }
+      boolean last = i == steps.length - 1;
+      Object next = last ? (step.set(current, value, root.getReflectorFactory()) ? null : UNRESOLVED)
+          : step.get(current, root.getReflectorFactory());
+      if (next == UNRESOLVED || (!last && next == null)) {
+        // 中间属性为 null 时由 MetaObject 负责实例化
+        if (owner == null) {
+          owner = MetaObject.forObject(current, root.getObjectFactory(), root.getObjectWrapperFactory(), root.getReflectorFactory());
+        }
+        owner.setValue(step.expression, step.prop, value);
+        return;
+      }
+      current = next;
+    }
+  }
+
+  /**
+   * 与 {@link MetaObject} 创建 BeanWrapper 或 MapWrapper 的条件一致
+   */
+  private static boolean isPlain(Object object, MetaObject root) {
+    return !(object instanceof ObjectWrapper) && !(object instanceof Collection)
+        && !root.getObjectWrapperFactory().hasWrapperFor(object, root.getReflectorFactory());
+  }
+
+  private static final class Step {
+    private final PropertyTokenizer prop;
+
+    /**
+     * 从这一步开始的剩余表达式
+     */
+    private final String expression;
+
+    private final String name;
+    private final String index;
+
+    private volatile ResolvedInvoker getter;
+    private volatile ResolvedInvoker setter;
+
+    private Step(PropertyTokenizer prop, String expression) {
+      this.prop = prop;
+      this.expression = expression;
+      this.name = prop.getName();
+      this.index = prop.getIndex();
+    }
+
+    private Object get(Object target, ReflectorFactory reflectorFactory) {
+      if (name.isEmpty()) {
+        return UNRESOLVED;
+      }
+      Object value;
+      if (target instanceof Map) {
+        value = ((Map<?, ?>) target).get(name);
+      } else {
+        Invoker invoker = getGetter(target.getClass(), reflectorFactory);
+        if (invoker == null) {
+          return UNRESOLVED;
+        }
+        value = getBeanProperty(invoker, target);
+      }
+      return index == null ? value : getCollectionValue(value);
+    }
+
+    private boolean set(Object target, Object value, ReflectorFactory reflectorFactory) {
+      if (index != null || name.isEmpty()) {
+        return false;
+      }
+      if (target instanceof Map) {
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> map = (Map<Object, Object>) target;
+        map.put(name, value);
+        return true;
+      }
+      Invoker invoker = getSetter(target.getClass(), reflectorFactory);
+      if (invoker == null) {
+        return false;
+      }
+      setBeanProperty(invoker, target, value);
+      return true;
+    }
+
+    private Invoker getGetter(Class<?> type, ReflectorFactory reflectorFactory) {
+      ResolvedInvoker resolved = getter;
+      if (resolved != null && resolved.type == type && resolved.reflectorFactory == reflectorFactory) {
+        return resolved.invoker;
+      }
+      Reflector reflector = reflectorFactory.findForClass(type);
+      if (!reflector.hasGetter(name)) {
+        return null;
+      }
+      Invoker invoker = reflector.getGetInvoker(name);
+      getter = new ResolvedInvoker(type, reflectorFactory, invoker);
+      return invoker;
+    }
+
+    private Invoker getSetter(Class<?> type, ReflectorFactory reflectorFactory) {
+      ResolvedInvoker resolved = setter;
+      if (resolved != null && resolved.type == type && resolved.reflectorFactory == reflectorFactory) {
+        return resolved.invoker;
+      }
+      Reflector reflector = reflectorFactory.findForClass(type);
+      if (!reflector.hasSetter(name)) {
+        return null;
+      }
+      Invoker invoker = reflector.getSetInvoker(name);
+      setter = new ResolvedInvoker(type, reflectorFactory, invoker);
+      return invoker;
+    }
+
+    /**
+     * 与 BeanWrapper 的异常处理一致
+     */
+    private Object getBeanProperty(Invoker invoker, Object target) {
+      try {
+        try {
+          return invoker.invoke(target, NO_ARGUMENTS);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + name + "' from " + target.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+
+    private void setBeanProperty(Invoker invoker, Object target, Object value) {
+      try {
+        Object[] params = {value};
+        try {
+          invoker.invoke(target, params);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not set property '" + name + "' of '" + target.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+      }
+    }
+
+    /**
+     * 与 BaseWrapper 的取值规则一致
+     */
+    private Object getCollectionValue(Object collection) {
+      if (collection instanceof Map) {
+        return ((Map<?, ?>) collection).get(index);
+      }
+      int i = Integer.parseInt(index);
+      if (collection instanceof List) {
+        return ((List<?>) collection).get(i);
+      } else if (collection instanceof Object[]) {
+        return ((Object[]) collection)[i];
+      } else if (collection instanceof char[]) {
+        return ((char[]) collection)[i];
+      } else if (collection instanceof boolean[]) {
+        return ((boolean[]) collection)[i];
+      } else if (collection instanceof byte[]) {
+        return ((byte[]) collection)[i];
+      } else if (collection instanceof double[]) {
+        return ((double[]) collection)[i];
+      } else if (collection instanceof float[]) {
+        return ((float[]) collection)[i];
+      } else if (collection instanceof int[]) {
+        return ((int[]) collection)[i];
+      } else if (collection instanceof long[]) {
+        return ((long[]) collection)[i];
+      } else if (collection instanceof short[]) {
+        return ((short[]) collection)[i];
+      } else {
+        throw new ReflectionException("The '" + name + "' property of " + collection + " is not a List or Array.");
+      }
+    }
+  }
+
+  /**
+   * 最近一次解析的 Invoker，类型变化时重新解析
+   */
+  private static final class ResolvedInvoker {
+    private final Class<?> type;
+    private final ReflectorFactory reflectorFactory;
+    private final Invoker invoker;
+
+    private ResolvedInvoker(Class<?> type, ReflectorFactory reflectorFactory, Invoker invoker) {
+      this.type = type;
+      this.reflectorFactory = reflectorFactory;
+      this.invoker = invoker;
+    }
+  }
+}
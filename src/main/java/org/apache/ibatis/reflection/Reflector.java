@@ -31,9 +31,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaInvokers;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
@@ -88,20 +93,91 @@ public class Reflector {
    */
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
 
+  /**
+   * 是否使用 LambdaMetafactory/MethodHandle 代替反射调用
+   */
+  private final boolean lambdaInvokers;
+
+  /**
+   * 是否使用了构建期生成的访问器
+   */
+  private final boolean generatedAccessor;
+
+  /**
+   * 使用生成的访问器或 Lambda Invoker 时，用于解析泛型类型的反射版本，首次使用时创建
+   */
+  private volatile Reflector reflectiveReflector;
+
+  /**
+   * {@link #propertyPaths} 和 {@link #foundProperties} 最多缓存的表达式个数，达到上限时清空重新缓存
+   */
+  private static final int MAX_CACHED_EXPRESSIONS = 1024;
+
+  /**
+   * foreach 生成的参数名前缀，与 {@link org.apache.ibatis.scripting.xmltags.ForEachSqlNode#ITEM_PREFIX} 相同。
+   * 这类名称随集合长度增长，不缓存
+   */
+  private static final String GENERATED_ITEM_PREFIX = "__frch_";
+
+  /**
+   * 以该类为根对象的属性表达式，编译后缓存
+   */
+  private final ConcurrentMap<String, PropertyPath> propertyPaths = new ConcurrentHashMap<>();
+
+  /**
+   * {@link MetaClass#findProperty(String)} 的结果缓存，找不到属性时为空
+   */
+  private final ConcurrentMap<String, Optional<String>> foundProperties = new ConcurrentHashMap<>();
+
   /**
    * 构造方法
    * @param clazz
    */
   public Reflector(Class<?> clazz) {
+    this(clazz, null, false);
+  }
+
+  /**
+   * @param clazz
+   * @param lambdaInvokers 是否通过 {@link LambdaInvokers} 创建 Invoker
+   */
+  public Reflector(Class<?> clazz, boolean lambdaInvokers) {
+    this(clazz, null, lambdaInvokers);
+  }
+
+  /**
+   * 使用构建期生成的访问器创建反射器
+   * @param accessor
+   */
+  public Reflector(GeneratedAccessor accessor) {
+    this(accessor.getType(), accessor, false);
+  }
+
+  private Reflector(Class<?> clazz, GeneratedAccessor accessor, boolean lambdaInvokers) {
     type = clazz;
+    this.lambdaInvokers = lambdaInvokers;
+    this.generatedAccessor = accessor != null;
     //添加默认构造函数
     addDefaultConstructor(clazz);
-    //添加get方法
-    addGetMethods(clazz);
-    //添加set方法
-    addSetMethods(clazz);
-    //添加非getting和setting方法的field
-    addFields(clazz);
+    if (accessor != null && accessor.isComplete()) {
+      //访问器包含所有属性，无需反射查找
+      getMethods.putAll(accessor.getGetters());
+      getTypes.putAll(accessor.getGetterTypes());
+      setMethods.putAll(accessor.getSetters());
+      setTypes.putAll(accessor.getSetterTypes());
+    } else {
+      //添加get方法
+      addGetMethods(clazz);
+      //添加set方法
+      addSetMethods(clazz);
+      //添加非getting和setting方法的field
+      addFields(clazz);
+      if (accessor != null) {
+        //生成的访问器只包含可以直接访问的属性，用它们替换反射调用
+        getMethods.putAll(accessor.getGetters());
+        setMethods.putAll(accessor.getSetters());
+      }
+    }
     readablePropertyNames = getMethods.keySet().toArray(new String[getMethods.keySet().size()]);
     writeablePropertyNames = setMethods.keySet().toArray(new String[setMethods.keySet().size()]);
     for (String propName : readablePropertyNames) {
@@ -220,7 +296,7 @@ public class Reflector {
     //判断属性名称
     if (isValidPropertyName(name)) {
       //添加名称，invoker映射
-      getMethods.put(name, new MethodInvoker(method));
+      getMethods.put(name, lambdaInvokers ? LambdaInvokers.getter(method) : new MethodInvoker(method));
       //获取类型
       Type returnType = TypeParameterResolver.resolveReturnType(method, type);
       //添加名称，类型映射
@@ -317,7 +393,7 @@ public class Reflector {
    */
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
-      setMethods.put(name, new MethodInvoker(method));
+      setMethods.put(name, lambdaInvokers ? LambdaInvokers.setter(method) : new MethodInvoker(method));
       Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
       setTypes.put(name, typeToClass(paramTypes[0]));
     }
@@ -399,7 +475,7 @@ public class Reflector {
     //是有效到属性
     if (isValidPropertyName(field.getName())) {
       //添加到setMethods
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), lambdaInvokers ? LambdaInvokers.setter(field) : new SetFieldInvoker(field));
       //获取type
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       //添加到setTypes
@@ -415,7 +491,7 @@ public class Reflector {
     //是有效到属性
     if (isValidPropertyName(field.getName())) {
       //添加到setMethods
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), lambdaInvokers ? LambdaInvokers.getter(field) : new GetFieldInvoker(field));
       //获取type
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       //添加到setTypes
@@ -561,6 +637,29 @@ public class Reflector {
     return defaultConstructor != null;
   }
 
+  /**
+   * @return 是否使用了构建期生成的访问器
+   */
+  public boolean hasGeneratedAccessor() {
+    return generatedAccessor;
+  }
+
+  /**
+   * 生成的访问器和 Lambda Invoker 不持有 Method/Field，解析泛型时需要反射版本的反射器
+   * @return 同一类型的反射版本，只创建一次
+   */
+  Reflector getReflectiveReflector() {
+    if (!generatedAccessor && !lambdaInvokers) {
+      return this;
+    }
+    Reflector reflective = reflectiveReflector;
+    if (reflective == null) {
+      reflective = new Reflector(type);
+      reflectiveReflector = reflective;
+    }
+    return reflective;
+  }
+
   public Invoker getSetInvoker(String propertyName) {
     Invoker method = setMethods.get(propertyName);
     if (method == null) {
@@ -646,4 +745,41 @@ public class Reflector {
   public String findPropertyName(String name) {
     return caseInsensitivePropertyMap.get(name.toUpperCase(Locale.ENGLISH));
   }
+
+  /**
+   * 获取编译后的属性表达式
+   * @param expression
+   * @return
+   */
+  PropertyPath getPropertyPath(String expression) {
+    return getCached(propertyPaths, expression, PropertyPath::new);
+  }
+
+  /**
+   * 获取缓存的属性查找结果
+   * @param name
+   * @param finder 缓存中没有时用于查找
+   * @return
+   */
+  String findProperty(String name, Function<String, String> finder) {
+    return getCached(foundProperties, name, key -> Optional.ofNullable(finder.apply(key))).orElse(null);
+  }
+
+  /**
+   * 所有语句共用 HashMap、ParamMap 等根对象的 Reflector，表达式可能来自不固定的来源：
+   * foreach 生成的参数名不缓存；达到上限时清空，避免早期的表达式长期占满缓存
+   */
+  private static <V> V getCached(ConcurrentMap<String, V> cache, String key, Function<String, V> factory) {
+    V value = cache.get(key);
+    if (value == null) {
+      value = factory.apply(key);
+      if (!key.startsWith(GENERATED_ITEM_PREFIX)) {
+        if (cache.size() >= MAX_CACHED_EXPRESSIONS) {
+          cache.clear();
+        }
+        cache.putIfAbsent(key, value);
+      }
+    }
+    return value;
+  }
 }
@@ -23,12 +23,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.LambdaInvokers;
 
 /**
  * @author Clinton Begin
@@ -39,6 +43,17 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
 
   private static final long serialVersionUID = -8855120656740914948L;
 
+  /**
+   * 是否通过 LambdaMetafactory/MethodHandle 调用无参构造方法
+   */
+  private boolean lambdaInvokers;
+
+  /**
+   * 已绑定的无参构造方法，无法绑定时为空。反序列化后为 null，首次使用时创建，
+   * 通过 volatile 安全发布；并发创建时只会丢失缓存项
+   */
+  private transient volatile Map<Class<?>, Optional<Supplier<?>>> constructors;
+
   @Override
   public <T> T create(Class<T> type) {
     return create(type, null, null);
@@ -59,6 +74,14 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
     // no props for default
   }
 
+  public boolean isLambdaInvokers() {
+    return lambdaInvokers;
+  }
+
+  public void setLambdaInvokers(boolean lambdaInvokers) {
+    this.lambdaInvokers = lambdaInvokers;
+  }
+
   /**
    * 实例化类
    * @param type
@@ -72,6 +95,12 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
       Constructor<T> constructor;
       //通过无参构造函数创建对象
       if (constructorArgTypes == null || constructorArgs == null) {
+        if (lambdaInvokers) {
+          Supplier<T> supplier = getConstructor(type);
+          if (supplier != null) {
+            return supplier.get();
+          }
+        }
         constructor = type.getDeclaredConstructor();
         if (!constructor.isAccessible()) {
           constructor.setAccessible(true);
@@ -107,6 +136,32 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
     }
   }
 
+  /**
+   * 获取绑定后的无参构造方法
+   * @param type
+   * @param <T>
+   * @return 无法绑定时返回 null
+   * @throws NoSuchMethodException 没有无参构造方法
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Supplier<T> getConstructor(Class<T> type) throws NoSuchMethodException {
+    Map<Class<?>, Optional<Supplier<?>>> cache = constructors;
+    if (cache == null) {
+      cache = new ConcurrentHashMap<>();
+      constructors = cache;
+    }
+    Optional<Supplier<?>> supplier = cache.get(type);
+    if (supplier == null) {
+      Constructor<T> constructor = type.getDeclaredConstructor();
+      if (!constructor.isAccessible()) {
+        constructor.setAccessible(true);
+      }
+      supplier = Optional.ofNullable(LambdaInvokers.constructor(constructor));
+      cache.put(type, supplier);
+    }
+    return (Supplier<T>) supplier.orElse(null);
+  }
+
   /**
    * 返回常用实现类
    * @param type
@@ -0,0 +1,189 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.reflection.ReflectionException;
+
+/**
+ * 创建不经过反射的 Invoker
+ *
+ * 公开类的公开方法和构造方法通过 LambdaMetafactory 绑定为函数接口，调用与直接调用相同；
+ * 其他方法和字段使用 MethodHandle。无法绑定时退回到反射实现。
+ */
+public final class LambdaInvokers {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private static final MethodType FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType BI_CONSUMER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Object.class);
+
+  private LambdaInvokers() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * getter 方法的 Invoker
+   * @param method 已设置为可访问
+   * @return
+   */
+  public static Invoker getter(Method method) {
+    Class<?> type = method.getReturnType();
+    try {
+      if (canBindLambda(method)) {
+        MethodType instantiated = MethodType.methodType(wrap(type), method.getDeclaringClass());
+        Function<Object, Object> getter = bind(Function.class, "apply", FUNCTION_TYPE, LOOKUP.unreflect(method), instantiated);
+        return new LambdaGetInvoker(getter, type);
+      }
+    } catch (Throwable t) {
+      // 退回到 MethodHandle
+    }
+    try {
+      return new MethodHandleInvoker(LOOKUP.unreflect(method), Modifier.isStatic(method.getModifiers()), type);
+    } catch (Throwable t) {
+      return new MethodInvoker(method);
+    }
+  }
+
+  /**
+   * setter 方法的 Invoker
+   * @param method 已设置为可访问
+   * @return
+   */
+  public static Invoker setter(Method method) {
+    Class<?> type = method.getParameterTypes()[0];
+    try {
+      if (canBindLambda(method)) {
+        MethodType instantiated = MethodType.methodType(void.class, method.getDeclaringClass(), wrap(type));
+        BiConsumer<Object, Object> setter = bind(BiConsumer.class, "accept", BI_CONSUMER_TYPE, LOOKUP.unreflect(method), instantiated);
+        return new LambdaSetInvoker(setter, type);
+      }
+    } catch (Throwable t) {
+      // 退回到 MethodHandle
+    }
+    try {
+      return new MethodHandleInvoker(LOOKUP.unreflect(method), Modifier.isStatic(method.getModifiers()), type);
+    } catch (Throwable t) {
+      return new MethodInvoker(method);
+    }
+  }
+
+  /**
+   * 读取字段的 Invoker
+   * @param field 已设置为可访问
+   * @return
+   */
+  public static Invoker getter(Field field) {
+    try {
+      return new MethodHandleInvoker(LOOKUP.unreflectGetter(field), Modifier.isStatic(field.getModifiers()), field.getType());
+    } catch (Throwable t) {
+      return new GetFieldInvoker(field);
+    }
+  }
+
+  /**
+   * 设置字段的 Invoker
+   * @param field 已设置为可访问
+   * @return
+   */
+  public static Invoker setter(Field field) {
+    try {
+      return new MethodHandleInvoker(LOOKUP.unreflectSetter(field), Modifier.isStatic(field.getModifiers()), field.getType());
+    } catch (Throwable t) {
+      // final 字段只能通过反射修改
+      return new SetFieldInvoker(field);
+    }
+  }
+
+  /**
+   * 无参构造方法
+   * @param constructor 已设置为可访问
+   * @return 无法绑定时返回 null
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Supplier<T> constructor(Constructor<T> constructor) {
+    try {
+      MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+      if (canBindLambda(constructor)) {
+        try {
+          MethodType instantiated = MethodType.methodType(constructor.getDeclaringClass());
+          return bind(Supplier.class, "get", SUPPLIER_TYPE, handle, instantiated);
+        } catch (Throwable t) {
+          // 退回到 MethodHandle
+        }
+      }
+      final MethodHandle generic = handle.asType(SUPPLIER_TYPE);
+      return () -> {
+        try {
+          return (T) (Object) generic.invokeExact();
+        } catch (RuntimeException | Error e) {
+          throw e;
+        } catch (Throwable t) {
+          throw new ReflectionException("Error instantiating " + constructor.getDeclaringClass() + ". Cause: " + t, t);
+        }
+      };
+    } catch (Throwable t) {
+      return null;
+    }
+  }
+
+  /**
+   * 生成的 lambda 类与 MyBatis 在同一个类加载器中，只能直接调用该加载器可见的公开类的公开成员
+   */
+  private static boolean canBindLambda(Member member) {
+    Class<?> declaringClass = member.getDeclaringClass();
+    if (Modifier.isStatic(member.getModifiers()) || !Modifier.isPublic(member.getModifiers())
+        || !Modifier.isPublic(declaringClass.getModifiers())) {
+      return false;
+    }
+    try {
+      return Class.forName(declaringClass.getName(), false, LambdaInvokers.class.getClassLoader()) == declaringClass;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * 通过 LambdaMetafactory 生成函数式接口的实现
+   * @param functionType 函数式接口，参数化类型以它的原始类型传入
+   * @return 实现对象
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T bind(Class<? super T> functionType, String methodName, MethodType samType, MethodHandle implementation,
+      MethodType instantiatedType) throws Throwable {
+    CallSite site = LambdaMetafactory.metafactory(LOOKUP, methodName, MethodType.methodType(functionType),
+        samType, implementation, instantiatedType);
+    return (T) site.getTarget().invoke();
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+}
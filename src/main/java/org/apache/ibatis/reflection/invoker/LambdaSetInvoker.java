@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.util.function.BiConsumer;
+
+/**
+ * 通过函数设置属性，不经过反射
+ *
+ * 函数由生成的访问器或 LambdaMetafactory 提供
+ */
+public class LambdaSetInvoker implements Invoker {
+
+  private final BiConsumer<Object, Object> setter;
+
+  /**
+   * 属性类型
+   */
+  private final Class<?> type;
+
+  public LambdaSetInvoker(BiConsumer<Object, Object> setter, Class<?> type) {
+    this.setter = setter;
+    this.type = type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) {
+    setter.accept(target, args[0]);
+    return null;
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * 通过 MethodHandle 调用方法或访问字段
+ *
+ * 创建时完成访问检查，调用时不再检查，也不需要复制参数数组。
+ */
+public class MethodHandleInvoker implements Invoker {
+
+  /**
+   * 统一为 (Object, Object[])Object 的方法句柄
+   */
+  private final MethodHandle handle;
+
+  private final Class<?> type;
+
+  /**
+   * @param handle 实例成员为 (目标类型, 参数...)返回值，静态成员为 (参数...)返回值
+   * @param isStatic 是否为静态成员
+   * @param type 属性类型
+   */
+  public MethodHandleInvoker(MethodHandle handle, boolean isStatic, Class<?> type) {
+    MethodHandle adapted = isStatic ? MethodHandles.dropArguments(handle, 0, Object.class) : handle;
+    int parameterCount = adapted.type().parameterCount() - 1;
+    this.handle = adapted.asType(MethodType.genericMethodType(parameterCount + 1))
+        .asSpreader(Object[].class, parameterCount);
+    this.type = type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+    try {
+      return (Object) handle.invokeExact(target, args);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
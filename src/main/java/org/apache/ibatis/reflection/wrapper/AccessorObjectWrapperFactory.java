@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.wrapper;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.AccessorReflectorFactory;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * 为有构建期生成访问器的对象创建 {@link BeanWrapper} 的 ObjectWrapperFactory
+ *
+ * 不自行缓存 Reflector，而是使用 MetaObject 的 ReflectorFactory（即 Configuration 配置的 reflectorFactory），
+ * 与其共享缓存并遵循 classCacheEnabled；因此需要同时把 reflectorFactory 配置为 {@link AccessorReflectorFactory}。
+ * 其他对象交给 delegate 处理，便于和自定义的 ObjectWrapperFactory 组合。
+ * 可通过 &lt;objectWrapperFactory type="..."/&gt; 配置。
+ */
+public class AccessorObjectWrapperFactory implements ObjectWrapperFactory {
+
+  private final ObjectWrapperFactory delegate;
+
+  public AccessorObjectWrapperFactory() {
+    this(new DefaultObjectWrapperFactory());
+  }
+
+  /**
+   * @param delegate 处理没有生成访问器的对象
+   */
+  public AccessorObjectWrapperFactory(ObjectWrapperFactory delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * 无法得知使用的 ReflectorFactory，只交给 delegate 判断
+   */
+  @Override
+  public boolean hasWrapperFor(Object object) {
+    return delegate.hasWrapperFor(object);
+  }
+
+  @Override
+  public boolean hasWrapperFor(Object object, ReflectorFactory reflectorFactory) {
+    return hasGeneratedAccessor(object, reflectorFactory) || delegate.hasWrapperFor(object, reflectorFactory);
+  }
+
+  @Override
+  public ObjectWrapper getWrapperFor(MetaObject metaObject, Object object) {
+    if (hasGeneratedAccessor(object, metaObject.getReflectorFactory())) {
+      return new BeanWrapper(metaObject, object);
+    }
+    return delegate.getWrapperFor(metaObject, object);
+  }
+
+  private boolean hasGeneratedAccessor(Object object, ReflectorFactory reflectorFactory) {
+    if (object instanceof Map || object instanceof Collection || object.getClass().isArray()) {
+      return false;
+    }
+    return reflectorFactory.findForClass(object.getClass()).hasGeneratedAccessor();
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package org.apache.ibatis.reflection.wrapper;
 
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
 
 /**
  * @author Clinton Begin
@@ -24,6 +25,16 @@ public interface ObjectWrapperFactory {
 
   boolean hasWrapperFor(Object object);
 
+  /**
+   * MetaObject 创建包装对象时调用，默认与 {@link #hasWrapperFor(Object)} 相同
+   * @param object
+   * @param reflectorFactory MetaObject 使用的 ReflectorFactory，一般为 Configuration 配置的 reflectorFactory
+   * @return
+   */
+  default boolean hasWrapperFor(Object object, ReflectorFactory reflectorFactory) {
+    return hasWrapperFor(object);
+  }
+
   ObjectWrapper getWrapperFor(MetaObject metaObject, Object object);
 
 }
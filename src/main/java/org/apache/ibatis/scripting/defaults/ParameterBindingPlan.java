@@ -0,0 +1,248 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
+
+/**
+ * 参数绑定计划
+ *
+ * 按 (MappedStatement, 参数类型) 预先决定每个参数的取值方式和类型处理器，
+ * 执行时不再逐个判断类型处理器、创建 MetaObject。
+ * 取值结果与 {@link DefaultParameterHandler} 原先通过 MetaObject 取值一致。
+ *
+ * @see org.apache.ibatis.mapping.MappedStatement#getParameterBindingPlan(Class)
+ */
+public final class ParameterBindingPlan {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final Configuration configuration;
+  private final Class<?> parameterType;
+  /**
+   * 参数本身有类型处理器，所有参数都直接使用参数对象
+   */
+  private final boolean scalar;
+  /**
+   * 是否可以绕过 MetaObject 直接访问 Map 或 getter
+   */
+  private final boolean direct;
+  /**
+   * 属性名到取值方式的缓存，属性名来自 sql 中的参数，数量有限
+   */
+  private final ConcurrentMap<String, PropertyAccessor> accessors = new ConcurrentHashMap<>();
+  /**
+   * 最近一次绑定的参数映射列表，静态 sql 每次执行都是同一个列表
+   */
+  private volatile Bindings lastBindings;
+
+  public ParameterBindingPlan(Configuration configuration, Class<?> parameterType) {
+    this.configuration = configuration;
+    this.parameterType = parameterType;
+    this.scalar = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType);
+    this.direct = configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class
+        && configuration.getReflectorFactory().isClassCacheEnabled()
+        && !ObjectWrapper.class.isAssignableFrom(parameterType)
+        && !Collection.class.isAssignableFrom(parameterType);
+  }
+
+  public Class<?> getParameterType() {
+    return parameterType;
+  }
+
+  public boolean isScalar() {
+    return scalar;
+  }
+
+  /**
+   * 获得参数映射列表对应的绑定数组，数组中的绑定由 {@link #getBinding} 按需创建。
+   * 静态 sql 每次执行都是同一个参数映射列表，复用同一个数组；
+   * 动态 sql 每次的列表都不同，返回新数组
+   * @param parameterMappings
+   * @return
+   */
+  public Binding[] getBindings(List<ParameterMapping> parameterMappings) {
+    Bindings bindings = lastBindings;
+    if (bindings == null) {
+      bindings = new Bindings(parameterMappings, new Binding[parameterMappings.size()]);
+      lastBindings = bindings;
+    } else if (bindings.parameterMappings != parameterMappings) {
+      return new Binding[parameterMappings.size()];
+    }
+    return bindings.bindings;
+  }
+
+  /**
+   * 获得参数映射的绑定。
+   * 只为确实从参数对象取值的参数创建，foreach 等产生的附加参数不会进入缓存
+   * @param bindings {@link #getBindings} 返回的数组
+   * @param index 参数的位置
+   * @param parameterMapping
+   * @return
+   */
+  public Binding getBinding(Binding[] bindings, int index, ParameterMapping parameterMapping) {
+    Binding binding = bindings[index];
+    if (binding == null) {
+      PropertyAccessor accessor = scalar ? null : accessors.computeIfAbsent(parameterMapping.getProperty(), this::createAccessor);
+      binding = new Binding(parameterMapping, accessor, resolveTypeHandler(parameterMapping, accessor));
+      // 并发时可能重复创建，Binding 不可变，覆盖无妨
+      bindings[index] = binding;
+    }
+    return binding;
+  }
+
+  private PropertyAccessor createAccessor(final String property) {
+    boolean simple = property.indexOf('.') < 0 && property.indexOf('[') < 0;
+    if (direct && simple) {
+      if (Map.class.isAssignableFrom(parameterType)) {
+        return new PropertyAccessor(null) {
+          @Override
+          public Object getValue(Object parameterObject) {
+            return ((Map<?, ?>) parameterObject).get(property);
+          }
+        };
+      }
+      ReflectorFactory reflectorFactory = configuration.getReflectorFactory();
+      Reflector reflector = reflectorFactory.findForClass(parameterType);
+      if (reflector.hasGetter(property)) {
+        final Invoker invoker = reflector.getGetInvoker(property);
+        return new PropertyAccessor(reflector.getGetterType(property)) {
+          @Override
+          public Object getValue(Object parameterObject) {
+            try {
+              try {
+                return invoker.invoke(parameterObject, NO_ARGUMENTS);
+              } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+              }
+            } catch (RuntimeException e) {
+              throw e;
+            } catch (Throwable t) {
+              throw new ReflectionException("Could not get property '" + property + "' from " + parameterObject.getClass() + ".  Cause: " + t.toString(), t);
+            }
+          }
+        };
+      }
+    }
+    return new PropertyAccessor(null) {
+      @Override
+      public Object getValue(Object parameterObject) {
+        return configuration.newMetaObject(parameterObject).getValue(property);
+      }
+    };
+  }
+
+  /**
+   * 未指定类型处理器的参数，若值的类型在绑定前就能确定（参数本身或 final 类型的属性），
+   * 提前解析出 {@link UnknownTypeHandler} 运行时会选择的类型处理器
+   */
+  private TypeHandler<?> resolveTypeHandler(ParameterMapping parameterMapping, PropertyAccessor accessor) {
+    TypeHandler<?> typeHandler = parameterMapping.getTypeHandler();
+    if (!(typeHandler instanceof UnknownTypeHandler)) {
+      return typeHandler;
+    }
+    Class<?> valueType = scalar ? parameterType : accessor.type;
+    if (valueType == null || valueType.isPrimitive() || valueType.isArray() || !Modifier.isFinal(valueType.getModifiers())) {
+      return typeHandler;
+    }
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    TypeHandler<?> resolved = typeHandlerRegistry.getTypeHandler(valueType, parameterMapping.getJdbcType());
+    return resolved == null || resolved instanceof UnknownTypeHandler ? typeHandler : resolved;
+  }
+
+  /**
+   * 参数映射的绑定方式
+   */
+  public static final class Binding {
+
+    private final ParameterMapping parameterMapping;
+    private final PropertyAccessor accessor;
+    /**
+     * 值不为 null 时使用的类型处理器
+     */
+    private final TypeHandler<?> typeHandler;
+
+    private Binding(ParameterMapping parameterMapping, PropertyAccessor accessor, TypeHandler<?> typeHandler) {
+      this.parameterMapping = parameterMapping;
+      this.accessor = accessor;
+      this.typeHandler = typeHandler;
+    }
+
+    public ParameterMapping getParameterMapping() {
+      return parameterMapping;
+    }
+
+    /**
+     * 从参数对象中取值
+     * @param parameterObject 不为 null
+     * @return
+     */
+    public Object getValue(Object parameterObject) {
+      return accessor == null ? parameterObject : accessor.getValue(parameterObject);
+    }
+
+    public TypeHandler<?> getTypeHandler(Object value) {
+      return value == null ? parameterMapping.getTypeHandler() : typeHandler;
+    }
+
+  }
+
+  private abstract static class PropertyAccessor {
+
+    /**
+     * 属性的声明类型，未知时为 null
+     */
+    private final Class<?> type;
+
+    PropertyAccessor(Class<?> type) {
+      this.type = type;
+    }
+
+    abstract Object getValue(Object parameterObject);
+
+  }
+
+  private static final class Bindings {
+
+    private final List<ParameterMapping> parameterMappings;
+    private final Binding[] bindings;
+
+    Bindings(List<ParameterMapping> parameterMappings, Binding[] bindings) {
+      this.parameterMappings = parameterMappings;
+      this.bindings = bindings;
+    }
+
+  }
+
+}
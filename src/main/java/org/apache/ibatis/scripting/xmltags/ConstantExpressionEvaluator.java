@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 构建期常量表达式求值器
+ *
+ * 只依赖 _databaseId 和常量 &lt;bind&gt; 的 OGNL 表达式在构建期即可求值，
+ * 无法判定的表达式返回 null，由运行期继续处理。
+ */
+class ConstantExpressionEvaluator {
+
+  /**
+   * OGNL 关键字，不作为变量引用
+   */
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+      "and", "or", "not", "eq", "neq", "lt", "gt", "lte", "gte", "null", "true", "false",
+      "instanceof", "in", "shl", "shr", "ushr", "band", "bor", "xor"));
+
+  private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+  /**
+   * 已知常量，包含 _databaseId
+   */
+  private final Map<String, Object> constants = new HashMap<>();
+
+  /**
+   * 被非常量覆盖过的变量名
+   */
+  private final Set<String> shadowedNames = new HashSet<>();
+
+  ConstantExpressionEvaluator(String databaseId) {
+    constants.put(DynamicContext.DATABASE_ID_KEY, databaseId);
+  }
+
+  /**
+   * 尝试在构建期求值布尔表达式
+   * @param expression
+   * @return 无法判定时返回 null
+   */
+  Boolean evaluateBoolean(String expression) {
+    if (!isConstant(expression)) {
+      return null;
+    }
+    try {
+      return evaluator.evaluateBoolean(expression, new HashMap<>(constants));
+    } catch (RuntimeException e) {
+      // 构建期求值失败，留给运行期报错
+      return null;
+    }
+  }
+
+  /**
+   * 登记 &lt;bind&gt; 变量，表达式为常量时记录其值，否则标记为被覆盖
+   * @param name
+   * @param expression
+   * @param unconditional 是否无条件执行（位于根节点）
+   */
+  void bind(String name, String expression, boolean unconditional) {
+    if (unconditional && isConstant(expression)) {
+      try {
+        constants.put(name, OgnlCache.getValue(expression, new HashMap<>(constants)));
+        return;
+      } catch (RuntimeException e) {
+        // 无法求值，按非常量处理
+      }
+    }
+    shadow(name);
+  }
+
+  /**
+   * 标记变量被非常量覆盖（如 &lt;foreach&gt; 的 item、index）
+   * @param name
+   */
+  void shadow(String name) {
+    if (name != null) {
+      constants.remove(name);
+      shadowedNames.add(name);
+    }
+  }
+
+  /**
+   * 判断表达式是否只引用已知常量
+   * @param expression
+   * @return
+   */
+  boolean isConstant(String expression) {
+    if (expression == null || expression.trim().isEmpty()) {
+      return false;
+    }
+    int length = expression.length();
+    int i = 0;
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (c == '\'' || c == '"') {
+        // 跳过字符串字面量
+        int end = expression.indexOf(c, i + 1);
+        while (end > 0 && expression.charAt(end - 1) == '\\') {
+          end = expression.indexOf(c, end + 1);
+        }
+        if (end == -1) {
+          return false;
+        }
+        i = end + 1;
+      } else if (c == '@' || c == '#' || c == '{' || c == '[' || c == '=' && i + 1 < length && expression.charAt(i + 1) != '=' && (i == 0 || "=!<>".indexOf(expression.charAt(i - 1)) == -1)) {
+        // 静态调用、上下文变量、集合构造、赋值都不做常量处理
+        return false;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          i++;
+        }
+        String identifier = expression.substring(start, i);
+        // 紧跟 . 的标识符是常量值的成员访问，例如 _databaseId.startsWith('m')
+        boolean member = start > 0 && expression.charAt(start - 1) == '.';
+        if (!member && !KEYWORDS.contains(identifier)
+            && (!constants.containsKey(identifier) || shadowedNames.contains(identifier))) {
+          return false;
+        }
+      } else if (Character.isDigit(c)) {
+        // 数字字面量（含 10L、1.5d 之类的后缀）
+        while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          i++;
+        }
+      } else {
+        i++;
+      }
+    }
+    return true;
+  }
+
+}
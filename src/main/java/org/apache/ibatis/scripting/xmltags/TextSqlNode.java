@@ -15,6 +15,12 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
@@ -26,9 +32,30 @@ import org.apache.ibatis.type.SimpleTypeRegistry;
  * @author Clinton Begin
  */
 public class TextSqlNode implements SqlNode {
+
+  /**
+   * 预编译时用于分隔片段的标记字符（Unicode 私有区）
+   */
+  private static final char SEGMENT_MARK = '\uE000';
+
+  /**
+   * 通过注入过滤的替换值最多缓存的个数
+   */
+  private static final int MAX_ACCEPTED_VALUES = 256;
+
   private final String text;
   private final Pattern injectionFilter;
 
+  /**
+   * 预编译的片段，偶数位为原文，奇数位为 ${} 表达式；无法预编译时为 null
+   */
+  private final String[] segments;
+
+  /**
+   * 已通过注入过滤的替换值
+   */
+  private final Set<String> acceptedValues;
+
   public TextSqlNode(String text) {
     this(text, null);
   }
@@ -36,9 +63,14 @@ public class TextSqlNode implements SqlNode {
   public TextSqlNode(String text, Pattern injectionFilter) {
     this.text = text;
     this.injectionFilter = injectionFilter;
+    this.segments = compile(text);
+    this.acceptedValues = injectionFilter == null ? null : Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
   }
   
   public boolean isDynamic() {
+    if (segments != null) {
+      return segments.length > 1;
+    }
     DynamicCheckerTokenParser checker = new DynamicCheckerTokenParser();
     GenericTokenParser parser = createParser(checker);
     parser.parse(text);
@@ -47,7 +79,21 @@ public class TextSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
-    GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
+    BindingTokenParser handler = new BindingTokenParser(context, injectionFilter, acceptedValues);
+    //已预编译，只对表达式片段求值
+    if (segments != null) {
+      if (segments.length == 1) {
+        context.appendSql(segments[0]);
+        return true;
+      }
+      StringBuilder sql = new StringBuilder(text.length());
+      for (int i = 0; i < segments.length; i++) {
+        sql.append((i & 1) == 0 ? segments[i] : handler.handleToken(segments[i]));
+      }
+      context.appendSql(sql.toString());
+      return true;
+    }
+    GenericTokenParser parser = createParser(handler);
     context.appendSql(parser.parse(text));
     return true;
   }
@@ -56,14 +102,45 @@ public class TextSqlNode implements SqlNode {
     return new GenericTokenParser("${", "}", handler);
   }
 
+  /**
+   * 将文本拆分为原文和表达式交替的片段，文本本身包含标记字符时放弃预编译
+   * @param text
+   * @return
+   */
+  private String[] compile(String text) {
+    if (text == null || text.indexOf(SEGMENT_MARK) != -1) {
+      return null;
+    }
+    final List<String> expressions = new ArrayList<>();
+    String marked = createParser(new TokenHandler() {
+      @Override
+      public String handleToken(String content) {
+        expressions.add(content);
+        return String.valueOf(SEGMENT_MARK);
+      }
+    }).parse(text);
+    String[] compiled = new String[expressions.size() * 2 + 1];
+    int offset = 0;
+    for (int i = 0; i < expressions.size(); i++) {
+      int mark = marked.indexOf(SEGMENT_MARK, offset);
+      compiled[i * 2] = marked.substring(offset, mark);
+      compiled[i * 2 + 1] = expressions.get(i);
+      offset = mark + 1;
+    }
+    compiled[compiled.length - 1] = marked.substring(offset);
+    return compiled;
+  }
+
   private static class BindingTokenParser implements TokenHandler {
 
     private DynamicContext context;
     private Pattern injectionFilter;
+    private Set<String> acceptedValues;
 
-    public BindingTokenParser(DynamicContext context, Pattern injectionFilter) {
+    public BindingTokenParser(DynamicContext context, Pattern injectionFilter, Set<String> acceptedValues) {
       this.context = context;
       this.injectionFilter = injectionFilter;
+      this.acceptedValues = acceptedValues;
     }
 
     @Override
@@ -74,15 +151,55 @@ public class TextSqlNode implements SqlNode {
       } else if (SimpleTypeRegistry.isSimpleType(parameter.getClass())) {
         context.getBindings().put("value", parameter);
       }
-      Object value = OgnlCache.getValue(content, context.getBindings());
+      Object value = isSimpleName(content) ? getBinding(content) : OgnlCache.getValue(content, context.getBindings());
       String srtValue = (value == null ? "" : String.valueOf(value)); // issue #274 return "" instead of "null"
       checkInjection(srtValue);
       return srtValue;
     }
 
+    /**
+     * 简单变量名直接从上下文取值，与 DynamicContext.ContextAccessor 的规则一致，跳过 OGNL
+     * @param name
+     * @return
+     */
+    private Object getBinding(String name) {
+      Map<String, Object> bindings = context.getBindings();
+      Object result = bindings.get(name);
+      if (result != null || bindings.containsKey(name)) {
+        return result;
+      }
+      Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      if (parameterObject instanceof Map) {
+        return ((Map<?, ?>) parameterObject).get(name);
+      }
+      return null;
+    }
+
+    private boolean isSimpleName(String content) {
+      if (content.isEmpty() || !Character.isJavaIdentifierStart(content.charAt(0))) {
+        return false;
+      }
+      for (int i = 1; i < content.length(); i++) {
+        if (!Character.isJavaIdentifierPart(content.charAt(i))) {
+          return false;
+        }
+      }
+      // OGNL 关键字和字面量仍交给 OGNL 处理
+      return !"null".equals(content) && !"true".equals(content) && !"false".equals(content);
+    }
+
     private void checkInjection(String value) {
-      if (injectionFilter != null && !injectionFilter.matcher(value).matches()) {
-        throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
+      if (injectionFilter != null) {
+        //已校验过的值直接放行
+        if (acceptedValues != null && acceptedValues.contains(value)) {
+          return;
+        }
+        if (!injectionFilter.matcher(value).matches()) {
+          throw new ScriptingException("Invalid input. Please conform to regex" + injectionFilter.pattern());
+        }
+        if (acceptedValues != null && acceptedValues.size() < MAX_ACCEPTED_VALUES) {
+          acceptedValues.add(value);
+        }
       }
     }
   }
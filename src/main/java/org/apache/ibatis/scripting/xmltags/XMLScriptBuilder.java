@@ -55,6 +55,21 @@ public class XMLScriptBuilder extends BaseBuilder {
    */
   private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<>();
 
+  /**
+   * 构建期常量表达式求值器，用于折叠可在构建期判定的分支
+   */
+  private final ConstantExpressionEvaluator constantEvaluator;
+
+  /**
+   * 当前节点深度，根节点下为 1
+   */
+  private int depth;
+
+  /**
+   * 当前上下文追加 sql 时是否以空格分隔（trim 类标签内不加空格）
+   */
+  private boolean spaced = true;
+
   public XMLScriptBuilder(Configuration configuration, XNode context) {
     this(configuration, context, null);
   }
@@ -63,6 +78,7 @@ public class XMLScriptBuilder extends BaseBuilder {
     super(configuration);
     this.context = context;
     this.parameterType = parameterType;
+    this.constantEvaluator = new ConstantExpressionEvaluator(configuration.getDatabaseId());
     //初始化节点映射
     initNodeHandlerMap();
   }
@@ -88,8 +104,11 @@ public class XMLScriptBuilder extends BaseBuilder {
    * @return
    */
   public SqlSource parseScriptNode() {
-    //解析sql
-    MixedSqlNode rootSqlNode = parseDynamicTags(context);
+    //解析sql，构建期可判定的分支已被折叠
+    List<SqlNode> contents = parseDynamicContents(context);
+    MixedSqlNode rootSqlNode = new MixedSqlNode(contents);
+    //只剩静态文本时不需要动态SqlSource
+    isDynamic = !isStatic(contents);
     SqlSource sqlSource = null;
     //如果是动态的，创建动态SqlSource
     if (isDynamic) {
@@ -107,6 +126,16 @@ public class XMLScriptBuilder extends BaseBuilder {
    * @return
    */
   protected MixedSqlNode parseDynamicTags(XNode node) {
+    return new MixedSqlNode(parseDynamicContents(node));
+  }
+
+  /**
+   * 解析动态标签，返回折叠、合并后的子节点
+   * @param node
+   * @return
+   */
+  private List<SqlNode> parseDynamicContents(XNode node) {
+    depth++;
     //创建SqlNode数组
     List<SqlNode> contents = new ArrayList<>();
     //获取所有子节点
@@ -125,8 +154,6 @@ public class XMLScriptBuilder extends BaseBuilder {
         if (textSqlNode.isDynamic()) {
           //添加到contents中
           contents.add(textSqlNode);
-          //设置为动态
-          isDynamic = true;
         } else {
           //否则，直接添加
           contents.add(new StaticTextSqlNode(data));
@@ -141,13 +168,88 @@ public class XMLScriptBuilder extends BaseBuilder {
         if (handler == null) {
           throw new BuilderException("Unknown element <" + nodeName + "> in SQL statement.");
         }
-        //否则，处理
+        //否则，处理（可判定的分支直接展开或丢弃）
         handler.handleNode(child, contents);
-        //动态标签
-        isDynamic = true;
       }
     }
-    return new MixedSqlNode(contents);
+    depth--;
+    //合并相邻的静态文本
+    return coalesce(contents);
+  }
+
+  /**
+   * 合并相邻的 StaticTextSqlNode，分隔符与运行期 appendSql 的效果保持一致
+   * @param contents
+   * @return
+   */
+  private List<SqlNode> coalesce(List<SqlNode> contents) {
+    List<SqlNode> result = new ArrayList<>(contents.size());
+    StringBuilder text = null;
+    for (SqlNode sqlNode : contents) {
+      if (sqlNode instanceof StaticTextSqlNode) {
+        String data = ((StaticTextSqlNode) sqlNode).getText();
+        if (text == null) {
+          text = new StringBuilder(data);
+        } else {
+          text.append(spaced ? " " : "").append(data);
+        }
+      } else {
+        if (text != null) {
+          result.add(new StaticTextSqlNode(text.toString()));
+          text = null;
+        }
+        result.add(sqlNode);
+      }
+    }
+    if (text != null) {
+      result.add(new StaticTextSqlNode(text.toString()));
+    }
+    return result;
+  }
+
+  /**
+   * 是否只包含静态文本
+   * @param contents
+   * @return
+   */
+  private boolean isStatic(List<SqlNode> contents) {
+    for (SqlNode sqlNode : contents) {
+      if (!(sqlNode instanceof StaticTextSqlNode)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 解析 trim 类标签的子节点，这些标签内部追加 sql 不加空格
+   * @param node
+   * @return
+   */
+  private List<SqlNode> parseTrimmedContents(XNode node) {
+    boolean parentSpaced = spaced;
+    spaced = false;
+    try {
+      return parseDynamicContents(node);
+    } finally {
+      spaced = parentSpaced;
+    }
+  }
+
+  /**
+   * 子节点全部为静态文本时，在构建期预先渲染 trim 类标签
+   * @param trim
+   * @param contents
+   * @param targetContents
+   */
+  private void addTrimNode(TrimSqlNode trim, List<SqlNode> contents, List<SqlNode> targetContents) {
+    if (isStatic(contents)) {
+      DynamicContext rendered = new DynamicContext(configuration, null);
+      trim.apply(rendered);
+      targetContents.add(new StaticTextSqlNode(rendered.getSql()));
+    } else {
+      targetContents.add(trim);
+    }
   }
 
   /**
@@ -172,6 +274,8 @@ public class XMLScriptBuilder extends BaseBuilder {
       //解析name，value
       final String name = nodeToHandle.getStringAttribute("name");
       final String expression = nodeToHandle.getStringAttribute("value");
+      //只有根节点下的常量 bind 可以参与构建期求值
+      constantEvaluator.bind(name, expression, depth == 1);
       //创建VarDeclSqlNode
       final VarDeclSqlNode node = new VarDeclSqlNode(name, expression);
       //添加到 targetContents
@@ -190,15 +294,15 @@ public class XMLScriptBuilder extends BaseBuilder {
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       //解析内部sql 节点
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      List<SqlNode> contents = parseTrimmedContents(nodeToHandle);
       //prefix、prefixOverrides、suffix、suffixOverrides
       String prefix = nodeToHandle.getStringAttribute("prefix");
       String prefixOverrides = nodeToHandle.getStringAttribute("prefixOverrides");
       String suffix = nodeToHandle.getStringAttribute("suffix");
       String suffixOverrides = nodeToHandle.getStringAttribute("suffixOverrides");
       //创建TrimSqlNode
-      TrimSqlNode trim = new TrimSqlNode(configuration, mixedSqlNode, prefix, prefixOverrides, suffix, suffixOverrides);
-      targetContents.add(trim);
+      TrimSqlNode trim = new TrimSqlNode(configuration, new MixedSqlNode(contents), prefix, prefixOverrides, suffix, suffixOverrides);
+      addTrimNode(trim, contents, targetContents);
     }
   }
 
@@ -209,9 +313,9 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
-      WhereSqlNode where = new WhereSqlNode(configuration, mixedSqlNode);
-      targetContents.add(where);
+      List<SqlNode> contents = parseTrimmedContents(nodeToHandle);
+      WhereSqlNode where = new WhereSqlNode(configuration, new MixedSqlNode(contents));
+      addTrimNode(where, contents, targetContents);
     }
   }
 
@@ -222,9 +326,9 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
-      SetSqlNode set = new SetSqlNode(configuration, mixedSqlNode);
-      targetContents.add(set);
+      List<SqlNode> contents = parseTrimmedContents(nodeToHandle);
+      SetSqlNode set = new SetSqlNode(configuration, new MixedSqlNode(contents));
+      addTrimNode(set, contents, targetContents);
     }
   }
 
@@ -235,10 +339,13 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
       String collection = nodeToHandle.getStringAttribute("collection");
       String item = nodeToHandle.getStringAttribute("item");
       String index = nodeToHandle.getStringAttribute("index");
+      //item、index 会覆盖同名变量
+      constantEvaluator.shadow(item);
+      constantEvaluator.shadow(index);
+      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
@@ -254,10 +361,15 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      List<SqlNode> contents = parseDynamicContents(nodeToHandle);
       String test = nodeToHandle.getStringAttribute("test");
-      IfSqlNode ifSqlNode = new IfSqlNode(mixedSqlNode, test);
-      targetContents.add(ifSqlNode);
+      //构建期可判定时，成立则展开内容，否则丢弃
+      Boolean constant = constantEvaluator.evaluateBoolean(test);
+      if (constant == null) {
+        targetContents.add(new IfSqlNode(new MixedSqlNode(contents), test));
+      } else if (constant) {
+        targetContents.addAll(contents);
+      }
     }
   }
 
@@ -268,8 +380,7 @@ public class XMLScriptBuilder extends BaseBuilder {
 
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
-      targetContents.add(mixedSqlNode);
+      targetContents.addAll(parseDynamicContents(nodeToHandle));
     }
   }
 
@@ -281,34 +392,58 @@ public class XMLScriptBuilder extends BaseBuilder {
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       List<SqlNode> whenSqlNodes = new ArrayList<>();
-      List<SqlNode> otherwiseSqlNodes = new ArrayList<>();
-      handleWhenOtherwiseNodes(nodeToHandle, whenSqlNodes, otherwiseSqlNodes);
-      SqlNode defaultSqlNode = getDefaultSqlNode(otherwiseSqlNodes);
-      ChooseSqlNode chooseSqlNode = new ChooseSqlNode(whenSqlNodes, defaultSqlNode);
-      targetContents.add(chooseSqlNode);
+      List<List<SqlNode>> otherwiseSqlNodes = new ArrayList<>();
+      List<SqlNode> constantSqlNodes = handleWhenOtherwiseNodes(nodeToHandle, whenSqlNodes, otherwiseSqlNodes);
+      List<SqlNode> defaultContents = getDefaultContents(otherwiseSqlNodes);
+      //第一个成立的 when 之后的分支都不可达，由它代替 otherwise
+      if (constantSqlNodes != null) {
+        defaultContents = constantSqlNodes;
+      }
+      if (whenSqlNodes.isEmpty()) {
+        //所有 when 都在构建期判定，直接展开
+        if (defaultContents != null) {
+          targetContents.addAll(defaultContents);
+        }
+      } else {
+        SqlNode defaultSqlNode = defaultContents == null ? null : new MixedSqlNode(defaultContents);
+        targetContents.add(new ChooseSqlNode(whenSqlNodes, defaultSqlNode));
+      }
     }
 
-    private void handleWhenOtherwiseNodes(XNode chooseSqlNode, List<SqlNode> ifSqlNodes, List<SqlNode> defaultSqlNodes) {
+    /**
+     * 解析 when、otherwise
+     * @return 构建期判定成立的第一个 when 的内容，没有则返回 null
+     */
+    private List<SqlNode> handleWhenOtherwiseNodes(XNode chooseSqlNode, List<SqlNode> ifSqlNodes, List<List<SqlNode>> defaultSqlNodes) {
+      List<SqlNode> constantSqlNodes = null;
       List<XNode> children = chooseSqlNode.getChildren();
       for (XNode child : children) {
         String nodeName = child.getNode().getNodeName();
         NodeHandler handler = nodeHandlerMap.get(nodeName);
         if (handler instanceof IfHandler) {
-          handler.handleNode(child, ifSqlNodes);
+          List<SqlNode> contents = parseDynamicContents(child);
+          String test = child.getStringAttribute("test");
+          Boolean constant = constantSqlNodes == null ? constantEvaluator.evaluateBoolean(test) : Boolean.FALSE;
+          if (constant == null) {
+            ifSqlNodes.add(new IfSqlNode(new MixedSqlNode(contents), test));
+          } else if (constant) {
+            constantSqlNodes = contents;
+          }
         } else if (handler instanceof OtherwiseHandler) {
-          handler.handleNode(child, defaultSqlNodes);
+          defaultSqlNodes.add(parseDynamicContents(child));
         }
       }
+      return constantSqlNodes;
     }
 
-    private SqlNode getDefaultSqlNode(List<SqlNode> defaultSqlNodes) {
-      SqlNode defaultSqlNode = null;
+    private List<SqlNode> getDefaultContents(List<List<SqlNode>> defaultSqlNodes) {
+      List<SqlNode> defaultContents = null;
       if (defaultSqlNodes.size() == 1) {
-        defaultSqlNode = defaultSqlNodes.get(0);
+        defaultContents = defaultSqlNodes.get(0);
       } else if (defaultSqlNodes.size() > 1) {
         throw new BuilderException("Too many default (otherwise) elements in choose statement.");
       }
-      return defaultSqlNode;
+      return defaultContents;
     }
   }
 
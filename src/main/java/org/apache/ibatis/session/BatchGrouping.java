@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * 批量执行器合并语句的方式
+ *
+ * <p><b>注意：</b>{@link #FIRST_SEEN} 和 {@link #COMMAND_BARRIER} 会改变语句的执行顺序。
+ * 按 A(sql1)、B(sql2)、C(sql1) 的顺序调用时，实际执行顺序是 A、C、B。
+ * 只有调整顺序不影响结果时才应使用它们，例如各语句写入不同的表或不同的行。
+ * 如果两条不同 sql 的语句修改同一行（例如两条 update 语句更新同一条记录），
+ * 或者后一条语句依赖前一条语句写入的数据，最终结果可能与调用顺序不一致，此时应使用 {@link #NONE}。</p>
+ */
+public enum BatchGrouping {
+  /**
+   * 只合并连续执行的相同语句，保持调用顺序
+   */
+  NONE,
+  /**
+   * 每个不同的 sql 保持一个打开的 Statement，交错执行的语句也合并到各自的批次中。
+   * 批次按各 sql 首次出现的顺序执行，先插入父表再插入子表的写入模式不会违反外键约束。
+   * 同一 sql 后面的语句会被提前到其他 sql 的语句之前执行，语句类型相同也是如此
+   */
+  FIRST_SEEN,
+  /**
+   * 与 {@link #FIRST_SEEN} 相同，但语句类型（insert、update、delete）变化时先执行已累积的批次，
+   * 不会把后面的删除或更新调整到前面的插入之前。
+   * 语句类型相同、sql 不同的语句之间仍会按 {@link #FIRST_SEEN} 调整顺序
+   */
+  COMMAND_BARRIER
+}
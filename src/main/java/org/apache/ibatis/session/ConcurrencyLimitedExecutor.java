@@ -0,0 +1,79 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 限制同时运行的任务数，超出的任务排队，前面的任务完成后再交给 delegate。
+ * 不阻塞提交任务的线程
+ */
+final class ConcurrencyLimitedExecutor implements Executor {
+
+  private final Executor delegate;
+  private final int limit;
+  private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger running = new AtomicInteger();
+
+  ConcurrencyLimitedExecutor(Executor delegate, int limit) {
+    this.delegate = delegate;
+    this.limit = limit;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    pending.add(command);
+    schedule();
+  }
+
+  private void schedule() {
+    while (!pending.isEmpty()) {
+      int current = running.get();
+      if (current >= limit) {
+        // 正在运行的任务完成时会再次调度
+        return;
+      }
+      if (!running.compareAndSet(current, current + 1)) {
+        continue;
+      }
+      Runnable task = pending.poll();
+      if (task == null) {
+        running.decrementAndGet();
+        continue;
+      }
+      try {
+        delegate.execute(() -> {
+          try {
+            task.run();
+          } finally {
+            running.decrementAndGet();
+            schedule();
+          }
+        });
+      } catch (RuntimeException e) {
+        running.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -24,6 +25,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -41,6 +51,7 @@ import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
@@ -51,8 +62,10 @@ import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.MultiStatementHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.executor.statement.StatementStatistics;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -83,6 +96,7 @@ import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
@@ -109,6 +123,12 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean usePrecompiledMappers;
+  protected boolean parallelMapperLoading;
+  protected boolean lazyStatementBuilding;
+  protected boolean sealConfiguration;
+  protected boolean streamingXmlParsing;
+  protected boolean useLambdaInvokers;
 
   protected String logPrefix;
   protected Class <? extends Log> logImpl;
@@ -118,9 +138,30 @@ public class Configuration {
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  protected Integer defaultCursorFetchSize;
+  protected boolean cursorStreaming;
+  protected boolean cursorPrefetch;
+  protected boolean multiStatementQueries;
+  protected boolean adaptiveFetchSize;
+  protected int minAdaptiveFetchSize = 10;
+  protected int maxAdaptiveFetchSize = 1000;
+  protected boolean adaptiveStatementTimeout;
+  protected int minAdaptiveStatementTimeout = 5;
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
+  protected BatchGrouping batchGrouping = BatchGrouping.NONE;
+  protected Integer batchFlushRows;
+  protected Integer batchFlushBytes;
+  protected Integer batchFlushInterval;
+  protected boolean batchRetainParameters = true;
+  protected boolean batchPipelining;
+  protected Integer reuseExecutorStatementLimit;
+  protected volatile java.util.concurrent.Executor asyncExecutor;
+  protected int asyncMaxConcurrency = 10;
+  protected volatile java.util.concurrent.Executor asyncMapperExecutor;
+  protected volatile SqlSessionFactory asyncSqlSessionFactory;
+  protected volatile java.util.concurrent.Executor batchWriterExecutor;
 
   /**
    *
@@ -152,12 +193,31 @@ public class Configuration {
    */
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
 
+  /**
+   * 是否已封存，见 {@link #seal()}
+   */
+  protected volatile boolean sealed;
+
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<>("Mapped Statements collection");
+
+  /**
+   * 延迟构建的语句，启动后不再修改
+   */
+  protected final Map<String, LazyMappedStatement> lazyMappedStatements = new StrictMap<>("Lazy Mapped Statements collection");
   protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
 
+  /**
+   * 运行期记录的查询统计，不随配置封存
+   */
+  protected final Map<String, StatementStatistics> statementStatistics = new ConcurrentHashMap<>();
+  /**
+   * 各数据源的驱动是否接受合并的多语句查询，第一次合并执行时探测
+   */
+  protected final Map<DataSource, Boolean> multiStatementSupport = new ConcurrentHashMap<>();
+
   /**
    * 已加载资源( Resource )集合
    */
@@ -168,6 +228,19 @@ public class Configuration {
   protected final Collection<CacheRefResolver> incompleteCacheRefs = new LinkedList<>();
   protected final Collection<ResultMapResolver> incompleteResultMaps = new LinkedList<>();
   protected final Collection<MethodResolver> incompleteMethods = new LinkedList<>();
+  /**
+   * 解析、校验未完成元素时持有的锁。使用 ReentrantLock 而不是 synchronized，
+   * 以免虚拟线程在解析期间占住载体线程
+   */
+  protected final ReentrantLock incompleteElementsLock = new ReentrantLock();
+  /**
+   * 延迟语句构建时持有的锁
+   */
+  protected final ReentrantLock lazyStatementsLock = new ReentrantLock();
+  /**
+   * 创建默认的 asyncExecutor、asyncSqlSessionFactory、batchWriterExecutor 时持有的锁
+   */
+  protected final ReentrantLock asyncExecutorLock = new ReentrantLock();
 
   /*
    * A map holds cache-ref relationship. The key is the namespace that
@@ -263,6 +336,342 @@ public class Configuration {
     this.useActualParamName = useActualParamName;
   }
 
+  public boolean isUsePrecompiledMappers() {
+    return usePrecompiledMappers;
+  }
+
+  /**
+   * 优先加载 {@link org.apache.ibatis.builder.xml.XMLMapperCompiler} 生成的预编译 mapper
+   * @param usePrecompiledMappers
+   */
+  public void setUsePrecompiledMappers(boolean usePrecompiledMappers) {
+    this.usePrecompiledMappers = usePrecompiledMappers;
+  }
+
+  public boolean isParallelMapperLoading() {
+    return parallelMapperLoading;
+  }
+
+  /**
+   * 并行解析 &lt;mappers&gt; 中 resource、url 方式的 mapper xml，构建仍按声明顺序串行进行。
+   * 只有读取 xml 和 DTD 校验是并行的，package、class 方式不受影响，
+   * 启动能缩短多少取决于 cpu 核数和 xml 解析在启动耗时中的占比，单核环境下没有收益
+   * @param parallelMapperLoading
+   */
+  public void setParallelMapperLoading(boolean parallelMapperLoading) {
+    this.parallelMapperLoading = parallelMapperLoading;
+  }
+
+  public boolean isLazyStatementBuilding() {
+    return lazyStatementBuilding;
+  }
+
+  /**
+   * 启动时只登记语句 id，首次 {@link #getMappedStatement(String)} 时再构建。
+   * 延迟构建会在运行期写入注册表，因此 SqlSessionFactoryBuilder 会像 sealConfiguration 一样自动封存配置；
+   * 封存时检查尚未构建的语句引用的 resultMap、parameterMap 和 sql 片段，类型等其他错误仍在首次使用时报告
+   * @param lazyStatementBuilding
+   */
+  public void setLazyStatementBuilding(boolean lazyStatementBuilding) {
+    this.lazyStatementBuilding = lazyStatementBuilding;
+  }
+
+  public boolean isSealConfiguration() {
+    return sealConfiguration;
+  }
+
+  /**
+   * 创建 SqlSessionFactory 时自动调用 {@link #seal()}
+   * @param sealConfiguration
+   */
+  public void setSealConfiguration(boolean sealConfiguration) {
+    this.sealConfiguration = sealConfiguration;
+  }
+
+  public boolean isStreamingXmlParsing() {
+    return streamingXmlParsing;
+  }
+
+  /**
+   * 使用 {@link org.apache.ibatis.parsing.XMLStreamDocumentReader} 读取 mapper xml，不做 DTD 校验
+   * @param streamingXmlParsing
+   */
+  public void setStreamingXmlParsing(boolean streamingXmlParsing) {
+    this.streamingXmlParsing = streamingXmlParsing;
+  }
+
+  public boolean isUseLambdaInvokers() {
+    return useLambdaInvokers;
+  }
+
+  /**
+   * 属性读写和无参构造方法改用 LambdaMetafactory/MethodHandle 调用，
+   * 对默认的 ReflectorFactory 和 ObjectFactory 生效
+   * @param useLambdaInvokers
+   */
+  public void setUseLambdaInvokers(boolean useLambdaInvokers) {
+    this.useLambdaInvokers = useLambdaInvokers;
+    if (reflectorFactory instanceof DefaultReflectorFactory) {
+      ((DefaultReflectorFactory) reflectorFactory).setLambdaInvokers(useLambdaInvokers);
+    }
+    if (objectFactory instanceof DefaultObjectFactory) {
+      ((DefaultObjectFactory) objectFactory).setLambdaInvokers(useLambdaInvokers);
+    }
+  }
+
+  public BatchGrouping getBatchGrouping() {
+    return batchGrouping;
+  }
+
+  /**
+   * 批量执行器合并语句的方式。{@link BatchGrouping#FIRST_SEEN} 和 {@link BatchGrouping#COMMAND_BARRIER}
+   * 会调整不同 sql 的语句的执行顺序，详见 {@link BatchGrouping}
+   * @param batchGrouping
+   */
+  public void setBatchGrouping(BatchGrouping batchGrouping) {
+    this.batchGrouping = batchGrouping;
+  }
+
+  public Integer getBatchFlushRows() {
+    return batchFlushRows;
+  }
+
+  /**
+   * 批量执行器累积的行数达到该值时自动执行批次，null 表示不限制
+   * @param batchFlushRows
+   */
+  public void setBatchFlushRows(Integer batchFlushRows) {
+    this.batchFlushRows = batchFlushRows;
+  }
+
+  public Integer getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  /**
+   * 批量执行器累积的参数估算字节数达到该值时自动执行批次，null 表示不限制
+   * @param batchFlushBytes
+   */
+  public void setBatchFlushBytes(Integer batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  public Integer getBatchFlushInterval() {
+    return batchFlushInterval;
+  }
+
+  /**
+   * 批量执行器的第一行累积超过该毫秒数后，下次添加时自动执行批次，null 表示不限制
+   * @param batchFlushInterval
+   */
+  public void setBatchFlushInterval(Integer batchFlushInterval) {
+    this.batchFlushInterval = batchFlushInterval;
+  }
+
+  public boolean isBatchRetainParameters() {
+    return batchRetainParameters;
+  }
+
+  /**
+   * 为 false 时 {@link org.apache.ibatis.executor.BatchResult} 只保留 update count，
+   * 参数对象在批次执行（及主键回填）后即释放，之后调用 getParameterObjects() 会抛出 IllegalStateException。
+   * 自动执行的批次同样遵循该设置：为 true 时参数对象一直保留到下次 flush，长时间不 flush 的大批量写入应设为 false
+   * @param batchRetainParameters
+   */
+  public void setBatchRetainParameters(boolean batchRetainParameters) {
+    this.batchRetainParameters = batchRetainParameters;
+  }
+
+  public boolean isBatchPipelining() {
+    return batchPipelining;
+  }
+
+  /**
+   * 自动触发的批次（达到阈值或语句类型变化）交给 {@link #getBatchWriterExecutor()} 执行，
+   * update 随即返回，调用方可以继续准备下一行数据。
+   * JDBC 不保证 Connection 可以被多个线程同时使用，所以下次使用连接（update、查询、flush、提交）前会等待该批次完成，
+   * 只有调用方在两次 update 之间的工作与数据库执行重叠，连接不会被两个线程同时使用。
+   * 同一时间最多一批在执行，后台批次的异常在下次调用执行器时抛出。
+   * 主键回填在后台线程进行，flush 之前不要读取参数对象中的主键；使用 selectKey 的语句仍在调用方线程执行。
+   * 流水线执行期间不要直接使用 SqlSession#getConnection() 返回的连接
+   * @param batchPipelining
+   */
+  public void setBatchPipelining(boolean batchPipelining) {
+    this.batchPipelining = batchPipelining;
+  }
+
+  public Integer getReuseExecutorStatementLimit() {
+    return reuseExecutorStatementLimit;
+  }
+
+  /**
+   * ReuseExecutor 在一个会话中复用的 Statement 数上限，超出时关闭最久未使用的，null 表示不限制。
+   * 跨会话复用可使用 PooledDataSource 的 poolPreparedStatementCacheSize
+   * @param reuseExecutorStatementLimit
+   */
+  public void setReuseExecutorStatementLimit(Integer reuseExecutorStatementLimit) {
+    this.reuseExecutorStatementLimit = reuseExecutorStatementLimit;
+  }
+
+  /**
+   * 返回 CompletableFuture 的 mapper 方法所使用的线程池。
+   * 没有配置时，运行在支持虚拟线程的 JVM 上则每次调用使用一个虚拟线程，否则使用按需创建的守护线程
+   * 同时执行的调用数由 asyncMaxConcurrency 限制，见 {@link #getAsyncMapperExecutor()}
+   * @return
+   */
+  public java.util.concurrent.Executor getAsyncExecutor() {
+    java.util.concurrent.Executor executor = asyncExecutor;
+    if (executor == null) {
+      asyncExecutorLock.lock();
+      try {
+        executor = asyncExecutor;
+        if (executor == null) {
+          executor = newDefaultAsyncExecutor();
+          asyncExecutor = executor;
+        }
+      } finally {
+        asyncExecutorLock.unlock();
+      }
+    }
+    return executor;
+  }
+
+  public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+    this.asyncMapperExecutor = null;
+  }
+
+  public int getAsyncMaxConcurrency() {
+    return asyncMaxConcurrency;
+  }
+
+  /**
+   * 返回 CompletableFuture 的 mapper 方法同时执行的上限，超出的调用排队等待，不占用线程和连接。
+   * 每次调用都会从数据源借出一个连接，默认 10 与 PooledDataSource 的默认最大活动连接数一致，
+   * 应不大于数据源的连接数。0 表示不限制
+   * @param asyncMaxConcurrency
+   */
+  public void setAsyncMaxConcurrency(int asyncMaxConcurrency) {
+    this.asyncMaxConcurrency = asyncMaxConcurrency;
+    this.asyncMapperExecutor = null;
+  }
+
+  /**
+   * 执行异步 mapper 方法的线程池：asyncExecutor 加上 asyncMaxConcurrency 的并发限制。
+   * Cursor 预读直接使用 asyncExecutor，不受这个限制
+   * @return
+   */
+  public java.util.concurrent.Executor getAsyncMapperExecutor() {
+    java.util.concurrent.Executor executor = asyncMapperExecutor;
+    if (executor == null) {
+      asyncExecutorLock.lock();
+      try {
+        executor = asyncMapperExecutor;
+        if (executor == null) {
+          executor = getAsyncExecutor();
+          if (asyncMaxConcurrency > 0) {
+            executor = new ConcurrencyLimitedExecutor(executor, asyncMaxConcurrency);
+          }
+          asyncMapperExecutor = executor;
+        }
+      } finally {
+        asyncExecutorLock.unlock();
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * 异步 mapper 方法和返回 Publisher 的 mapper 方法打开独立会话所用的工厂，
+   * 没有设置时使用基于本配置的 DefaultSqlSessionFactory。
+   * 这些会话自己提交，不参与调用方会话或外部管理的事务
+   * @return
+   */
+  public SqlSessionFactory getAsyncSqlSessionFactory() {
+    SqlSessionFactory factory = asyncSqlSessionFactory;
+    if (factory == null) {
+      asyncExecutorLock.lock();
+      try {
+        factory = asyncSqlSessionFactory;
+        if (factory == null) {
+          factory = new DefaultSqlSessionFactory(this);
+          asyncSqlSessionFactory = factory;
+        }
+      } finally {
+        asyncExecutorLock.unlock();
+      }
+    }
+    return factory;
+  }
+
+  public void setAsyncSqlSessionFactory(SqlSessionFactory asyncSqlSessionFactory) {
+    this.asyncSqlSessionFactory = asyncSqlSessionFactory;
+  }
+
+  /**
+   * batchPipelining 模式下执行批次的线程池，所有会话共用。
+   * 每个会话同一时间最多提交一个批次。没有配置时使用按需创建、空闲回收的守护线程
+   * @return
+   */
+  public java.util.concurrent.Executor getBatchWriterExecutor() {
+    java.util.concurrent.Executor executor = batchWriterExecutor;
+    if (executor == null) {
+      asyncExecutorLock.lock();
+      try {
+        executor = batchWriterExecutor;
+        if (executor == null) {
+          executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-batch-writer");
+            thread.setDaemon(true);
+            return thread;
+          });
+          batchWriterExecutor = executor;
+        }
+      } finally {
+        asyncExecutorLock.unlock();
+      }
+    }
+    return executor;
+  }
+
+  public void setBatchWriterExecutor(java.util.concurrent.Executor batchWriterExecutor) {
+    this.batchWriterExecutor = batchWriterExecutor;
+  }
+
+  private static java.util.concurrent.Executor newDefaultAsyncExecutor() {
+    try {
+      // Java 21+
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-async-mapper");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  public boolean isSealed() {
+    return sealed;
+  }
+
+  /**
+   * 封存配置
+   *
+   * 解析全部未完成的元素（无法解析时抛出异常），之后注册表只读，
+   * 运行期查询不再检查未完成队列。封存后仍可添加 mapper，注册表改为并发 map，写入只锁写入者，
+   * 添加完成后可再次调用本方法校验新 mapper 的引用。
+   */
+  public void seal() {
+    buildAllStatements();
+    validateLazyStatements();
+    for (Map<String, ?> registry : Arrays.<Map<String, ?>>asList(mappedStatements, lazyMappedStatements, caches,
+        resultMaps, parameterMaps, keyGenerators, sqlFragments)) {
+      ((StrictMap<?>) registry).seal();
+    }
+    sealed = true;
+  }
+
   public boolean isReturnInstanceForEmptyRow() {
     return returnInstanceForEmptyRow;
   }
@@ -443,6 +852,156 @@ public class Configuration {
     this.defaultFetchSize = defaultFetchSize;
   }
 
+  public Integer getDefaultCursorFetchSize() {
+    return defaultCursorFetchSize;
+  }
+
+  /**
+   * 游标查询在映射语句和 defaultFetchSize 都没有配置时使用的 fetchSize。
+   * 为 null 时按 databaseId 选择，见 BaseExecutor#applyCursorFetchSize
+   * @param defaultCursorFetchSize
+   */
+  public void setDefaultCursorFetchSize(Integer defaultCursorFetchSize) {
+    this.defaultCursorFetchSize = defaultCursorFetchSize;
+  }
+
+  public boolean isCursorStreaming() {
+    return cursorStreaming;
+  }
+
+  /**
+   * databaseId 为 MySQL、MariaDB 时，游标查询是否使用 Integer.MIN_VALUE 逐行读取，默认关闭。
+   * 这两种驱动只在这个值下流式读取，否则一次读入整个结果集；但流式读取期间同一连接上不能执行其他语句，
+   * 游标打开期间的嵌套查询和延迟加载会失败
+   * @param cursorStreaming
+   */
+  public void setCursorStreaming(boolean cursorStreaming) {
+    this.cursorStreaming = cursorStreaming;
+  }
+
+  public boolean isCursorPrefetch() {
+    return cursorPrefetch;
+  }
+
+  /**
+   * Cursor#stream() 是否在 asyncExecutor 中预读下一批结果。
+   * 预读期间会在其他线程使用连接，处理元素时不能在同一会话中执行其他语句
+   * @param cursorPrefetch
+   */
+  public void setCursorPrefetch(boolean cursorPrefetch) {
+    this.cursorPrefetch = cursorPrefetch;
+  }
+
+  public boolean isMultiStatementQueries() {
+    return multiStatementQueries;
+  }
+
+  /**
+   * QueryBatch 中的多个查询是否合并为一条以分号分隔的多语句 sql 执行。
+   * 需要驱动支持（比如 MySQL 的 allowMultiQueries、SQL Server）。每个数据源第一次合并执行时探测，
+   * 驱动拒绝时改为逐个执行并记住结果，见 {@link #setMultiStatementSupport(DataSource, boolean)}。
+   * 合并的语句由 {@link MultiStatementHandler} 执行，StatementHandler 插件拦截到的是这个类
+   * @param multiStatementQueries
+   */
+  public void setMultiStatementQueries(boolean multiStatementQueries) {
+    this.multiStatementQueries = multiStatementQueries;
+  }
+
+  public boolean isAdaptiveFetchSize() {
+    return adaptiveFetchSize;
+  }
+
+  /**
+   * 没有配置 fetchSize 的映射语句是否按最近返回的行数选择 fetchSize，
+   * 在 minAdaptiveFetchSize 和 maxAdaptiveFetchSize 之间，样本不足时使用 defaultFetchSize
+   * @param adaptiveFetchSize
+   */
+  public void setAdaptiveFetchSize(boolean adaptiveFetchSize) {
+    this.adaptiveFetchSize = adaptiveFetchSize;
+  }
+
+  public int getMinAdaptiveFetchSize() {
+    return minAdaptiveFetchSize;
+  }
+
+  public void setMinAdaptiveFetchSize(int minAdaptiveFetchSize) {
+    this.minAdaptiveFetchSize = minAdaptiveFetchSize;
+  }
+
+  public int getMaxAdaptiveFetchSize() {
+    return maxAdaptiveFetchSize;
+  }
+
+  public void setMaxAdaptiveFetchSize(int maxAdaptiveFetchSize) {
+    this.maxAdaptiveFetchSize = maxAdaptiveFetchSize;
+  }
+
+  public boolean isAdaptiveStatementTimeout() {
+    return adaptiveStatementTimeout;
+  }
+
+  /**
+   * 没有配置 timeout 的映射语句是否按历史峰值耗时的 10 倍选择超时时间，不超过 defaultStatementTimeout。
+   * 峰值每 30 天减半，见 StatementStatistics#suggestTimeout。
+   * 注意：开启后，耗时远超以往的执行会被数据库取消并抛出异常，即使同样的查询以前成功过；
+   * 耗时波动很大的语句应在映射语句上显式配置 timeout
+   * @param adaptiveStatementTimeout
+   */
+  public void setAdaptiveStatementTimeout(boolean adaptiveStatementTimeout) {
+    this.adaptiveStatementTimeout = adaptiveStatementTimeout;
+  }
+
+  public int getMinAdaptiveStatementTimeout() {
+    return minAdaptiveStatementTimeout;
+  }
+
+  /**
+   * adaptiveStatementTimeout 选择的超时时间下限（秒），默认 5 秒，
+   * 避免平时很快的查询在数据库短暂变慢时被取消；defaultStatementTimeout 更小时以 defaultStatementTimeout 为准
+   * @param minAdaptiveStatementTimeout
+   */
+  public void setMinAdaptiveStatementTimeout(int minAdaptiveStatementTimeout) {
+    this.minAdaptiveStatementTimeout = minAdaptiveStatementTimeout;
+  }
+
+  /**
+   * 开启 adaptiveFetchSize 或 adaptiveStatementTimeout 后记录的查询统计
+   * @return 映射语句 id 到统计的只读视图
+   */
+  public Map<String, StatementStatistics> getStatementStatistics() {
+    return Collections.unmodifiableMap(statementStatistics);
+  }
+
+  /**
+   * @param statementId 映射语句 id
+   * @param create 不存在时是否创建
+   * @return
+   */
+  public StatementStatistics getStatementStatistics(String statementId, boolean create) {
+    StatementStatistics statistics = statementStatistics.get(statementId);
+    if (statistics == null && create) {
+      statistics = statementStatistics.computeIfAbsent(statementId, id -> new StatementStatistics());
+    }
+    return statistics;
+  }
+
+  /**
+   * @param dataSource
+   * @return 数据源的驱动是否接受合并的多语句查询，尚未探测时返回 null
+   */
+  public Boolean getMultiStatementSupport(DataSource dataSource) {
+    return multiStatementSupport.get(dataSource);
+  }
+
+  /**
+   * 记录数据源的驱动是否接受合并的多语句查询。执行器探测后自动记录，也可以预先设置以跳过探测
+   * @param dataSource
+   * @param supported
+   */
+  public void setMultiStatementSupport(DataSource dataSource, boolean supported) {
+    multiStatementSupport.put(dataSource, supported);
+  }
+
   public boolean isUseColumnLabel() {
     return useColumnLabel;
   }
@@ -577,6 +1136,16 @@ public class Configuration {
     return statementHandler;
   }
 
+  /**
+   * 创建合并执行多个查询的 StatementHandler，同样应用插件
+   */
+  public StatementHandler newMultiStatementHandler(Executor executor, List<MappedStatement> mappedStatements,
+      List<Object> parameters, List<BoundSql> boundSqls) {
+    StatementHandler statementHandler = new MultiStatementHandler(executor, mappedStatements, parameters, boundSqls);
+    statementHandler = (StatementHandler) interceptorChain.pluginAll(statementHandler);
+    return statementHandler;
+  }
+
   public Executor newExecutor(Transaction transaction) {
     return newExecutor(transaction, defaultExecutorType);
   }
@@ -690,56 +1259,162 @@ public class Configuration {
     mappedStatements.put(ms.getId(), ms);
   }
 
+  /**
+   * 登记延迟构建的语句
+   * @param id 完整的语句 id
+   * @param databaseId
+   * @param builder 构建语句并调用 {@link #addMappedStatement(MappedStatement)}
+   */
+  public void addLazyMappedStatement(String id, String databaseId, Runnable builder) {
+    addLazyMappedStatement(id, databaseId, builder, null);
+  }
+
+  /**
+   * 登记延迟构建的语句
+   * @param id 完整的语句 id
+   * @param databaseId
+   * @param builder 构建语句并调用 {@link #addMappedStatement(MappedStatement)}
+   * @param validator 不构建语句，检查引用是否都已存在，不存在时抛出 BuilderException；可以为 null
+   */
+  public void addLazyMappedStatement(String id, String databaseId, Runnable builder, Runnable validator) {
+    if (mappedStatements.containsKey(id)) {
+      throw new IllegalArgumentException("Mapped Statements collection already contains value for " + id);
+    }
+    lazyMappedStatements.put(id, new LazyMappedStatement(id, databaseId, builder, validator));
+  }
+
+  /**
+   * 获取语句的 databaseId，延迟构建的语句不会触发构建
+   * @param id
+   * @return
+   */
+  public String getMappedStatementDatabaseId(String id) {
+    if (!lazyMappedStatements.isEmpty() && lazyMappedStatements.containsKey(id)) {
+      return lazyMappedStatements.get(id).databaseId;
+    }
+    return mappedStatements.get(id).getDatabaseId();
+  }
+
   public Collection<String> getMappedStatementNames() {
-    buildAllStatements();
+    if (!sealed) {
+      buildAllStatements();
+    }
+    buildLazyStatements();
     return mappedStatements.keySet();
   }
 
   public Collection<MappedStatement> getMappedStatements() {
-    buildAllStatements();
+    if (!sealed) {
+      buildAllStatements();
+    }
+    buildLazyStatements();
     return mappedStatements.values();
   }
 
+  /**
+   * 返回的集合不是线程安全的，遍历或修改时需持有 {@link #getIncompleteElementsLock()}。
+   * 以前的版本以集合自身作为监视器，{@code synchronized (configuration.getIncompleteStatements())}
+   * 不再与 MyBatis 自己的解析线程互斥，这种用法已废弃
+   * @return
+   */
   public Collection<XMLStatementBuilder> getIncompleteStatements() {
     return incompleteStatements;
   }
 
   public void addIncompleteStatement(XMLStatementBuilder incompleteStatement) {
-    incompleteStatements.add(incompleteStatement);
+    incompleteElementsLock.lock();
+    try {
+      incompleteStatements.add(incompleteStatement);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
+  /**
+   * 返回的集合不是线程安全的，遍历或修改时需持有 {@link #getIncompleteElementsLock()}。
+   * 以前的版本以集合自身作为监视器，{@code synchronized (configuration.getIncompleteCacheRefs())}
+   * 不再与 MyBatis 自己的解析线程互斥，这种用法已废弃
+   * @return
+   */
   public Collection<CacheRefResolver> getIncompleteCacheRefs() {
     return incompleteCacheRefs;
   }
 
   public void addIncompleteCacheRef(CacheRefResolver incompleteCacheRef) {
-    incompleteCacheRefs.add(incompleteCacheRef);
+    incompleteElementsLock.lock();
+    try {
+      incompleteCacheRefs.add(incompleteCacheRef);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
+  /**
+   * 返回的集合不是线程安全的，遍历或修改时需持有 {@link #getIncompleteElementsLock()}。
+   * 以前的版本以集合自身作为监视器，{@code synchronized (configuration.getIncompleteResultMaps())}
+   * 不再与 MyBatis 自己的解析线程互斥，这种用法已废弃
+   * @return
+   */
   public Collection<ResultMapResolver> getIncompleteResultMaps() {
     return incompleteResultMaps;
   }
 
   public void addIncompleteResultMap(ResultMapResolver resultMapResolver) {
-    incompleteResultMaps.add(resultMapResolver);
+    incompleteElementsLock.lock();
+    try {
+      incompleteResultMaps.add(resultMapResolver);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
   public void addIncompleteMethod(MethodResolver builder) {
-    incompleteMethods.add(builder);
+    incompleteElementsLock.lock();
+    try {
+      incompleteMethods.add(builder);
+    } finally {
+      incompleteElementsLock.unlock();
+    }
   }
 
+  /**
+   * 返回的集合不是线程安全的，遍历或修改时需持有 {@link #getIncompleteElementsLock()}。
+   * 以前的版本以集合自身作为监视器，{@code synchronized (configuration.getIncompleteMethods())}
+   * 不再与 MyBatis 自己的解析线程互斥，这种用法已废弃
+   * @return
+   */
   public Collection<MethodResolver> getIncompleteMethods() {
     return incompleteMethods;
   }
 
+  /**
+   * 遍历或处理 incompleteStatements、incompleteCacheRefs、incompleteResultMaps、incompleteMethods 时需持有此锁，
+   * 取代以前对这些集合加 synchronized 的做法。用法：
+   * <pre>
+   * configuration.getIncompleteElementsLock().lock();
+   * try {
+   *   ...
+   * } finally {
+   *   configuration.getIncompleteElementsLock().unlock();
+   * }
+   * </pre>
+   * @return
+   */
+  public ReentrantLock getIncompleteElementsLock() {
+    return incompleteElementsLock;
+  }
+
   public MappedStatement getMappedStatement(String id) {
     return this.getMappedStatement(id, true);
   }
 
   public MappedStatement getMappedStatement(String id, boolean validateIncompleteStatements) {
-    if (validateIncompleteStatements) {
+    if (validateIncompleteStatements && !sealed) {
       buildAllStatements();
     }
+    if (!lazyMappedStatements.isEmpty() && lazyMappedStatements.containsKey(id)) {
+      return lazyMappedStatements.get(id).get();
+    }
     return mappedStatements.get(id);
   }
 
@@ -785,10 +1460,10 @@ public class Configuration {
   }
 
   public boolean hasStatement(String statementName, boolean validateIncompleteStatements) {
-    if (validateIncompleteStatements) {
+    if (validateIncompleteStatements && !sealed) {
       buildAllStatements();
     }
-    return mappedStatements.containsKey(statementName);
+    return mappedStatements.containsKey(statementName) || lazyMappedStatements.containsKey(statementName);
   }
 
   public void addCacheRef(String namespace, String referencedNamespace) {
@@ -801,29 +1476,53 @@ public class Configuration {
    * statement validation.
    */
   protected void buildAllStatements() {
-    if (!incompleteResultMaps.isEmpty()) {
-      synchronized (incompleteResultMaps) {
+    if (incompleteResultMaps.isEmpty() && incompleteCacheRefs.isEmpty()
+        && incompleteStatements.isEmpty() && incompleteMethods.isEmpty()) {
+      return;
+    }
+    incompleteElementsLock.lock();
+    try {
+      if (!incompleteResultMaps.isEmpty()) {
         // This always throws a BuilderException.
         incompleteResultMaps.iterator().next().resolve();
       }
-    }
-    if (!incompleteCacheRefs.isEmpty()) {
-      synchronized (incompleteCacheRefs) {
+      if (!incompleteCacheRefs.isEmpty()) {
         // This always throws a BuilderException.
         incompleteCacheRefs.iterator().next().resolveCacheRef();
       }
-    }
-    if (!incompleteStatements.isEmpty()) {
-      synchronized (incompleteStatements) {
+      if (!incompleteStatements.isEmpty()) {
         // This always throws a BuilderException.
         incompleteStatements.iterator().next().parseStatementNode();
       }
-    }
-    if (!incompleteMethods.isEmpty()) {
-      synchronized (incompleteMethods) {
+      if (!incompleteMethods.isEmpty()) {
         // This always throws a BuilderException.
         incompleteMethods.iterator().next().resolve();
       }
+    } finally {
+      incompleteElementsLock.unlock();
+    }
+  }
+
+  /**
+   * 构建所有尚未使用的延迟语句
+   */
+  protected void buildLazyStatements() {
+    // StrictMap 中可能包含短名称的 Ambiguity 占位
+    for (Object value : lazyMappedStatements.values().toArray()) {
+      if (value instanceof LazyMappedStatement) {
+        ((LazyMappedStatement) value).get();
+      }
+    }
+  }
+
+  /**
+   * 检查尚未构建的延迟语句的引用，在封存时调用
+   */
+  protected void validateLazyStatements() {
+    for (Object value : lazyMappedStatements.values().toArray()) {
+      if (value instanceof LazyMappedStatement) {
+        ((LazyMappedStatement) value).validate();
+      }
     }
   }
 
@@ -877,6 +1576,15 @@ public class Configuration {
     private static final long serialVersionUID = -4950446264854982944L;
     private final String name;
 
+    /**
+     * 封存后的内容，未封存时为 null。封存后的读写都转到这里，读取无需加锁
+     */
+    private volatile ConcurrentHashMap<String, V> sealedEntries;
+    /**
+     * 封存后写入时持有的锁，保证重复检查和短名称歧义处理是原子的
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
     public StrictMap(String name, int initialCapacity, float loadFactor) {
       super(initialCapacity, loadFactor);
       this.name = name;
@@ -897,24 +1605,62 @@ public class Configuration {
       this.name = name;
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * 封存，内容转入 ConcurrentHashMap，此后的读取无需同步，写入只锁写入者
+     */
+    public void seal() {
+      writeLock.lock();
+      try {
+        if (sealedEntries == null) {
+          ConcurrentHashMap<String, V> entries = new ConcurrentHashMap<>(super.size());
+          for (Map.Entry<String, V> entry : super.entrySet()) {
+            if (entry.getValue() != null) {
+              entries.put(entry.getKey(), entry.getValue());
+            }
+          }
+          sealedEntries = entries;
+          super.clear();
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
     public V put(String key, V value) {
-      if (containsKey(key)) {
+      if (sealedEntries == null) {
+        return put((Map<String, V>) this, key, value);
+      }
+      writeLock.lock();
+      try {
+        return put(sealedEntries, key, value);
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(Map<String, V> target, String key, V value) {
+      if (target.containsKey(key)) {
         throw new IllegalArgumentException(name + " already contains value for " + key);
       }
       if (key.contains(".")) {
         final String shortKey = getShortName(key);
-        if (super.get(shortKey) == null) {
-          super.put(shortKey, value);
+        if ((target == this ? super.get(shortKey) : target.get(shortKey)) == null) {
+          putEntry(target, shortKey, value);
         } else {
-          super.put(shortKey, (V) new Ambiguity(shortKey));
+          putEntry(target, shortKey, (V) new Ambiguity(shortKey));
         }
       }
-      return super.put(key, value);
+      return putEntry(target, key, value);
+    }
+
+    private V putEntry(Map<String, V> target, String key, V value) {
+      return target == this ? super.put(key, value) : target.put(key, value);
     }
 
     public V get(Object key) {
-      V value = super.get(key);
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      V value = sealed != null ? sealed.get(key) : super.get(key);
       if (value == null) {
         throw new IllegalArgumentException(name + " does not contain value for " + key);
       }
@@ -925,6 +1671,168 @@ public class Configuration {
       return value;
     }
 
+    @Override
+    public boolean containsKey(Object key) {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? sealed.containsKey(key) : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? sealed.containsValue(value) : super.containsValue(value);
+    }
+
+    @Override
+    public int size() {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? sealed.size() : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? sealed.isEmpty() : super.isEmpty();
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> m) {
+      for (Map.Entry<? extends String, ? extends V> entry : m.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    @Override
+    public V remove(Object key) {
+      if (sealedEntries == null) {
+        return super.remove(key);
+      }
+      writeLock.lock();
+      try {
+        return sealedEntries.remove(key);
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    @Override
+    public void clear() {
+      if (sealedEntries == null) {
+        super.clear();
+        return;
+      }
+      writeLock.lock();
+      try {
+        sealedEntries.clear();
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    @Override
+    public Set<String> keySet() {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? Collections.unmodifiableSet(sealed.keySet()) : super.keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? Collections.unmodifiableCollection(sealed.values()) : super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? Collections.unmodifiableMap(sealed).entrySet() : super.entrySet();
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      return sealed != null ? sealed.getOrDefault(key, defaultValue) : super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+      ConcurrentHashMap<String, V> sealed = sealedEntries;
+      if (sealed != null) {
+        sealed.forEach(action);
+      } else {
+        super.forEach(action);
+      }
+    }
+
+    /**
+     * @return 未封存的副本
+     */
+    @Override
+    public Object clone() {
+      return new StrictMap<>(name, this);
+    }
+
+    // 以下方法不做重复检查，封存后不支持
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+      checkNotSealed();
+      return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      checkNotSealed();
+      return super.remove(key, value);
+    }
+
+    @Override
+    public V replace(String key, V value) {
+      checkNotSealed();
+      return super.replace(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+      checkNotSealed();
+      return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+      checkNotSealed();
+      super.replaceAll(function);
+    }
+
+    @Override
+    public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+      checkNotSealed();
+      return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+      checkNotSealed();
+      return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+      checkNotSealed();
+      return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+      checkNotSealed();
+      return super.merge(key, value, remappingFunction);
+    }
+
+    private void checkNotSealed() {
+      if (sealedEntries != null) {
+        throw new UnsupportedOperationException(name + " is sealed, use put or remove instead");
+      }
+    }
+
     private String getShortName(String key) {
       final String[] keyParts = key.split("\\.");
       return keyParts[keyParts.length - 1];
@@ -943,4 +1851,64 @@ public class Configuration {
     }
   }
 
+  /**
+   * 延迟构建的语句
+   */
+  protected class LazyMappedStatement {
+    private final String id;
+    private final String databaseId;
+    private final Runnable builder;
+    private final Runnable validator;
+    private volatile MappedStatement statement;
+
+    LazyMappedStatement(String id, String databaseId, Runnable builder, Runnable validator) {
+      this.id = id;
+      this.databaseId = databaseId;
+      this.builder = builder;
+      this.validator = validator;
+    }
+
+    /**
+     * 尚未构建时检查引用
+     */
+    void validate() {
+      if (statement == null && validator != null) {
+        ErrorContext context = ErrorContext.instance().store();
+        try {
+          validator.run();
+        } finally {
+          context.recall();
+        }
+      }
+    }
+
+    /**
+     * 首次调用时构建，并发调用者等待同一次构建结果
+     * @return
+     */
+    public MappedStatement get() {
+      MappedStatement result = statement;
+      if (result == null) {
+        // 构建会写入 mappedStatements 等注册表，所有延迟构建串行执行
+        lazyStatementsLock.lock();
+        try {
+          result = statement;
+          if (result == null) {
+            ErrorContext context = ErrorContext.instance().store();
+            try {
+              builder.run();
+            } finally {
+              context.recall();
+            }
+            result = mappedStatements.get(id);
+            statement = result;
+          }
+        } finally {
+          lazyStatementsLock.unlock();
+        }
+      }
+      return result;
+    }
+  }
+
 }
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import org.apache.ibatis.exceptions.TooManyResultsException;
+
+/**
+ * 一组一起执行的查询
+ *
+ * 先登记查询，再调用 {@link #execute()} 一次执行所有尚未执行的查询，之后通过各自的 {@link Result} 取得结果。
+ * 开启 multiStatementQueries 且驱动支持时，由执行器合并为一条多语句 sql，
+ * 按顺序从 {@link java.sql.Statement#getMoreResults()} 读取各个结果集；否则逐个执行。
+ * 驱动拒绝合并的 sql 时自动改为逐个执行，并对该数据源记住这个结果。
+ */
+public class QueryBatch {
+
+  private final BiFunction<List<String>, List<Object>, List<List<Object>>> runner;
+  private final List<String> statements = new ArrayList<>();
+  private final List<Object> parameters = new ArrayList<>();
+  private final List<Result<?>> results = new ArrayList<>();
+
+  /**
+   * 在会话中逐个执行查询
+   * @param sqlSession
+   */
+  public QueryBatch(SqlSession sqlSession) {
+    this((statements, parameters) -> {
+      List<List<Object>> lists = new ArrayList<>(statements.size());
+      for (int i = 0; i < statements.size(); i++) {
+        lists.add(sqlSession.selectList(statements.get(i), parameters.get(i)));
+      }
+      return lists;
+    });
+  }
+
+  /**
+   * @param runner 按顺序执行语句并返回每个语句的结果列表
+   */
+  public QueryBatch(BiFunction<List<String>, List<Object>, List<List<Object>>> runner) {
+    this.runner = runner;
+  }
+
+  public <E> Result<List<E>> selectList(String statement) {
+    return selectList(statement, null);
+  }
+
+  public <E> Result<List<E>> selectList(String statement, Object parameter) {
+    return add(statement, parameter, false);
+  }
+
+  public <T> Result<T> selectOne(String statement) {
+    return selectOne(statement, null);
+  }
+
+  /**
+   * 与 {@link SqlSession#selectOne(String, Object)} 一样，没有结果时为 null，多于一个时 get 抛出 TooManyResultsException
+   */
+  public <T> Result<T> selectOne(String statement, Object parameter) {
+    return add(statement, parameter, true);
+  }
+
+  /**
+   * @return 尚未执行的查询数
+   */
+  public int size() {
+    return statements.size();
+  }
+
+  /**
+   * 执行所有尚未执行的查询
+   */
+  public void execute() {
+    if (statements.isEmpty()) {
+      return;
+    }
+    List<List<Object>> lists = runner.apply(new ArrayList<>(statements), new ArrayList<>(parameters));
+    for (int i = 0; i < results.size(); i++) {
+      results.get(i).complete(lists.get(i));
+    }
+    statements.clear();
+    parameters.clear();
+    results.clear();
+  }
+
+  private <T> Result<T> add(String statement, Object parameter, boolean one) {
+    Result<T> result = new Result<>(statement, one);
+    statements.add(statement);
+    parameters.add(parameter);
+    results.add(result);
+    return result;
+  }
+
+  /**
+   * 一个查询的结果，{@link QueryBatch#execute()} 之后才能读取
+   */
+  public static final class Result<T> {
+
+    private final String statement;
+    private final boolean one;
+    private List<Object> list;
+
+    private Result(String statement, boolean one) {
+      this.statement = statement;
+      this.one = one;
+    }
+
+    private void complete(List<Object> list) {
+      this.list = list;
+    }
+
+    public boolean isDone() {
+      return list != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get() {
+      if (list == null) {
+        throw new IllegalStateException("Query '" + statement + "' has not been executed. Call QueryBatch.execute() first.");
+      }
+      if (!one) {
+        return (T) list;
+      }
+      if (list.size() > 1) {
+        throw new TooManyResultsException("Expected one result (or null) to be returned by selectOne(), but found: " + list.size());
+      }
+      return list.isEmpty() ? null : (T) list.get(0);
+    }
+
+  }
+
+}
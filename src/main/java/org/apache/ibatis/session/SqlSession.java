@@ -21,6 +21,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
 import org.apache.ibatis.executor.BatchResult;
 
 /**
@@ -145,6 +147,52 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * A Publisher emits the same results as a Cursor, fetching rows only as the subscriber requests them.
+   * The query runs on the first request; the cursor is closed on completion, error or cancel.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Publisher of mapped objects
+   */
+  default <T> Flow.Publisher<T> selectPublisher(String statement) {
+    return selectPublisher(statement, null);
+  }
+
+  /**
+   * A Publisher emits the same results as a Cursor, fetching rows only as the subscriber requests them.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Publisher of mapped objects
+   */
+  default <T> Flow.Publisher<T> selectPublisher(String statement, Object parameter) {
+    return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * A Publisher emits the same results as a Cursor, fetching rows only as the subscriber requests them.
+   * @param <T> the returned element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Publisher of mapped objects
+   */
+  default <T> Flow.Publisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+    return new CursorPublisher<>(() -> this.<T>selectCursor(statement, parameter, rowBounds), null);
+  }
+
+  /**
+   * Creates a batch of selects that are executed together.
+   * When the multiStatementQueries setting is enabled and the driver supports multiple result sets,
+   * the selects are sent as a single multi-statement SQL; otherwise they run one after another.
+   * If the driver rejects the combined SQL, the selects run one after another and the result is remembered
+   * for the data source.
+   * @return a new, empty query batch bound to this session
+   */
+  default QueryBatch newQueryBatch() {
+    return new QueryBatch(this);
+  }
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
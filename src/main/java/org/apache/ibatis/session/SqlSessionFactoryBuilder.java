@@ -109,6 +109,10 @@ public class SqlSessionFactoryBuilder {
   }
     
   public SqlSessionFactory build(Configuration config) {
+    // 延迟构建在运行期写入注册表，需要封存后的并发 map 保证并发读取安全
+    if (config.isSealConfiguration() || config.isLazyStatementBuilding()) {
+      config.seal();
+    }
     return new DefaultSqlSessionFactory(config);
   }
 
@@ -25,9 +25,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.builder.MultiRowInsertSqlSource;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -35,6 +37,7 @@ import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.QueryBatch;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -172,6 +175,27 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  @Override
+  public QueryBatch newQueryBatch() {
+    return new QueryBatch(this::selectMultiple);
+  }
+
+  private List<List<Object>> selectMultiple(List<String> statements, List<Object> parameters) {
+    try {
+      List<MappedStatement> mappedStatements = new ArrayList<>(statements.size());
+      List<Object> wrappedParameters = new ArrayList<>(parameters.size());
+      for (int i = 0; i < statements.size(); i++) {
+        mappedStatements.add(configuration.getMappedStatement(statements.get(i)));
+        wrappedParameters.add(wrapCollection(parameters.get(i)));
+      }
+      return executor.queryMultiple(mappedStatements, wrappedParameters);
+    } catch (Exception e) {
+      throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
   @Override
   public void select(String statement, Object parameter, ResultHandler handler) {
     select(statement, parameter, RowBounds.DEFAULT, handler);
@@ -214,6 +238,12 @@ public class DefaultSqlSession implements SqlSession {
     try {
       dirty = true;
       MappedStatement ms = configuration.getMappedStatement(statement);
+      if (ms.getBulkInsertSize() > 0) {
+        List<?> rows = MultiRowInsertSqlSource.getRows(parameter);
+        if (rows != null) {
+          return bulkInsert(ms, rows);
+        }
+      }
       return executor.update(ms, wrapCollection(parameter));
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error updating database.  Cause: " + e, e);
@@ -336,6 +366,24 @@ public class DefaultSqlSession implements SqlSession {
     return (!autoCommit && dirty) || force;
   }
 
+  /**
+   * 按 bulkInsertSize 分块执行多行插入，同样大小的分块生成相同的 sql
+   */
+  private int bulkInsert(MappedStatement ms, List<?> list) throws SQLException {
+    int chunkSize = ms.getBulkInsertSize();
+    int count = 0;
+    for (int from = 0; from < list.size(); from += chunkSize) {
+      List<?> chunk = list.subList(from, Math.min(from + chunkSize, list.size()));
+      int updated = executor.update(ms, wrapCollection(chunk));
+      if (updated == BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+        count = updated;
+      } else if (count != BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+        count += updated;
+      }
+    }
+    return count;
+  }
+
   private Object wrapCollection(final Object object) {
     if (object instanceof Collection) {
       StrictMap<Object> map = new StrictMap<>();
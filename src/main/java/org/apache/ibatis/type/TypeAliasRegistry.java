@@ -29,6 +29,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.ibatis.io.ClassFile;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.io.Resources;
 
@@ -137,7 +138,14 @@ public class TypeAliasRegistry {
   public void registerAliases(String packageName, Class<?> superType){
     //获取指定包下的类
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<>();
-    resolverUtil.find(new ResolverUtil.IsA(superType), packageName);
+    resolverUtil.find(new ResolverUtil.IsA(superType) {
+      @Override
+      public boolean matches(ClassFile classFile) {
+        // 与下面的判断一致，提前排除不会注册的类
+        return !classFile.isAnonymousClass() && !classFile.isInterface() && !classFile.isMemberClass()
+            && super.matches(classFile);
+      }
+    }, packageName);
     Set<Class<? extends Class<?>>> typeSet = resolverUtil.getClasses();
     // 遍历，逐个注册类型与别名的注册表
     for(Class<?> type : typeSet){
@@ -44,6 +44,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.io.ClassFile;
 import org.apache.ibatis.io.ResolverUtil;
 import org.apache.ibatis.io.Resources;
 
@@ -245,8 +246,8 @@ public final class TypeHandlerRegistry {
    */
   @SuppressWarnings("unchecked")
   private <T> TypeHandler<T> getTypeHandler(Type type, JdbcType jdbcType) {
-    // 忽略 ParamMap 的情况
-    if (ParamMap.class.equals(type)) {
+    // 忽略 ParamMap 的情况（包括 IndexedParamMap）
+    if (type instanceof Class && ParamMap.class.isAssignableFrom((Class<?>) type)) {
       return null;
     }
     // 获得 Java Type 对应的 TypeHandler 集合
@@ -522,7 +523,14 @@ public final class TypeHandlerRegistry {
   public void register(String packageName) {
     // 扫描指定包下的所有 TypeHandler 类
     ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<>();
-    resolverUtil.find(new ResolverUtil.IsA(TypeHandler.class), packageName);
+    resolverUtil.find(new ResolverUtil.IsA(TypeHandler.class) {
+      @Override
+      public boolean matches(ClassFile classFile) {
+        // 与下面的判断一致，提前排除不会注册的类
+        return !classFile.isAnonymousClass() && !classFile.isInterface() && !classFile.isAbstract()
+            && super.matches(classFile);
+      }
+    }, packageName);
     Set<Class<? extends Class<?>>> handlerSet = resolverUtil.getClasses();
     //遍历handler
     for (Class<?> type : handlerSet) {
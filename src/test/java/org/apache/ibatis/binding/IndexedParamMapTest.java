@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.MapperMethod.IndexedParamMap;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class IndexedParamMapTest {
+
+  @Test
+  public void shouldResolveNamesToArguments() throws Exception {
+    Map<String, Object> param = namedParams("select", 1, RowBounds.DEFAULT, "jim");
+
+    assertTrue(param instanceof IndexedParamMap);
+    assertEquals(4, param.size());
+    assertEquals(1, param.get("id"));
+    assertEquals(1, param.get("param1"));
+    assertEquals("jim", param.get("name"));
+    assertEquals("jim", param.get("param2"));
+    assertTrue(param.containsKey("name"));
+    assertFalse(param.containsKey("param3"));
+    assertNull(param.getOrDefault("param3", null));
+  }
+
+  @Test
+  public void shouldBehaveLikeParamMap() throws Exception {
+    Map<String, Object> param = namedParams("select", 1, RowBounds.DEFAULT, "jim");
+    Map<String, Object> expected = new ParamMap<>();
+    expected.put("id", 1);
+    expected.put("param1", 1);
+    expected.put("name", "jim");
+    expected.put("param2", "jim");
+
+    assertEquals(expected, param);
+    assertEquals(expected.hashCode(), param.hashCode());
+    assertEquals(expected.toString(), param.toString());
+    try {
+      namedParams("select", 1, RowBounds.DEFAULT, "jim").get("missing");
+      fail();
+    } catch (BindingException e) {
+      assertEquals("Parameter 'missing' not found. Available parameters are " + expected.keySet(), e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldAllowModification() throws Exception {
+    Map<String, Object> param = namedParams("select", 1, RowBounds.DEFAULT, "jim");
+    param.put("tenant", "t1");
+    param.put("id", 2);
+
+    assertEquals("t1", param.get("tenant"));
+    assertEquals(2, param.get("id"));
+    assertEquals(1, param.get("param1"));
+    assertEquals(5, param.size());
+    param.remove("tenant");
+    assertFalse(param.containsKey("tenant"));
+  }
+
+  @Test
+  public void shouldKeepExplicitGenericNames() throws Exception {
+    Method method = Mapper.class.getMethod("clash", int.class, int.class);
+    Object param = new ParamNameResolver(new Configuration(), method).getNamedParams(new Object[] { 1, 2 });
+
+    assertEquals(1, ((Map<?, ?>) param).get("param2"));
+    assertEquals(2, ((Map<?, ?>) param).get("b"));
+    assertEquals(3, ((Map<?, ?>) param).size());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldSerializeAsHashMap() throws Exception {
+    Map<String, Object> param = namedParams("select", 1, RowBounds.DEFAULT, "jim");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(param);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Map<String, Object> copy = (Map<String, Object>) in.readObject();
+      assertEquals(new HashMap<>(param), new HashMap<>(copy));
+      assertEquals("jim", copy.get("param2"));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> namedParams(String methodName, Object... args) throws Exception {
+    Method method = Mapper.class.getMethod(methodName, Integer.class, RowBounds.class, String.class);
+    return (Map<String, Object>) new ParamNameResolver(new Configuration(), method).getNamedParams(args);
+  }
+
+  interface Mapper {
+    void select(@Param("id") Integer id, RowBounds rowBounds, @Param("name") String name);
+
+    void clash(@Param("param2") int a, @Param("b") int b);
+  }
+
+}
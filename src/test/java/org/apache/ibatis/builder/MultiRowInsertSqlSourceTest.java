@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class MultiRowInsertSqlSourceTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  public void shouldExpandValuesForEachRow() {
+    MultiRowInsertSqlSource sqlSource = new MultiRowInsertSqlSource(configuration,
+        new StaticSqlSource(configuration, "insert into users (id, name) values (?, ?)", mappings("id", "name")));
+
+    BoundSql boundSql = sqlSource.getBoundSql(Arrays.asList(row(1, "a"), row(2, "b"), row(3, "c")));
+
+    assertEquals("insert into users (id, name) values (?, ?), (?, ?), (?, ?)", boundSql.getSql());
+    assertEquals(6, boundSql.getParameterMappings().size());
+    List<Object> values = new ArrayList<>();
+    for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+      values.add(boundSql.getAdditionalParameter(mapping.getProperty()));
+    }
+    assertEquals(Arrays.<Object>asList(1, "a", 2, "b", 3, "c"), values);
+  }
+
+  @Test
+  public void shouldBindParametersOutsideValuesOnce() {
+    MultiRowInsertSqlSource sqlSource = new MultiRowInsertSqlSource(configuration,
+        new StaticSqlSource(configuration, "insert into users (id, name) values (?, ?) on duplicate key update name = ?", mappings("id", "name", "name")));
+
+    BoundSql boundSql = sqlSource.getBoundSql(Arrays.asList(row(1, "a"), row(2, "b")));
+
+    assertEquals("insert into users (id, name) values (?, ?), (?, ?) on duplicate key update name = ?", boundSql.getSql());
+    assertEquals(5, boundSql.getParameterMappings().size());
+    assertEquals("a", boundSql.getAdditionalParameter(boundSql.getParameterMappings().get(4).getProperty()));
+  }
+
+  @Test
+  public void shouldDelegateForSingleRowParameter() {
+    MultiRowInsertSqlSource sqlSource = new MultiRowInsertSqlSource(configuration,
+        new StaticSqlSource(configuration, "insert into users (id, name) values (?, ?)", mappings("id", "name")));
+
+    BoundSql boundSql = sqlSource.getBoundSql(row(1, "a"));
+
+    assertEquals("insert into users (id, name) values (?, ?)", boundSql.getSql());
+    assertEquals("id", boundSql.getParameterMappings().get(0).getProperty());
+  }
+
+  @Test(expected = BuilderException.class)
+  public void shouldFailWithoutValuesClause() {
+    MultiRowInsertSqlSource sqlSource = new MultiRowInsertSqlSource(configuration,
+        new StaticSqlSource(configuration, "insert into users select ?, ?", mappings("id", "name")));
+    sqlSource.getBoundSql(Arrays.asList(row(1, "a"), row(2, "b")));
+  }
+
+  private List<ParameterMapping> mappings(String... properties) {
+    List<ParameterMapping> mappings = new ArrayList<>();
+    for (String property : properties) {
+      mappings.add(new ParameterMapping.Builder(configuration, property, Object.class).build());
+    }
+    return mappings;
+  }
+
+  private Map<String, Object> row(int id, String name) {
+    Map<String, Object> row = new HashMap<>();
+    row.put("id", id);
+    row.put("name", name);
+    return row;
+  }
+
+}
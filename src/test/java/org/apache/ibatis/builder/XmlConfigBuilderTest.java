@@ -18,6 +18,8 @@ package org.apache.ibatis.builder;
 import java.io.InputStream;
 import java.io.StringReader;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -26,6 +28,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.ibatis.builder.mapper.CustomMapper;
 import org.apache.ibatis.builder.typehandler.CustomIntegerTypeHandler;
@@ -42,6 +45,8 @@ import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.AutoMappingBehavior;
@@ -255,6 +260,59 @@ public class XmlConfigBuilderTest {
     }
   }
 
+  @Test
+  public void shouldLoadMappersInParallel() throws Exception {
+    String resource = "org/apache/ibatis/builder/MapperConfig.xml";
+    Configuration sequential;
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      sequential = new XMLConfigBuilder(inputStream).parse();
+    }
+    String config = new String(Files.readAllBytes(Resources.getResourceAsFile(resource).toPath()), StandardCharsets.UTF_8)
+        .replace("<settings>", "<settings>\n    <setting name=\"parallelMapperLoading\" value=\"true\"/>");
+    Configuration parallel = new XMLConfigBuilder(new StringReader(config)).parse();
+
+    assertThat(parallel.isParallelMapperLoading()).isTrue();
+    assertThat(sequential.getMappedStatementNames()).isNotEmpty();
+    assertThat(new HashSet<>(parallel.getMappedStatementNames())).isEqualTo(new HashSet<>(sequential.getMappedStatementNames()));
+    assertThat(new HashSet<>(parallel.getResultMapNames())).isEqualTo(new HashSet<>(sequential.getResultMapNames()));
+    assertThat(new HashSet<>(parallel.getCacheNames())).isEqualTo(new HashSet<>(sequential.getCacheNames()));
+    assertThat(new HashSet<>(parallel.getKeyGeneratorNames())).isEqualTo(new HashSet<>(sequential.getKeyGeneratorNames()));
+    for (String id : sequential.getMappedStatementNames()) {
+      if (!id.contains(".")) {
+        continue; // 短名称可能有歧义，只按完整 id 比较
+      }
+      MappedStatement expected = sequential.getMappedStatement(id);
+      MappedStatement actual = parallel.getMappedStatement(id);
+      assertThat(actual.getResource()).isEqualTo(expected.getResource());
+      assertThat(actual.getSqlCommandType()).isEqualTo(expected.getSqlCommandType());
+      assertThat(actual.getResultMaps()).extracting("id").isEqualTo(expected.getResultMaps().stream().map(ResultMap::getId).collect(Collectors.toList()));
+      assertThat(actual.getCache() == null ? null : actual.getCache().getId())
+          .isEqualTo(expected.getCache() == null ? null : expected.getCache().getId());
+    }
+    assertThat(parallel.getIncompleteStatements()).isEmpty();
+    assertThat(parallel.getIncompleteResultMaps()).isEmpty();
+  }
+
+  @Test
+  public void shouldReportMissingMapperWhenLoadingInParallel() {
+    final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+            + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+            + "<configuration>\n"
+            + "  <settings>\n"
+            + "    <setting name=\"parallelMapperLoading\" value=\"true\"/>\n"
+            + "  </settings>\n"
+            + "  <mappers>\n"
+            + "    <mapper resource=\"org/apache/ibatis/builder/AuthorMapper.xml\"/>\n"
+            + "    <mapper resource=\"a/b/c/MissingMapper.xml\"/>\n"
+            + "  </mappers>\n"
+            + "</configuration>\n";
+
+    XMLConfigBuilder builder = new XMLConfigBuilder(new StringReader(MAPPER_CONFIG));
+    when(builder).parse();
+    then(caughtException()).isInstanceOf(BuilderException.class)
+      .hasMessageContaining("Could not find resource a/b/c/MissingMapper.xml");
+  }
+
   @Test
   public void unknownSettings() {
     final String MAPPER_CONFIG = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
@@ -19,6 +19,7 @@ import java.io.InputStream;
 import java.util.regex.Pattern;
 
 import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultSetType;
@@ -67,6 +68,27 @@ public class XmlMapperBuilderTest {
     }
   }
 
+  @Test
+  public void shouldBuildSameStatementsWithStreamingXmlParsing() throws Exception {
+    String resource = "org/apache/ibatis/builder/AuthorMapper.xml";
+    Configuration expected = new Configuration();
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      new XMLMapperBuilder(inputStream, expected, resource, expected.getSqlFragments()).parse();
+    }
+    Configuration actual = new Configuration();
+    actual.setStreamingXmlParsing(true);
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      new XMLMapperBuilder(inputStream, actual, resource, actual.getSqlFragments()).parse();
+    }
+
+    assertThat(actual.getMappedStatementNames()).containsOnlyElementsOf(expected.getMappedStatementNames());
+    assertThat(actual.getResultMapNames()).containsOnlyElementsOf(expected.getResultMapNames());
+    Author author = new Author(1, "user", null, "email", null, null);
+    MappedStatement expectedStatement = expected.getMappedStatement("updateAuthorIfNecessary");
+    MappedStatement actualStatement = actual.getMappedStatement("updateAuthorIfNecessary");
+    assertThat(actualStatement.getBoundSql(author).getSql()).isEqualTo(expectedStatement.getBoundSql(author).getSql());
+  }
+
   @Test
   public void parseExpression() {
     BaseBuilder builder = new BaseBuilder(new Configuration()){{}};
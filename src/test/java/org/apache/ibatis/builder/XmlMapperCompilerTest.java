@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.builder.xml.XMLMapperCompiler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+public class XmlMapperCompilerTest {
+
+  private static final String RESOURCE = "org/apache/ibatis/builder/AuthorMapper.xml";
+
+  @Test
+  public void shouldBuildSameStatementsFromCompiledMapper() throws Exception {
+    Configuration expected = new Configuration();
+    try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE)) {
+      new XMLMapperBuilder(inputStream, expected, RESOURCE, expected.getSqlFragments()).parse();
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE)) {
+      XMLMapperCompiler.compile(inputStream, out);
+    }
+    Document document = XMLMapperCompiler.read(new ByteArrayInputStream(out.toByteArray()));
+    Configuration actual = new Configuration();
+    new XMLMapperBuilder(document, actual, RESOURCE, actual.getSqlFragments()).parse();
+
+    assertThat(actual.getMappedStatementNames()).containsOnlyElementsOf(expected.getMappedStatementNames());
+    assertThat(actual.getResultMapNames()).containsOnlyElementsOf(expected.getResultMapNames());
+    MappedStatement expectedStatement = expected.getMappedStatement("selectWithOptions");
+    MappedStatement actualStatement = actual.getMappedStatement("selectWithOptions");
+    assertThat(actualStatement.getFetchSize()).isEqualTo(expectedStatement.getFetchSize());
+    assertThat(actualStatement.getTimeout()).isEqualTo(expectedStatement.getTimeout());
+    assertThat(actualStatement.getBoundSql(null).getSql()).isEqualTo(expectedStatement.getBoundSql(null).getSql());
+  }
+
+  @Test
+  public void shouldLoadCompiledMapperFromClasspath() throws Exception {
+    File dir = Files.createTempDirectory("compiled-mappers").toFile();
+    File target = new File(dir, RESOURCE + XMLMapperCompiler.COMPILED_SUFFIX);
+    assertThat(target.getParentFile().mkdirs()).isTrue();
+    try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE);
+         OutputStream out = new FileOutputStream(target)) {
+      XMLMapperCompiler.compile(inputStream, out);
+    }
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null)) {
+      assertThat(XMLMapperCompiler.loadCompiled(classLoader, RESOURCE)).isNotNull();
+      assertThat(XMLMapperCompiler.loadCompiled(classLoader, "org/apache/ibatis/builder/BlogMapper.xml")).isNull();
+    } finally {
+      target.delete();
+    }
+  }
+
+  @Test
+  public void shouldIgnoreCompiledMapperWhenSourceChanged() throws Exception {
+    File dir = Files.createTempDirectory("compiled-mappers").toFile();
+    File source = new File(dir, RESOURCE);
+    File target = new File(dir, RESOURCE + XMLMapperCompiler.COMPILED_SUFFIX);
+    assertThat(target.getParentFile().mkdirs()).isTrue();
+    try (InputStream inputStream = Resources.getResourceAsStream(RESOURCE)) {
+      Files.copy(inputStream, source.toPath());
+    }
+    try (InputStream inputStream = new FileInputStream(source);
+         OutputStream out = new FileOutputStream(target)) {
+      XMLMapperCompiler.compile(inputStream, out);
+    }
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null)) {
+      assertThat(XMLMapperCompiler.loadCompiled(classLoader, RESOURCE)).isNotNull();
+      try (OutputStream out = new FileOutputStream(source, true)) {
+        out.write("<!-- changed -->".getBytes(StandardCharsets.UTF_8));
+      }
+      assertThat(XMLMapperCompiler.loadCompiled(classLoader, RESOURCE)).isNull();
+    } finally {
+      target.delete();
+      source.delete();
+    }
+  }
+
+}
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
@@ -38,6 +39,7 @@ import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
+import org.apache.ibatis.scripting.ScriptingException;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -387,6 +389,35 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     Assert.assertEquals("id=", sql);
   }
 
+  @Test
+  public void shouldSubstituteEachPrecompiledSegment() {
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("tableSuffix", "2018");
+    param.put("bean", new Bean("x"));
+    final MixedSqlNode sqlNode = mixedContents(new TextSqlNode("select * from blog_${tableSuffix} where id = '${bean.id}' and note = '\\${raw}'"));
+    final DynamicSqlSource source = new DynamicSqlSource(new Configuration(), sqlNode);
+    Assert.assertEquals("select * from blog_2018 where id = 'x' and note = '${raw}'", source.getBoundSql(param).getSql());
+    param.put("tableSuffix", "2019");
+    Assert.assertEquals("select * from blog_2019 where id = 'x' and note = '${raw}'", source.getBoundSql(param).getSql());
+  }
+
+  @Test
+  public void shouldCheckInjectionFilterForEachDistinctValue() {
+    final Map<String, Object> param = new HashMap<String, Object>();
+    final TextSqlNode textSqlNode = new TextSqlNode("select * from blog_${tableSuffix}", Pattern.compile("[0-9]+"));
+    final DynamicSqlSource source = new DynamicSqlSource(new Configuration(), mixedContents(textSqlNode));
+    param.put("tableSuffix", "2018");
+    Assert.assertEquals("select * from blog_2018", source.getBoundSql(param).getSql());
+    Assert.assertEquals("select * from blog_2018", source.getBoundSql(param).getSql());
+    param.put("tableSuffix", "1; drop table blog");
+    try {
+      source.getBoundSql(param);
+      Assert.fail();
+    } catch (ScriptingException e) {
+      // expected
+    }
+  }
+
   public static class Bean {
     public String id;
     public Bean(String property) {
@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.junit.Test;
+
+public class CursorSpliteratorTest {
+
+  @Test
+  public void shouldReadInGrowingBatches() {
+    ListCursor cursor = new ListCursor(200);
+    CursorSpliterator<Integer> spliterator = new CursorSpliterator<>(cursor, null);
+    assertTrue(spliterator.tryAdvance(i -> assertEquals(0, i.intValue())));
+    assertEquals(CursorSpliterator.INITIAL_BATCH_SIZE, cursor.read);
+
+    Spliterator<Integer> prefix = spliterator.trySplit();
+    assertEquals(CursorSpliterator.INITIAL_BATCH_SIZE - 1, prefix.estimateSize());
+    assertTrue(spliterator.tryAdvance(i -> assertEquals(CursorSpliterator.INITIAL_BATCH_SIZE, i.intValue())));
+    assertEquals(CursorSpliterator.INITIAL_BATCH_SIZE * 3, cursor.read);
+
+    List<Integer> rest = new ArrayList<>();
+    spliterator.forEachRemaining(rest::add);
+    assertEquals(200 - CursorSpliterator.INITIAL_BATCH_SIZE - 1, rest.size());
+    assertNull(spliterator.trySplit());
+  }
+
+  @Test
+  public void shouldPrefetchNextBatch() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicInteger prefetches = new AtomicInteger();
+    try {
+      ListCursor cursor = new ListCursor(1000);
+      CursorSpliterator<Integer> spliterator = new CursorSpliterator<>(cursor, command -> {
+        prefetches.incrementAndGet();
+        executor.execute(command);
+      });
+      List<Integer> items = StreamSupport.stream(spliterator, false).onClose(spliterator::close)
+          .collect(Collectors.toList());
+      assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), items);
+      assertTrue(prefetches.get() > 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldSumInParallel() {
+    ListCursor cursor = new ListCursor(10000);
+    assertEquals(IntStream.range(0, 10000).sum(), cursor.stream().parallel().mapToInt(Integer::intValue).sum());
+  }
+
+  @Test
+  public void shouldCloseCursorWithStream() {
+    ListCursor cursor = new ListCursor(10);
+    cursor.stream().close();
+    assertTrue(cursor.closed);
+  }
+
+  private static class ListCursor implements Cursor<Integer> {
+
+    private final int size;
+    private volatile int read;
+    private boolean closed;
+
+    ListCursor(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return read > 0 && !closed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return read == size;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return read - 1;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+        @Override
+        public boolean hasNext() {
+          return read < size;
+        }
+
+        @Override
+        public Integer next() {
+          return read++;
+        }
+      };
+    }
+  }
+
+}
@@ -15,7 +15,29 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.BatchGrouping;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.Test;
 
 public class BatchExecutorTest extends BaseExecutorTest {
@@ -24,6 +46,247 @@ public class BatchExecutorTest extends BaseExecutorTest {
   public void dummy() {
   }
 
+  @Test
+  public void shouldBatchConsecutiveStatementsOnly() throws Exception {
+    List<BatchResult> results = executeInterleaved(BatchGrouping.NONE);
+    assertEquals(4, results.size());
+  }
+
+  @Test
+  public void shouldGroupInterleavedStatements() throws Exception {
+    List<BatchResult> results = executeInterleaved(BatchGrouping.FIRST_SEEN);
+    assertEquals(2, results.size());
+    assertEquals("insertAuthor", results.get(0).getMappedStatement().getId());
+    assertEquals(2, results.get(0).getParameterObjects().size());
+    assertEquals(2, results.get(0).getUpdateCounts().length);
+    assertEquals("updateAuthor", results.get(1).getMappedStatement().getId());
+    assertEquals(2, results.get(1).getParameterObjects().size());
+  }
+
+  @Test
+  public void shouldExecuteGroupsWhenCommandTypeChanges() throws Exception {
+    List<BatchResult> results = executeInterleaved(BatchGrouping.COMMAND_BARRIER);
+    assertEquals(4, results.size());
+  }
+
+  @Test
+  public void shouldGroupSameCommandTypeAcrossBarriers() throws Exception {
+    config.setBatchGrouping(BatchGrouping.COMMAND_BARRIER);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement insertWithId99 = ExecutorTestHelper.createInsertAuthorWithIDof99MappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(201, "a", "******", "a@apache.org", null, Section.NEWS));
+      executor.update(insertWithId99, null);
+      executor.update(insertStatement, new Author(202, "b", "******", "b@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(201, "c", "******", "c@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(1, results.get(1).getParameterObjects().size());
+      assertEquals(1, results.get(2).getUpdateCounts()[0]);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldAutoFlushByRowCount() throws Exception {
+    config.setBatchFlushRows(2);
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 201; id <= 205; id++) {
+        executor.update(insertStatement, new Author(id, "a" + id, "******", "a@apache.org", null, Section.NEWS));
+      }
+      assertEquals(2, executor.getStatistics().getAutoFlushCount());
+      assertEquals(4, executor.getStatistics().getRowCount());
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      // 自动执行的批次同样按 batchRetainParameters 保留参数对象
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(1, results.get(2).getUpdateCounts().length);
+      BatchStatistics statistics = executor.getStatistics();
+      assertEquals(3, statistics.getFlushCount());
+      assertEquals(3, statistics.getStatementCount());
+      assertEquals(5, statistics.getRowCount());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldAutoFlushByEstimatedBytes() throws Exception {
+    config.setBatchFlushBytes(100);
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(201, "a", "******", "a@apache.org", null, Section.NEWS));
+      assertEquals(0, executor.getStatistics().getAutoFlushCount());
+      char[] bio = new char[100];
+      Arrays.fill(bio, 'x');
+      executor.update(insertStatement, new Author(202, "b", "******", "b@apache.org", new String(bio), Section.NEWS));
+      assertEquals(1, executor.getStatistics().getAutoFlushCount());
+      assertEquals(1, executor.flushStatements().size());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldNotRetainParameterObjects() throws Exception {
+    config.setBatchRetainParameters(false);
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(201, "a", "******", "a@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(202, "b", "******", "b@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      try {
+        results.get(0).getParameterObjects();
+        fail("Expected released parameter objects to be reported");
+      } catch (IllegalStateException e) {
+        assertTrue(e.getMessage().contains("batchRetainParameters"));
+      }
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldExecuteBatchesInBackground() throws Exception {
+    config.setBatchFlushRows(2);
+    config.setBatchPipelining(true);
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      for (int id = 201; id <= 205; id++) {
+        executor.update(insertStatement, new Author(id, "a" + id, "******", "a@apache.org", null, Section.NEWS));
+      }
+      List<BatchResult> results = executor.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(5, executor.getStatistics().getRowCount());
+      List<Author> authors = executor.query(selectStatement, 204, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("a204", authors.get(0).getUsername());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldPropagateBackgroundBatchFailure() throws Exception {
+    config.setBatchFlushRows(1);
+    config.setBatchPipelining(true);
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(201, "a", "******", "a@apache.org", null, Section.NEWS));
+      // 101 已存在，主键冲突
+      executor.update(insertStatement, new Author(101, "b", "******", "b@apache.org", null, Section.NEWS));
+      try {
+        executor.flushStatements();
+        fail("Should have thrown BatchExecutorException");
+      } catch (BatchExecutorException e) {
+        assertEquals(1, e.getSuccessfulBatchResults().size());
+        assertEquals("insertAuthor", e.getFailingStatementId());
+      }
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldNotUseConnectionConcurrentlyWhenPipelining() throws Exception {
+    config.setBatchFlushRows(1);
+    config.setBatchPipelining(true);
+    final AtomicInteger submitted = new AtomicInteger();
+    config.setBatchWriterExecutor(runnable -> {
+      submitted.incrementAndGet();
+      new Thread(runnable, "test-batch-writer").start();
+    });
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    final Set<String> batchThreads = ConcurrentHashMap.newKeySet();
+    BatchExecutor executor = new BatchExecutor(config, new JdbcTransaction(ds, null, false) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        return exclusive(super.getConnection(), Connection.class, active, maxActive, batchThreads);
+      }
+    });
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      for (int id = 201; id <= 205; id++) {
+        executor.update(insertStatement, new Author(id, "a" + id, "******", "a@apache.org", null, Section.NEWS));
+      }
+      assertEquals(5, executor.flushStatements().size());
+      assertEquals(5, submitted.get());
+      assertEquals(Collections.singleton("test-batch-writer"), batchThreads);
+      assertEquals(1, maxActive.get());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  /**
+   * 记录同时调用连接及其 Statement 的线程数，executeBatch 时稍作停顿以便暴露并发使用
+   */
+  private static <T> T exclusive(final T target, Class<T> type, final AtomicInteger active, final AtomicInteger maxActive,
+      final Set<String> batchThreads) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        if ("executeBatch".equals(method.getName())) {
+          batchThreads.add(Thread.currentThread().getName());
+          Thread.sleep(20);
+        }
+        Object result = method.invoke(target, args);
+        if (result instanceof PreparedStatement) {
+          return exclusive((PreparedStatement) result, PreparedStatement.class, active, maxActive, batchThreads);
+        }
+        return result;
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      } finally {
+        active.decrementAndGet();
+      }
+    }));
+  }
+
+  private List<BatchResult> executeInterleaved(BatchGrouping grouping) throws Exception {
+    config.setBatchGrouping(grouping);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      executor.update(insertStatement, new Author(201, "a", "******", "a@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(101, "b", "******", "b@apache.org", null, Section.NEWS));
+      executor.update(insertStatement, new Author(202, "c", "******", "c@apache.org", null, Section.NEWS));
+      executor.update(updateStatement, new Author(102, "d", "******", "d@apache.org", null, Section.NEWS));
+      List<BatchResult> results = executor.flushStatements();
+      List<Author> authors = executor.query(selectStatement, 202, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("c", authors.get(0).getUsername());
+      authors = executor.query(selectStatement, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("d", authors.get(0).getUsername());
+      return results;
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new BatchExecutor(config,transaction);
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.Test;
+
+public class BoundedReuseExecutorTest extends BaseExecutorTest {
+
+  @Test
+  public void dummy() {
+  }
+
+  @Test
+  public void shouldNotCloseStatementInUseWhenResultHandlerUpdates() throws Exception {
+    final Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      final MappedStatement updateStatement = ExecutorTestHelper.prepareUpdateAuthorMappedStatement(config);
+      final List<Author> handled = new ArrayList<>();
+      // 更新语句使外层查询的 Statement 被移出，但在查询结束前不能关闭
+      executor.query(selectStatement, null, RowBounds.DEFAULT, context -> {
+        Author author = (Author) context.getResultObject();
+        author.setBio("updated");
+        try {
+          executor.update(updateStatement, author);
+        } catch (SQLException e) {
+          throw new RuntimeException(e);
+        }
+        handled.add(author);
+      });
+      assertEquals(2, handled.size());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Override
+  protected Executor createExecutor(Transaction transaction) {
+    // 只保留一个 Statement，嵌套查询时外层的 Statement 也会被移出
+    config.setReuseExecutorStatementLimit(1);
+    return new ReuseExecutor(config, transaction);
+  }
+}
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Statement;
+
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.Transaction;
+import org.junit.Test;
+
+public class CursorFetchSizeTest {
+
+  @Test
+  public void shouldPreferConfiguredFetchSize() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("mysql");
+    configuration.setDefaultCursorFetchSize(50);
+    Statement statement = mock(Statement.class);
+    newExecutor(configuration).applyCursorFetchSize(newMappedStatement(configuration, null), statement);
+    verify(statement).setFetchSize(50);
+
+    // 映射语句上的 fetchSize 已由 StatementHandler 设置
+    statement = mock(Statement.class);
+    newExecutor(configuration).applyCursorFetchSize(newMappedStatement(configuration, 10), statement);
+    verify(statement, never()).setFetchSize(50);
+  }
+
+  @Test
+  public void shouldApplyDefaultFetchSizeForDatabaseId() throws Exception {
+    Configuration configuration = new Configuration();
+    Statement statement = mock(Statement.class);
+    newExecutor(configuration).applyCursorFetchSize(newMappedStatement(configuration, null), statement);
+    verify(statement).setFetchSize(BaseExecutor.CURSOR_FETCH_SIZE);
+
+    configuration.setDatabaseId("postgresql");
+    statement = mock(Statement.class);
+    newExecutor(configuration).applyCursorFetchSize(newMappedStatement(configuration, null), statement);
+    verify(statement).setFetchSize(BaseExecutor.CURSOR_FETCH_SIZE);
+  }
+
+  @Test
+  public void shouldStreamMySqlCursorsOnlyWhenEnabled() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDatabaseId("MySQL");
+    Statement statement = mock(Statement.class);
+    newExecutor(configuration).applyCursorFetchSize(newMappedStatement(configuration, null), statement);
+    verify(statement, never()).setFetchSize(anyInt());
+
+    configuration.setCursorStreaming(true);
+    configuration.setDatabaseId("mariadb");
+    statement = mock(Statement.class);
+    newExecutor(configuration).applyCursorFetchSize(newMappedStatement(configuration, null), statement);
+    verify(statement).setFetchSize(Integer.MIN_VALUE);
+  }
+
+  private BaseExecutor newExecutor(Configuration configuration) {
+    return new SimpleExecutor(configuration, mock(Transaction.class));
+  }
+
+  private MappedStatement newMappedStatement(Configuration configuration, Integer fetchSize) {
+    return new MappedStatement.Builder(configuration, "selectAll", mock(SqlSource.class), SqlCommandType.SELECT)
+        .fetchSize(fetchSize).build();
+  }
+
+}
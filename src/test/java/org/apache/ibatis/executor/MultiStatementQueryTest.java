@@ -0,0 +1,268 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiStatementQueryTest {
+
+  private Configuration configuration;
+  private Connection connection;
+  private DatabaseMetaData metaData;
+  private PreparedStatement statement;
+
+  @Before
+  public void setUp() throws Exception {
+    configuration = new Configuration();
+    configuration.setMultiStatementQueries(true);
+    connection = mock(Connection.class);
+    metaData = mock(DatabaseMetaData.class);
+    statement = mock(PreparedStatement.class);
+    when(connection.getMetaData()).thenReturn(metaData);
+    when(metaData.supportsMultipleResultSets()).thenReturn(true);
+    when(connection.prepareStatement(anyString())).thenReturn(statement);
+    when(statement.getConnection()).thenReturn(connection);
+    when(statement.getUpdateCount()).thenReturn(-1);
+  }
+
+  @Test
+  public void shouldCombineQueriesIntoOneStatement() throws Exception {
+    ResultSet first = newResultSet(1, 2);
+    ResultSet second = newResultSet(3);
+    when(statement.getResultSet()).thenReturn(first, second);
+    when(statement.getMoreResults()).thenReturn(true, false);
+
+    List<List<Object>> results = newExecutor().queryMultiple(
+        Arrays.asList(newMappedStatement("first", "select id from a where x = ?", 1),
+            newMappedStatement("second", "select id from b where y = ? and z = ?;", 2)),
+        Arrays.<Object>asList(10, 20));
+
+    verify(connection).prepareStatement("select id from a where x = ?;\nselect id from b where y = ? and z = ?");
+    verify(statement).setInt(1, 10);
+    verify(statement).setInt(2, 20);
+    verify(statement).setInt(3, 20);
+    verify(statement, times(1)).execute();
+    assertEquals(Arrays.asList(1, 2), results.get(0));
+    assertEquals(Collections.singletonList(3), results.get(1));
+  }
+
+  @Test
+  public void shouldExecuteSequentiallyWhenDriverDoesNotSupportMultipleResultSets() throws Exception {
+    when(metaData.supportsMultipleResultSets()).thenReturn(false);
+    when(statement.getResultSet()).thenAnswer(invocation -> newResultSet(5));
+
+    List<List<Object>> results = newExecutor().queryMultiple(
+        Arrays.asList(newMappedStatement("first", "select id from a where x = ?", 1),
+            newMappedStatement("second", "select id from b where y = ?", 1)),
+        Arrays.<Object>asList(10, 20));
+
+    verify(connection).prepareStatement("select id from a where x = ?");
+    verify(connection).prepareStatement("select id from b where y = ?");
+    verify(connection, never()).prepareStatement("select id from a where x = ?;\nselect id from b where y = ?");
+    assertEquals(Collections.singletonList(5), results.get(0));
+    assertEquals(Collections.singletonList(5), results.get(1));
+  }
+
+  @Test
+  public void shouldApplyFetchSizeAndRecordStatistics() throws Exception {
+    configuration.setAdaptiveFetchSize(true);
+    ResultSet first = newResultSet(1, 2);
+    ResultSet second = newResultSet(3);
+    when(statement.getResultSet()).thenReturn(first, second);
+    when(statement.getMoreResults()).thenReturn(true, false);
+
+    newExecutor().queryMultiple(
+        Arrays.asList(newMappedStatement("first", "select id from a where x = ?", 1),
+            newMappedStatement("second", "select id from b where y = ?", 1, 50)),
+        Arrays.<Object>asList(10, 20));
+
+    verify(statement).setFetchSize(50);
+    assertEquals(2, configuration.getStatementStatistics("first", false).getTotalRows());
+    assertEquals(1, configuration.getStatementStatistics("second", false).getTotalRows());
+  }
+
+  @Test
+  public void shouldApplyPluginsToCombinedStatement() throws Exception {
+    RecordingInterceptor interceptor = new RecordingInterceptor();
+    configuration.addInterceptor(interceptor);
+    configuration.setDefaultStatementTimeout(7);
+    ResultSet first = newResultSet(1);
+    ResultSet second = newResultSet(2);
+    when(statement.getResultSet()).thenReturn(first, second);
+    when(statement.getMoreResults()).thenReturn(true, false);
+
+    newExecutor().queryMultiple(
+        Arrays.asList(newMappedStatement("first", "select id from a where x = ?", 1),
+            newMappedStatement("second", "select id from b where y = ?", 1)),
+        Arrays.<Object>asList(10, 20));
+
+    String sql = "select id from a where x = ?;\nselect id from b where y = ?";
+    verify(connection).prepareStatement(sql);
+    verify(statement).setQueryTimeout(7);
+    assertEquals(Arrays.asList("prepare:" + sql, "parameterize:" + sql, "query:" + sql), interceptor.intercepted);
+  }
+
+  @Test
+  public void shouldFallBackAndRememberWhenDriverRejectsCombinedQueries() throws Exception {
+    DataSource dataSource = mock(DataSource.class);
+    configuration.setEnvironment(new Environment("test", mock(TransactionFactory.class), dataSource));
+    String sql = "select id from a where x = ?;\nselect id from b where y = ?";
+    PreparedStatement combined = mock(PreparedStatement.class);
+    when(connection.prepareStatement(sql)).thenReturn(combined);
+    when(combined.execute()).thenThrow(new SQLException("You have an error in your SQL syntax", "42000"));
+    when(statement.getResultSet()).thenAnswer(invocation -> newResultSet(5));
+    List<MappedStatement> mappedStatements = Arrays.asList(newMappedStatement("first", "select id from a where x = ?", 1),
+        newMappedStatement("second", "select id from b where y = ?", 1));
+
+    List<List<Object>> results = newExecutor().queryMultiple(mappedStatements, Arrays.<Object>asList(10, 20));
+
+    assertEquals(Collections.singletonList(5), results.get(0));
+    assertEquals(Collections.singletonList(5), results.get(1));
+    verify(combined).close();
+    assertEquals(Boolean.FALSE, configuration.getMultiStatementSupport(dataSource));
+
+    // 之后直接逐个执行
+    newExecutor().queryMultiple(mappedStatements, Arrays.<Object>asList(30, 40));
+    verify(connection, times(1)).prepareStatement(sql);
+    verify(connection, times(2)).prepareStatement("select id from a where x = ?");
+  }
+
+  @Test
+  public void shouldRollBackToSavepointWhenProbingInsideTransaction() throws Exception {
+    Savepoint savepoint = mock(Savepoint.class);
+    when(connection.getAutoCommit()).thenReturn(false);
+    when(metaData.supportsSavepoints()).thenReturn(true);
+    when(connection.setSavepoint()).thenReturn(savepoint);
+    when(statement.execute()).thenThrow(new SQLException("cannot insert multiple commands into a prepared statement", "42601"))
+        .thenReturn(true);
+    when(statement.getResultSet()).thenAnswer(invocation -> newResultSet(5));
+
+    newExecutor().queryMultiple(
+        Arrays.asList(newMappedStatement("first", "select id from a where x = ?", 1),
+            newMappedStatement("second", "select id from b where y = ?", 1)),
+        Arrays.<Object>asList(10, 20));
+
+    verify(connection).rollback(savepoint);
+    verify(connection).prepareStatement("select id from a where x = ?");
+    verify(connection).prepareStatement("select id from b where y = ?");
+  }
+
+  private BaseExecutor newExecutor() throws Exception {
+    Transaction transaction = mock(Transaction.class);
+    when(transaction.getConnection()).thenReturn(connection);
+    return new SimpleExecutor(configuration, transaction);
+  }
+
+  private MappedStatement newMappedStatement(String id, String sql, int parameterCount) {
+    return newMappedStatement(id, sql, parameterCount, null);
+  }
+
+  private MappedStatement newMappedStatement(String id, String sql, int parameterCount, Integer fetchSize) {
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    for (int i = 0; i < parameterCount; i++) {
+      parameterMappings.add(new ParameterMapping.Builder(configuration, "value", Integer.class).build());
+    }
+    ResultMap resultMap = new ResultMap.Builder(configuration, id + "-Inline", Integer.class, new ArrayList<>()).build();
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, sql, parameterMappings), SqlCommandType.SELECT)
+        .resultMaps(Collections.singletonList(resultMap)).fetchSize(fetchSize).build();
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+      @Signature(type = StatementHandler.class, method = "parameterize", args = Statement.class),
+      @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }) })
+  public static class RecordingInterceptor implements Interceptor {
+
+    private final List<String> intercepted = new ArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      intercepted.add(invocation.getMethod().getName() + ":" + ((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+  }
+
+  private ResultSet newResultSet(Integer... ids) throws Exception {
+    ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+    when(rsmd.getColumnCount()).thenReturn(1);
+    when(rsmd.getColumnLabel(1)).thenReturn("ID");
+    when(rsmd.getColumnType(1)).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(1)).thenReturn(Integer.class.getName());
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    // 每行一个 true，最后一个 false
+    Boolean[] next = new Boolean[ids.length];
+    Arrays.fill(next, Boolean.TRUE);
+    next[ids.length - 1] = Boolean.FALSE;
+    when(rs.next()).thenReturn(true, next);
+    when(rs.getInt("ID")).thenReturn(ids[0], Arrays.copyOfRange(ids, 1, ids.length));
+    return rs;
+  }
+
+}
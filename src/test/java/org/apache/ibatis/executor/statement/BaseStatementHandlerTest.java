@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.apache.ibatis.executor.statement;
 import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,8 +28,10 @@ import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -141,4 +144,87 @@ public class BaseStatementHandlerTest {
         verify(statement).setQueryTimeout(10);
     }
 
+    @Test
+    public void specifyAdaptiveFetchSizeFromRecordedRows() throws SQLException {
+        configuration.setAdaptiveFetchSize(true);
+        recordRows(200, 0);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.setFetchSize(statement);
+
+        verify(statement).setFetchSize(201); // one more row to detect the end in a single round trip
+    }
+
+    @Test
+    public void specifyAdaptiveFetchSizeWithinLimits() throws SQLException {
+        configuration.setAdaptiveFetchSize(true);
+        recordRows(5000, 0);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, RowBounds.DEFAULT, null, null);
+        handler.setFetchSize(statement);
+        verify(statement).setFetchSize(1000); // apply maxAdaptiveFetchSize
+
+        handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, new RowBounds(10, 40), null, null);
+        handler.setFetchSize(statement);
+        verify(statement).setFetchSize(50); // never read more than offset + limit
+    }
+
+    @Test
+    public void specifyDefaultFetchSizeUntilEnoughSamples() throws SQLException {
+        configuration.setAdaptiveFetchSize(true);
+        configuration.setDefaultFetchSize(100);
+        configuration.getStatementStatistics("id", true).record(5000, 0);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.setFetchSize(statement);
+
+        verify(statement).setFetchSize(100); // apply a default fetch size
+    }
+
+    @Test
+    public void specifyAdaptiveTimeoutBoundedByDefaultTimeout() throws SQLException {
+        configuration.setAdaptiveStatementTimeout(true);
+        recordRows(1, 500);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.setStatementTimeout(statement, null);
+        verify(statement).setQueryTimeout(5); // ten times the slowest recent execution
+
+        configuration.setDefaultStatementTimeout(3);
+        handler.setStatementTimeout(statement, null);
+        verify(statement).setQueryTimeout(3); // apply a default timeout as the upper bound
+    }
+
+    @Test
+    public void specifyAdaptiveTimeoutNotBelowMinimum() throws SQLException {
+        configuration.setAdaptiveStatementTimeout(true);
+        configuration.setMinAdaptiveStatementTimeout(10);
+        recordRows(1, 10);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.setStatementTimeout(statement, null);
+        verify(statement).setQueryTimeout(10); // apply minAdaptiveStatementTimeout as the lower bound
+    }
+
+    @Test
+    public void recordTimedOutExecutionAsCurrentTimeout() throws SQLException {
+        configuration.setAdaptiveStatementTimeout(true);
+        recordRows(1, 10);
+        when(statement.getQueryTimeout()).thenReturn(5);
+
+        BaseStatementHandler handler = new SimpleStatementHandler(null, mappedStatementBuilder.build(), null, null, null, null);
+        handler.recordTimeout(statement, System.nanoTime(), new SQLException("syntax", "42000"));
+        handler.recordTimeout(statement, System.nanoTime(), new SQLTimeoutException());
+        assertEquals(1, configuration.getStatementStatistics("id", false).getTimeouts());
+
+        handler.setStatementTimeout(statement, null);
+        verify(statement).setQueryTimeout(50); // ten times the timed-out execution
+    }
+
+    private void recordRows(int rows, long elapsedMillis) {
+        for (int i = 0; i < StatementStatistics.MIN_SAMPLES; i++) {
+            configuration.getStatementStatistics("id", true).record(rows, elapsedMillis);
+        }
+    }
+
 }
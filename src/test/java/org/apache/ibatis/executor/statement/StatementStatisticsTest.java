@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.statement;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class StatementStatisticsTest {
+
+  @Test
+  public void shouldKeepHistogramOfAllExecutions() {
+    StatementStatistics statistics = new StatementStatistics();
+    statistics.record(0, 1);
+    statistics.record(1, 1);
+    statistics.record(3, 1);
+    statistics.record(1000, 1);
+
+    long[] histogram = statistics.getHistogram();
+    assertEquals(1, histogram[0]);
+    assertEquals(1, histogram[1]);
+    assertEquals(1, histogram[2]);
+    assertEquals(1, histogram[10]);
+    assertEquals(4, statistics.getExecutions());
+    assertEquals(1004, statistics.getTotalRows());
+  }
+
+  @Test
+  public void shouldUseRecentWindowForPercentiles() {
+    StatementStatistics statistics = new StatementStatistics();
+    for (int i = 0; i < StatementStatistics.WINDOW; i++) {
+      statistics.record(10000, 100);
+    }
+    for (int i = 1; i <= StatementStatistics.WINDOW; i++) {
+      statistics.record(i, 10);
+    }
+
+    assertEquals(16, statistics.getRowsPercentile(50));
+    assertEquals(29, statistics.getRowsPercentile(90));
+    assertEquals(StatementStatistics.WINDOW, statistics.getRowsPercentile(100));
+    assertEquals(10, statistics.getMaxElapsedMillis());
+    assertEquals(Integer.valueOf(30), statistics.suggestFetchSize(1, 1000));
+    assertEquals(Integer.valueOf(50), statistics.suggestFetchSize(50, 1000));
+    assertEquals(Integer.valueOf(1), statistics.suggestTimeout(1, null));
+    assertEquals(2 * StatementStatistics.WINDOW, statistics.getExecutions());
+  }
+
+  @Test
+  public void shouldNotSuggestWithoutEnoughSamples() {
+    StatementStatistics statistics = new StatementStatistics();
+    for (int i = 1; i < StatementStatistics.MIN_SAMPLES; i++) {
+      statistics.record(100, 100);
+    }
+    assertNull(statistics.suggestFetchSize(1, 1000));
+    assertNull(statistics.suggestTimeout(1, null));
+    assertArrayEquals(new long[] { 0, 0, 0, 0, 0, 0, 0, StatementStatistics.MIN_SAMPLES - 1 },
+        Arrays.copyOf(statistics.getHistogram(), 8));
+  }
+
+  @Test
+  public void shouldNotSuggestTimeoutBelowMinimum() {
+    StatementStatistics statistics = new StatementStatistics();
+    for (int i = 0; i < StatementStatistics.MIN_SAMPLES; i++) {
+      statistics.record(1, 10);
+    }
+    assertEquals(Integer.valueOf(5), statistics.suggestTimeout(5, null));
+    assertEquals(Integer.valueOf(3), statistics.suggestTimeout(5, 3));
+    statistics.record(1, 2000);
+    assertEquals(Integer.valueOf(20), statistics.suggestTimeout(5, null));
+  }
+
+  @Test
+  public void shouldRaiseTimeoutAfterTimedOutExecution() {
+    StatementStatistics statistics = new StatementStatistics();
+    for (int i = 0; i < StatementStatistics.MIN_SAMPLES; i++) {
+      statistics.record(100, 10);
+    }
+    assertEquals(Integer.valueOf(5), statistics.suggestTimeout(5, null));
+    statistics.recordTimeout(5000);
+
+    assertEquals(Integer.valueOf(50), statistics.suggestTimeout(5, null));
+    assertEquals(Integer.valueOf(30), statistics.suggestTimeout(5, 30));
+    assertEquals(1, statistics.getTimeouts());
+    assertEquals(StatementStatistics.MIN_SAMPLES, statistics.getExecutions());
+    assertEquals(100, statistics.getRowsPercentile(0));
+    assertEquals(100, statistics.getRowsPercentile(100));
+    assertEquals(Integer.valueOf(101), statistics.suggestFetchSize(1, 1000));
+  }
+
+  @Test
+  public void shouldRememberRareSlowExecutionBeyondWindow() {
+    long[] now = { 0 };
+    StatementStatistics statistics = new StatementStatistics(() -> now[0]);
+    for (int i = 0; i < StatementStatistics.MIN_SAMPLES; i++) {
+      statistics.record(100, 10);
+    }
+    // 月底的报表
+    statistics.record(100, 60000);
+    statistics.recordTimeout(70000);
+    for (int i = 0; i < 10 * StatementStatistics.WINDOW; i++) {
+      statistics.record(100, 10);
+    }
+    assertEquals(10, statistics.getMaxElapsedMillis());
+    assertEquals(Integer.valueOf(700), statistics.suggestTimeout(5, null));
+
+    // 峰值每 30 天减半
+    now[0] += StatementStatistics.PEAK_HALF_LIFE_MILLIS;
+    assertEquals(35000, statistics.getPeakElapsedMillis());
+    assertEquals(Integer.valueOf(350), statistics.suggestTimeout(5, null));
+  }
+
+  @Test
+  public void shouldNotSuggestFetchSizeFromTimedOutExecutions() {
+    StatementStatistics statistics = new StatementStatistics();
+    for (int i = 1; i < StatementStatistics.MIN_SAMPLES; i++) {
+      statistics.record(100, 10);
+    }
+    statistics.recordTimeout(1000);
+    assertNull(statistics.suggestFetchSize(1, 1000));
+    assertEquals(Integer.valueOf(10), statistics.suggestTimeout(1, null));
+  }
+
+  @Test
+  public void shouldRecognizeTimeoutExceptions() {
+    assertTrue(StatementStatistics.isTimeout(new SQLTimeoutException()));
+    assertTrue(StatementStatistics.isTimeout(new SQLException("canceled", "57014")));
+    assertTrue(StatementStatistics.isTimeout(new SQLException("timeout", "HYT00")));
+    assertFalse(StatementStatistics.isTimeout(new SQLException("syntax", "42000")));
+  }
+
+}
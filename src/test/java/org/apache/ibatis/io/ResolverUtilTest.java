@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.Test;
+
+public class ResolverUtilTest {
+
+  @Test
+  public void shouldReadClassFileWithoutLoadingClass() {
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+    ClassFile classFile = resolverUtil.getClassFile(IntegerTypeHandler.class.getName());
+
+    assertEquals(IntegerTypeHandler.class.getName(), classFile.getName());
+    assertEquals(BaseTypeHandler.class.getName(), classFile.getSuperName());
+    assertFalse(classFile.isInterface());
+    assertFalse(classFile.isAbstract());
+    assertFalse(classFile.isMemberClass());
+    assertTrue(classFile.maybeSubtypeOf(TypeHandler.class.getName()));
+    assertFalse(classFile.maybeSubtypeOf(List.class.getName()));
+    assertTrue(resolverUtil.getClassFile(TypeHandler.class.getName()).isInterface());
+    assertTrue(resolverUtil.getClassFile(BaseTypeHandler.class.getName()).isAbstract());
+  }
+
+  @Test
+  public void shouldReadAnnotationsAndNestingFromClassFile() {
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+    ClassFile annotated = resolverUtil.getClassFile(AnnotatedHandler.class.getName());
+
+    assertTrue(annotated.isMemberClass());
+    assertFalse(annotated.isAnonymousClass());
+    assertEquals(Collections.singleton(MappedTypes.class.getName()), annotated.getAnnotationNames());
+    assertTrue(annotated.maybeAnnotatedWith(MappedTypes.class.getName(), false));
+    assertFalse(annotated.maybeAnnotatedWith(Deprecated.class.getName(), false));
+
+    Object anonymous = new Object() {
+    };
+    assertTrue(resolverUtil.getClassFile(anonymous.getClass().getName()).isAnonymousClass());
+  }
+
+  @Test
+  public void shouldNotLoadClassesRejectedByClassFile() {
+    RecordingClassLoader loader = new RecordingClassLoader();
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+    resolverUtil.setClassLoader(loader);
+    resolverUtil.find(new ResolverUtil.IsA(TypeHandler.class), "org.apache.ibatis.type");
+
+    assertTrue(resolverUtil.getClasses().contains(IntegerTypeHandler.class));
+    assertFalse(resolverUtil.getClasses().contains(JdbcType.class));
+    assertTrue(loader.loaded.contains(IntegerTypeHandler.class.getName()));
+    assertFalse(loader.loaded.contains(JdbcType.class.getName()));
+  }
+
+  @Test
+  public void shouldFindAnnotatedClasses() {
+    ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+    resolverUtil.findAnnotated(MappedTypes.class, "org.apache.ibatis.io");
+
+    assertTrue(resolverUtil.getClasses().contains(AnnotatedHandler.class));
+    assertFalse(resolverUtil.getClasses().contains(ResolverUtilTest.class));
+  }
+
+  @Test
+  public void shouldUsePackageIndexInsteadOfListing() throws Exception {
+    File dir = Files.createTempDirectory("package-index").toFile();
+    File packageDir = new File(dir, "indexed/pkg");
+    assertTrue(packageDir.mkdirs());
+    File index = new File(packageDir, PackageIndex.INDEX_FILE);
+    try (OutputStream out = new FileOutputStream(index)) {
+      out.write("org/apache/ibatis/type/IntegerTypeHandler.class\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    ClassLoader original = Thread.currentThread().getContextClassLoader();
+    try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, original)) {
+      Thread.currentThread().setContextClassLoader(loader);
+      ResolverUtil<Object> resolverUtil = new ResolverUtil<>();
+      resolverUtil.find(new ResolverUtil.IsA(TypeHandler.class), "indexed.pkg");
+      assertEquals(Collections.singleton(IntegerTypeHandler.class), resolverUtil.getClasses());
+    } finally {
+      Thread.currentThread().setContextClassLoader(original);
+      index.delete();
+      packageDir.delete();
+      packageDir.getParentFile().delete();
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void shouldWritePackageIndex() throws Exception {
+    File dir = Files.createTempDirectory("package-index").toFile();
+    File subDir = new File(dir, "a/b/c");
+    assertTrue(subDir.mkdirs());
+    File first = new File(dir, "a/b/First.class");
+    File second = new File(subDir, "Second.class");
+    File other = new File(subDir, "other.xml");
+    assertTrue(first.createNewFile() && second.createNewFile() && other.createNewFile());
+    File index = new File(dir, "a/b/" + PackageIndex.INDEX_FILE);
+    try {
+      assertEquals(2, PackageIndex.write(dir, "a.b"));
+      List<String> resources = PackageIndex.read(new File(dir, "a/b").toURI().toURL());
+      assertEquals(2, resources.size());
+      assertTrue(resources.contains("a/b/First.class"));
+      assertTrue(resources.contains("a/b/c/Second.class"));
+    } finally {
+      for (File file : new File[] { index, first, second, other, subDir, subDir.getParentFile(),
+          subDir.getParentFile().getParentFile(), dir }) {
+        file.delete();
+      }
+    }
+  }
+
+  @MappedTypes(Integer.class)
+  public static class AnnotatedHandler {
+  }
+
+  private static class RecordingClassLoader extends ClassLoader {
+    private final Set<String> loaded = new HashSet<>();
+
+    RecordingClassLoader() {
+      super(ResolverUtilTest.class.getClassLoader());
+    }
+
+    @Override
+    public Class<?> loadClass(String name) throws ClassNotFoundException {
+      loaded.add(name);
+      return super.loadClass(name);
+    }
+  }
+
+}
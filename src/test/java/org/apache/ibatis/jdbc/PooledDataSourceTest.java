@@ -24,6 +24,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
@@ -91,6 +92,92 @@ public class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  public void shouldReusePreparedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(1);
+      Connection c = ds.getConnection();
+      PreparedStatement first = c.prepareStatement("SELECT * FROM PRODUCT");
+      assertSame(c, first.getConnection());
+      first.executeQuery().close();
+      first.close();
+      assertTrue(first.isClosed());
+      c.close();
+
+      c = ds.getConnection();
+      PreparedStatement second = c.prepareStatement("SELECT * FROM PRODUCT");
+      // 嵌套使用同一条 sql 时不走缓存
+      PreparedStatement nested = c.prepareStatement("SELECT * FROM PRODUCT");
+      second.executeQuery().close();
+      nested.executeQuery().close();
+      nested.close();
+      second.close();
+      // 超出缓存大小，淘汰前一条
+      PreparedStatement other = c.prepareStatement("SELECT * FROM CATEGORY");
+      other.close();
+      c.close();
+
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+      assertEquals(3, ds.getPoolState().getStatementCacheMissCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseOpenResultSetWhenStatementReturnsToCache() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(1);
+      Connection c = ds.getConnection();
+      PreparedStatement statement = c.prepareStatement("SELECT * FROM PRODUCT");
+      ResultSet rs = statement.executeQuery();
+      assertFalse(rs.isClosed());
+      statement.close();
+      assertTrue(rs.isClosed());
+      c.close();
+
+      c = ds.getConnection();
+      statement = c.prepareStatement("SELECT * FROM PRODUCT");
+      assertNull(statement.getResultSet());
+      statement.close();
+      c.close();
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldExcludeCheckoutWhileHoldingPoolStateLock() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      CompletableFuture<Connection> checkout;
+      ds.getPoolState().getLock().lock();
+      try {
+        checkout = CompletableFuture.supplyAsync(() -> {
+          try {
+            return ds.getConnection();
+          } catch (SQLException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+        Thread.sleep(200);
+        assertFalse(checkout.isDone());
+      } finally {
+        ds.getPoolState().getLock().unlock();
+      }
+      checkout.get(10, TimeUnit.SECONDS).close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
   @Ignore("See the comments")
   @Test
   public void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
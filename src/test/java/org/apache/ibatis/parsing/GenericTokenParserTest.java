@@ -16,6 +16,7 @@
 package org.apache.ibatis.parsing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -84,6 +85,26 @@ public class GenericTokenParserTest {
     assertEquals("The null is ${skipped} variable", parser.parse("The ${skipped} is \\${skipped} variable"));
   }
 
+  @Test
+  public void shouldReturnSameInstanceWhenNoTokenFound() {
+    GenericTokenParser parser = new GenericTokenParser("${", "}", new VariableTokenHandler(new HashMap<String, String>()));
+
+    String text = "select * from users where id = 1";
+    assertSame(text, parser.parse(text));
+  }
+
+  @Test
+  public void shouldResetEscapedExpressionBetweenTokens() {
+    GenericTokenParser parser = new GenericTokenParser("${", "}", new VariableTokenHandler(new HashMap<String, String>() {
+      {
+        put("a}b", "1");
+        put("c", "2");
+      }
+    }));
+
+    assertEquals("1 2", parser.parse("${a\\}b} ${c}"));
+  }
+
   @Ignore("Because it randomly fails on Travis CI. It could be useful during development.")
   @Test(timeout = 1000)
   public void shouldParseFastOnJdk7u6() {
@@ -80,4 +80,13 @@ public class PropertyParserTest {
     Assertions.assertThat(PropertyParser.parse("${key?::}", props)).isEqualTo(":");
   }
 
+  @Test
+  public void shouldReturnSameInstanceWithoutPlaceholder() {
+    Properties props = new Properties();
+    props.setProperty("key", "value");
+    String text = "SELECT * FROM users";
+    Assertions.assertThat(PropertyParser.parse(text, props)).isSameAs(text);
+    Assertions.assertThat(PropertyParser.parse(text, null)).isSameAs(text);
+  }
+
 }
@@ -16,8 +16,10 @@
 package org.apache.ibatis.parsing;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.io.InputStream;
+import java.util.List;
 
 import org.apache.ibatis.io.Resources;
 import org.junit.Test;
@@ -44,4 +46,40 @@ public class XPathParserTest {
     }
   }
 
+  @Test
+  public void shouldEvaluateSimplePathsLikeXPath() throws Exception {
+    String resource = "resources/nodelet_test.xml";
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      XPathParser parser = new XPathParser(inputStream, false, null, null);
+      XNode employee = parser.evalNode("/*");
+      assertEquals("employee", employee.getName());
+      List<XNode> names = employee.evalNodes("last_name|first_name");
+      assertEquals(2, names.size());
+      assertEquals("Jim", names.get(0).getStringBody());
+      assertEquals("Smith", names.get(1).getStringBody());
+      assertEquals("1970", employee.evalNode("birth_date/year").getStringBody());
+      assertEquals(3, parser.evalNodes("/employee/birth_date/*").size());
+      assertNull(parser.evalNode("/employee/missing"));
+      assertEquals(0, employee.evalNodes("missing|other").size());
+      // 复杂表达式仍由 XPath 处理
+      assertEquals(2, parser.evalNodes("/employee/*[@units]").size());
+      assertEquals(3, parser.evalNodes("//birth_date/*").size());
+    }
+  }
+
+  @Test
+  public void shouldReadSameTreeWithStreamingReader() throws Exception {
+    String resource = "resources/nodelet_test.xml";
+    XPathParser domParser;
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      domParser = new XPathParser(inputStream, false, null, null);
+    }
+    XPathParser streamParser;
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      streamParser = new XPathParser(XMLStreamDocumentReader.read(inputStream, null), false, null, null);
+    }
+    assertEquals(domParser.evalNode("/employee").toString(), streamParser.evalNode("/employee").toString());
+    assertEquals("ft", streamParser.evalNode("/employee/height").getStringAttribute("units"));
+  }
+
 }
@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+/**
+ * Generated by org.apache.ibatis.reflection.AccessorGenerator, do not edit.
+ */
+public class AccessorModel_MyBatisAccessor extends org.apache.ibatis.reflection.GeneratedAccessor {
+
+  @SuppressWarnings({"rawtypes", "unchecked", "static-access"})
+  public AccessorModel_MyBatisAccessor() {
+    super(org.apache.ibatis.reflection.AccessorModel.class, true);
+    addGetter("active", java.lang.Boolean.class, target -> ((org.apache.ibatis.reflection.AccessorModel) target).active);
+    addGetter("id", int.class, target -> ((org.apache.ibatis.reflection.AccessorModel) target).getId());
+    addGetter("name", java.lang.String.class, target -> ((org.apache.ibatis.reflection.AccessorModel) target).getName());
+    addGetter("tags", java.util.List.class, target -> ((org.apache.ibatis.reflection.AccessorModel) target).getTags());
+    addSetter("active", java.lang.Boolean.class, (target, value) -> ((org.apache.ibatis.reflection.AccessorModel) target).active = (java.lang.Boolean) value);
+    addSetter("id", int.class, (target, value) -> ((org.apache.ibatis.reflection.AccessorModel) target).setId((java.lang.Integer) value));
+    addSetter("name", java.lang.String.class, (target, value) -> ((org.apache.ibatis.reflection.AccessorModel) target).setName((java.lang.String) value));
+    addSetter("tags", java.util.List.class, (target, value) -> ((org.apache.ibatis.reflection.AccessorModel) target).setTags((java.util.List) value));
+  }
+
+}
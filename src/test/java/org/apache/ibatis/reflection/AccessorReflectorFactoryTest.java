@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.misc.CustomBeanWrapper;
+import org.apache.ibatis.domain.misc.CustomBeanWrapperFactory;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.LambdaGetInvoker;
+import org.apache.ibatis.reflection.invoker.LambdaSetInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.wrapper.AccessorObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.junit.Test;
+
+public class AccessorReflectorFactoryTest {
+
+  private final ReflectorFactory reflectorFactory = new AccessorReflectorFactory();
+
+  @Test
+  public void shouldUseGeneratedAccessor() {
+    Reflector reflector = reflectorFactory.findForClass(AccessorModel.class);
+    Reflector reflective = new Reflector(AccessorModel.class);
+
+    assertEquals(new HashSet<>(Arrays.asList(reflective.getGetablePropertyNames())),
+        new HashSet<>(Arrays.asList(reflector.getGetablePropertyNames())));
+    assertEquals(new HashSet<>(Arrays.asList(reflective.getSetablePropertyNames())),
+        new HashSet<>(Arrays.asList(reflector.getSetablePropertyNames())));
+    assertTrue(reflector.getGetInvoker("name") instanceof LambdaGetInvoker);
+    assertTrue(reflector.getSetInvoker("active") instanceof LambdaSetInvoker);
+    assertEquals(int.class, reflector.getSetterType("id"));
+    assertEquals("name", reflector.findPropertyName("NAME"));
+    assertTrue(reflector.hasDefaultConstructor());
+  }
+
+  @Test
+  public void shouldGetAndSetPropertiesThroughGeneratedAccessor() {
+    AccessorModel model = new AccessorModel();
+    MetaObject metaObject = MetaObject.forObject(model, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+    metaObject.setValue("id", 1);
+    metaObject.setValue("name", "mybatis");
+    metaObject.setValue("active", true);
+    metaObject.setValue("tags", Arrays.asList("a", "b"));
+
+    assertEquals(1, model.getId());
+    assertEquals("mybatis", metaObject.getValue("name"));
+    assertEquals(Boolean.TRUE, metaObject.getValue("active"));
+    assertEquals("b", metaObject.getValue("tags[1]"));
+  }
+
+  @Test
+  public void shouldResolveGenericTypesWithGeneratedAccessor() {
+    MetaClass metaClass = MetaClass.forClass(AccessorModel.class, reflectorFactory);
+    assertEquals(String.class, metaClass.getGetterType("tags[0]"));
+    Reflector reflector = reflectorFactory.findForClass(AccessorModel.class);
+    assertSame(reflector.getReflectiveReflector(), reflector.getReflectiveReflector());
+  }
+
+  @Test
+  public void shouldPreferGeneratedAccessorInObjectWrapperFactory() {
+    AccessorModel model = new AccessorModel();
+    ObjectWrapperFactory objectWrapperFactory = new AccessorObjectWrapperFactory();
+    assertTrue(objectWrapperFactory.hasWrapperFor(model, reflectorFactory));
+    assertFalse(objectWrapperFactory.hasWrapperFor(new Author(), reflectorFactory));
+    assertFalse(objectWrapperFactory.hasWrapperFor(new HashMap<>(), reflectorFactory));
+    // 使用配置的 ReflectorFactory，默认实现没有生成的访问器
+    assertFalse(objectWrapperFactory.hasWrapperFor(model, new DefaultReflectorFactory()));
+
+    MetaObject metaObject = MetaObject.forObject(model, new DefaultObjectFactory(), objectWrapperFactory, reflectorFactory);
+    assertTrue(metaObject.getObjectWrapper() instanceof BeanWrapper);
+    metaObject.setValue("name", "mybatis");
+    assertEquals("mybatis", model.getName());
+    assertEquals("mybatis", metaObject.getValue("name"));
+  }
+
+  @Test
+  public void shouldShareReflectorsWithConfiguredFactory() {
+    Reflector reflector = reflectorFactory.findForClass(AccessorModel.class);
+    assertTrue(new AccessorObjectWrapperFactory().hasWrapperFor(new AccessorModel(), reflectorFactory));
+    assertSame(reflector, reflectorFactory.findForClass(AccessorModel.class));
+  }
+
+  @Test
+  public void shouldDelegateObjectsWithoutAccessor() {
+    ObjectWrapperFactory objectWrapperFactory = new AccessorObjectWrapperFactory(new CustomBeanWrapperFactory());
+    Author author = new Author();
+    assertTrue(objectWrapperFactory.hasWrapperFor(author, reflectorFactory));
+    MetaObject metaObject = MetaObject.forObject(author, new DefaultObjectFactory(), objectWrapperFactory, reflectorFactory);
+    assertTrue(metaObject.getObjectWrapper() instanceof CustomBeanWrapper);
+  }
+
+  @Test
+  public void shouldFallBackToReflectionWithoutAccessor() {
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    assertTrue(reflector.getGetInvoker("username") instanceof MethodInvoker);
+  }
+
+  @Test
+  public void shouldGenerateAccessorSource() {
+    String source = AccessorGenerator.generate(Author.class);
+    assertTrue(source.contains("public class Author_MyBatisAccessor extends org.apache.ibatis.reflection.GeneratedAccessor"));
+    assertTrue(source.contains("super(org.apache.ibatis.domain.blog.Author.class, true);"));
+    assertTrue(source.contains("addGetter(\"username\", java.lang.String.class, target -> ((org.apache.ibatis.domain.blog.Author) target).getUsername());"));
+    assertTrue(source.contains("addSetter(\"id\", int.class, (target, value) -> ((org.apache.ibatis.domain.blog.Author) target).setId((java.lang.Integer) value));"));
+  }
+
+  @Test
+  public void shouldMarkAccessorIncompleteForPrivateMembers() {
+    // RichType 的 richField 是没有 getter/setter 的私有字段
+    String source = AccessorGenerator.generate(RichType.class);
+    assertTrue(source.contains("super(org.apache.ibatis.domain.misc.RichType.class, false);"));
+    assertFalse(source.contains("\"richField\""));
+    assertTrue(source.contains("addGetter(\"richProperty\""));
+  }
+
+  @Test
+  public void shouldNotGenerateAccessorForUnsupportedTypes() {
+    assertNull(AccessorGenerator.generate(Runnable.class));
+    assertNull(AccessorGenerator.generate(AccessorModel_MyBatisAccessor.class));
+  }
+
+}
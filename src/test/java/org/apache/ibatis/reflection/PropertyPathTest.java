@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+import org.junit.Test;
+
+public class PropertyPathTest {
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+
+  @Test
+  public void shouldCachePathPerRootType() {
+    Reflector reflector = reflectorFactory.findForClass(RichType.class);
+    assertSame(reflector.getPropertyPath("richType.richProperty"), reflector.getPropertyPath("richType.richProperty"));
+  }
+
+  @Test
+  public void shouldNotCacheForEachGeneratedNames() {
+    Reflector reflector = reflectorFactory.findForClass(HashMap.class);
+    assertNotSame(reflector.getPropertyPath("__frch_item_0.name"), reflector.getPropertyPath("__frch_item_0.name"));
+    assertSame(reflector.getPropertyPath("item.name"), reflector.getPropertyPath("item.name"));
+  }
+
+  @Test
+  public void shouldKeepCachingAfterReachingLimit() {
+    Reflector reflector = reflectorFactory.findForClass(HashMap.class);
+    for (int i = 0; i < 5000; i++) {
+      reflector.getPropertyPath("param" + i);
+    }
+    assertSame(reflector.getPropertyPath("id"), reflector.getPropertyPath("id"));
+  }
+
+  @Test
+  public void shouldGetAndSetNestedProperties() {
+    RichType rich = new RichType();
+    MetaObject meta = forObject(rich);
+
+    assertNull(meta.getValue("richType.richType.richProperty"));
+    meta.setValue("richType.richType.richProperty", "foo");
+    assertNotNull(rich.getRichType().getRichType());
+    assertEquals("foo", meta.getValue("richType.richType.richProperty"));
+  }
+
+  @Test
+  public void shouldNotInstantiateForNullValue() {
+    RichType rich = new RichType();
+    forObject(rich).setValue("richType.richProperty", null);
+    assertNull(rich.getRichType());
+  }
+
+  @Test
+  public void shouldResolveIndexedProperties() {
+    RichType rich = new RichType();
+    rich.getRichMap().put("key", "value");
+    rich.setRichList(new ArrayList<>(Arrays.asList("a", "b")));
+    RichType child = new RichType();
+    child.setRichProperty("child");
+    rich.getRichMap().put("child", child);
+    MetaObject meta = forObject(rich);
+
+    assertEquals("value", meta.getValue("richMap[key]"));
+    assertEquals("value", meta.getValue("richMap.key"));
+    assertEquals("b", meta.getValue("richList[1]"));
+    assertEquals("child", meta.getValue("richMap[child].richProperty"));
+    meta.setValue("richList[0]", "c");
+    assertEquals("c", rich.getRichList().get(0));
+
+    Map<String, Object> map = new HashMap<>();
+    map.put("array", new int[] {1, 2, 3});
+    assertEquals(3, forObject(map).getValue("array[2]"));
+  }
+
+  @Test
+  public void shouldHandleDifferentTypesWithSameExpression() {
+    Map<String, Object> map = new HashMap<>();
+    RichType rich = new RichType();
+    rich.setRichProperty("rich");
+    map.put("value", rich);
+    Map<String, Object> nested = new HashMap<>();
+    nested.put("richProperty", "map");
+
+    assertEquals("rich", forObject(map).getValue("value.richProperty"));
+    map.put("value", nested);
+    assertEquals("map", forObject(map).getValue("value.richProperty"));
+    map.put("value", new Author(1, "author", null, null, null, null));
+    try {
+      forObject(map).getValue("value.richProperty");
+      fail();
+    } catch (ReflectionException e) {
+      assertEquals("There is no getter for property named 'richProperty' in 'class org.apache.ibatis.domain.blog.Author'", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldPropagateGetterExceptions() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("bean", new FailingBean());
+    try {
+      forObject(map).getValue("bean.value");
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldDelegateToCustomObjectWrapper() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("author", new Author(1, "author", null, null, null, null));
+    ObjectWrapperFactory wrapperFactory = new ObjectWrapperFactory() {
+      @Override
+      public boolean hasWrapperFor(Object object) {
+        return object instanceof Author;
+      }
+
+      @Override
+      public ObjectWrapper getWrapperFor(MetaObject metaObject, Object object) {
+        return new BeanWrapper(metaObject, object) {
+          @Override
+          public Object get(PropertyTokenizer prop) {
+            return "wrapped " + prop.getName();
+          }
+        };
+      }
+    };
+    MetaObject meta = MetaObject.forObject(map, new DefaultObjectFactory(), wrapperFactory, reflectorFactory);
+    assertEquals("wrapped username", meta.getValue("author.username"));
+  }
+
+  @Test
+  public void shouldMatchMetaObjectWithoutClassCache() {
+    DefaultReflectorFactory uncached = new DefaultReflectorFactory();
+    uncached.setClassCacheEnabled(false);
+    RichType rich = new RichType();
+    MetaObject meta = MetaObject.forObject(rich, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), uncached);
+    meta.setValue("richType.richProperty", "foo");
+    assertEquals("foo", meta.getValue("richType.richProperty"));
+  }
+
+  @Test
+  public void shouldCacheFoundProperties() {
+    MetaClass metaClass = MetaClass.forClass(RichType.class, reflectorFactory);
+    assertEquals("richType.richProperty", metaClass.findProperty("RICHTYPE.RICHPROPERTY"));
+    assertEquals("richType.richProperty", metaClass.findProperty("RICHTYPE.RICHPROPERTY"));
+    assertNull(metaClass.findProperty("unknown"));
+    assertNull(metaClass.findProperty("unknown"));
+  }
+
+  private MetaObject forObject(Object object) {
+    return MetaObject.forObject(object, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+  }
+
+  public static class FailingBean {
+    public String getValue() {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+}
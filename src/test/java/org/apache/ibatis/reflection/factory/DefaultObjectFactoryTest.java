@@ -96,4 +96,40 @@ public class DefaultObjectFactoryTest {
     Set set = defaultObjectFactory.create(Set.class);
     Assert.assertTrue(" set should be HashSet", set instanceof HashSet);
   }
+
+  @Test
+  public void createWithLambdaInvokers() throws Exception {
+    DefaultObjectFactory defaultObjectFactory = new DefaultObjectFactory();
+    defaultObjectFactory.setLambdaInvokers(true);
+    Assert.assertTrue(defaultObjectFactory.create(List.class) instanceof ArrayList);
+    Assert.assertNotNull(defaultObjectFactory.create(PrivateConstructor.class));
+    Assert.assertNotSame(defaultObjectFactory.create(PrivateConstructor.class), defaultObjectFactory.create(PrivateConstructor.class));
+    TestClass testClass = defaultObjectFactory.create(TestClass.class,
+        Arrays.<Class<?>>asList(String.class, Integer.class), Arrays.<Object>asList("foo", 0));
+    Assert.assertEquals("foo", testClass.myString);
+  }
+
+  @Test
+  public void createWithLambdaInvokersThrowsProperErrorMsg() {
+    DefaultObjectFactory defaultObjectFactory = new DefaultObjectFactory();
+    defaultObjectFactory.setLambdaInvokers(true);
+    try {
+      defaultObjectFactory.create(FailingConstructor.class);
+      Assert.fail("Should have thrown ReflectionException");
+    } catch (ReflectionException e) {
+      Assert.assertTrue(e.getMessage().contains("Error instantiating"));
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  public static class PrivateConstructor {
+    private PrivateConstructor() {
+    }
+  }
+
+  public static class FailingConstructor {
+    public FailingConstructor() {
+      throw new IllegalStateException("failed");
+    }
+  }
 }
@@ -0,0 +1,153 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class LambdaInvokersTest {
+
+  @Test
+  public void shouldBindPublicMethodsToLambdas() throws Exception {
+    Reflector reflector = new Reflector(PublicBean.class, true);
+    PublicBean bean = new PublicBean();
+
+    Invoker setter = reflector.getSetInvoker("id");
+    Invoker getter = reflector.getGetInvoker("id");
+    assertTrue(setter instanceof LambdaSetInvoker);
+    assertTrue(getter instanceof LambdaGetInvoker);
+    setter.invoke(bean, new Object[] {5});
+    assertEquals(5, getter.invoke(bean, new Object[0]));
+    assertEquals(int.class, getter.getType());
+  }
+
+  @Test
+  public void shouldUseMethodHandlesForNonPublicMembers() throws Exception {
+    Reflector reflector = new Reflector(HiddenBean.class, true);
+    HiddenBean bean = new HiddenBean();
+
+    assertTrue(reflector.getSetInvoker("name") instanceof MethodHandleInvoker);
+    assertTrue(reflector.getGetInvoker("count") instanceof MethodHandleInvoker);
+    reflector.getSetInvoker("name").invoke(bean, new Object[] {"mybatis"});
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {3L});
+    assertEquals("mybatis", reflector.getGetInvoker("name").invoke(bean, new Object[0]));
+    assertEquals(3L, reflector.getGetInvoker("count").invoke(bean, new Object[0]));
+  }
+
+  @Test
+  public void shouldWrapExceptionsFromMethodHandles() throws Exception {
+    Reflector reflector = new Reflector(HiddenBean.class, true);
+    try {
+      reflector.getGetInvoker("failing").invoke(new HiddenBean(), new Object[0]);
+      fail();
+    } catch (InvocationTargetException e) {
+      assertTrue(e.getCause() instanceof UnsupportedOperationException);
+    }
+  }
+
+  @Test
+  public void shouldReadAndWriteThroughMetaObject() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setLambdaInvokers(true);
+    PublicBean bean = new PublicBean();
+    MetaObject metaObject = MetaObject.forObject(bean, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+
+    metaObject.setValue("id", 1);
+    metaObject.setValue("tags", Arrays.asList("a", "b"));
+    metaObject.setValue("child.id", 2);
+
+    assertEquals(1, bean.getId());
+    assertEquals("b", metaObject.getValue("tags[1]"));
+    assertEquals(2, metaObject.getValue("child.id"));
+    assertNull(metaObject.getValue("child.child"));
+    assertEquals(String.class, MetaClass.forClass(PublicBean.class, reflectorFactory).getGetterType("tags[0]"));
+  }
+
+  @Test
+  public void shouldApplySettingToDefaultFactories() {
+    Configuration configuration = new Configuration();
+    configuration.setUseLambdaInvokers(true);
+    assertTrue(((DefaultReflectorFactory) configuration.getReflectorFactory()).isLambdaInvokers());
+    assertTrue(((DefaultObjectFactory) configuration.getObjectFactory()).isLambdaInvokers());
+    assertTrue(configuration.getReflectorFactory().findForClass(PublicBean.class).getGetInvoker("id") instanceof LambdaGetInvoker);
+    assertSame(configuration.getReflectorFactory().findForClass(PublicBean.class),
+        configuration.getReflectorFactory().findForClass(PublicBean.class));
+  }
+
+  public static class PublicBean {
+    private int id;
+    private List<String> tags;
+    private PublicBean child;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    public void setTags(List<String> tags) {
+      this.tags = tags;
+    }
+
+    public PublicBean getChild() {
+      return child;
+    }
+
+    public void setChild(PublicBean child) {
+      this.child = child;
+    }
+  }
+
+  static class HiddenBean {
+    private String name;
+    private long count;
+
+    String getName() {
+      return name;
+    }
+
+    void setName(String name) {
+      this.name = name;
+    }
+
+    public String getFailing() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
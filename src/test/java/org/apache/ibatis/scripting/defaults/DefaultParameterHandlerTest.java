@@ -18,17 +18,22 @@ package org.apache.ibatis.scripting.defaults;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.LongTypeHandler;
 import org.apache.ibatis.type.TypeException;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -36,6 +41,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -70,6 +77,70 @@ public class DefaultParameterHandlerTest {
 
   }
 
+  @Test
+  public void shouldBindBeanProperties() throws SQLException {
+    MappedStatement mappedStatement = getMappedStatement();
+    Configuration config = mappedStatement.getConfiguration();
+    List<ParameterMapping> parameterMappings = Arrays.asList(
+        new ParameterMapping.Builder(config, "id", config.getTypeHandlerRegistry().getTypeHandler(Integer.class)).build(),
+        new ParameterMapping.Builder(config, "username", config.getTypeHandlerRegistry().getTypeHandler(String.class)).build());
+    Author author = new Author(1, "jim", null, null, null, null);
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    BoundSql boundSql = new BoundSql(config, "insert", parameterMappings, author);
+    new DefaultParameterHandler(mappedStatement, author, boundSql).setParameters(ps);
+    new DefaultParameterHandler(mappedStatement, author, new BoundSql(config, "insert", parameterMappings, author)).setParameters(ps);
+
+    verify(ps, times(2)).setInt(1, 1);
+    verify(ps, times(2)).setString(2, "jim");
+    ParameterBindingPlan plan = mappedStatement.getParameterBindingPlan(Author.class);
+    Assert.assertSame(plan.getBindings(parameterMappings), plan.getBindings(parameterMappings));
+    Assert.assertFalse(plan.isScalar());
+  }
+
+  @Test
+  public void shouldBindMapValuesAndAdditionalParameters() throws SQLException {
+    MappedStatement mappedStatement = getMappedStatement();
+    Configuration config = mappedStatement.getConfiguration();
+    TypeHandler<Object> typeHandler = new UnknownTypeHandler(config.getTypeHandlerRegistry());
+    List<ParameterMapping> parameterMappings = Arrays.asList(
+        new ParameterMapping.Builder(config, "name", typeHandler).build(),
+        new ParameterMapping.Builder(config, "item", typeHandler).build(),
+        new ParameterMapping.Builder(config, "missing", typeHandler).build());
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "jim");
+    parameter.put("item", "ignored");
+    BoundSql boundSql = new BoundSql(config, "select", parameterMappings, parameter);
+    boundSql.setAdditionalParameter("item", 10);
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, parameter, boundSql).setParameters(ps);
+
+    verify(ps).setString(1, "jim");
+    verify(ps).setInt(2, 10);
+    verify(ps).setNull(3, JdbcType.OTHER.TYPE_CODE);
+  }
+
+  @Test
+  public void shouldResolveTypeHandlerForScalarParameter() throws SQLException {
+    MappedStatement mappedStatement = getMappedStatement();
+    Configuration config = mappedStatement.getConfiguration();
+    List<ParameterMapping> parameterMappings = Collections.singletonList(
+        new ParameterMapping.Builder(config, "id", new UnknownTypeHandler(config.getTypeHandlerRegistry())).build());
+
+    PreparedStatement ps = mock(PreparedStatement.class);
+    new DefaultParameterHandler(mappedStatement, 5L, new BoundSql(config, "select", parameterMappings, 5L)).setParameters(ps);
+    new DefaultParameterHandler(mappedStatement, null, new BoundSql(config, "select", parameterMappings, null)).setParameters(ps);
+
+    verify(ps).setLong(1, 5L);
+    verify(ps).setNull(1, JdbcType.OTHER.TYPE_CODE);
+    ParameterBindingPlan plan = mappedStatement.getParameterBindingPlan(Long.class);
+    Assert.assertTrue(plan.isScalar());
+    ParameterBindingPlan.Binding binding = plan.getBinding(plan.getBindings(parameterMappings), 0, parameterMappings.get(0));
+    Assert.assertTrue(binding.getTypeHandler(5L) instanceof LongTypeHandler);
+    Assert.assertTrue(binding.getTypeHandler(null) instanceof UnknownTypeHandler);
+  }
+
   MappedStatement getMappedStatement() {
     //创建config
     final Configuration config = new Configuration();
@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.domain.blog.mappers.AuthorMapper;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.junit.Test;
+
+public class SealedConfigurationTest {
+
+  @Test
+  public void shouldKeepLookupsWorkingAfterSealing() throws Exception {
+    Configuration configuration = new Configuration();
+    addMapper(configuration, "org/apache/ibatis/builder/AuthorMapper.xml");
+    configuration.seal();
+
+    assertTrue(configuration.isSealed());
+    MappedStatement statement = configuration.getMappedStatement("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectWithOptions");
+    assertEquals(statement, configuration.getMappedStatement("selectWithOptions"));
+    assertTrue(configuration.hasStatement("selectWithOptions"));
+    try {
+      configuration.getMappedStatement("doesNotExist");
+      fail("Expected exception for unknown statement");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("does not contain value for doesNotExist");
+    }
+  }
+
+  @Test
+  public void shouldRejectModificationThroughViewsAfterSealing() throws Exception {
+    Configuration configuration = new Configuration();
+    addMapper(configuration, "org/apache/ibatis/builder/AuthorMapper.xml");
+    configuration.seal();
+    try {
+      configuration.getMappedStatementNames().clear();
+      fail("Expected registries to be read-only");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void shouldAllowAddingMappersAfterSealing() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.seal();
+
+    addMapper(configuration, "org/apache/ibatis/builder/AuthorMapper.xml");
+    configuration.seal();
+
+    assertTrue(configuration.hasMapper(AuthorMapper.class));
+    assertTrue(configuration.hasStatement("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAllAuthors"));
+    assertEquals("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAllAuthors",
+        configuration.getMappedStatement("selectAllAuthors").getId());
+  }
+
+  @Test
+  public void shouldKeepStrictMapBehaviourAfterSealing() {
+    Configuration.StrictMap<String> map = new Configuration.StrictMap<>("Test collection");
+    map.put("a.name", "first");
+    map.seal();
+    map.put("b.name", "second");
+
+    assertThat(map).isInstanceOf(HashMap.class);
+    assertEquals("first", map.get("a.name"));
+    assertEquals("second", map.get("b.name"));
+    assertEquals(3, map.size());
+    try {
+      map.get("name");
+      fail("Expected short name to be ambiguous");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("name is ambiguous in Test collection");
+    }
+    try {
+      map.put("a.name", "again");
+      fail("Expected duplicate key to be rejected");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("already contains value for a.name");
+    }
+    try {
+      map.putIfAbsent("c.name", "third");
+      fail("Expected unchecked writes to be rejected after sealing");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void shouldFailToSealWithUnresolvedReferences() {
+    final String mapper = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+        + "<mapper namespace=\"incomplete\">\n"
+        + "  <select id=\"select\" resultMap=\"missingResultMap\">select 1</select>\n"
+        + "</mapper>\n";
+    Configuration configuration = new Configuration();
+    InputStream inputStream = new ByteArrayInputStream(mapper.getBytes(StandardCharsets.UTF_8));
+    new XMLMapperBuilder(inputStream, configuration, "incomplete.xml", configuration.getSqlFragments()).parse();
+    try {
+      configuration.seal();
+      fail("Expected unresolved result map to fail sealing");
+    } catch (BuilderException e) {
+      assertThat(e.getMessage()).contains("missingResultMap");
+    }
+    assertThat(configuration.isSealed()).isFalse();
+  }
+
+  private void addMapper(Configuration configuration, String resource) throws Exception {
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+    }
+  }
+
+}
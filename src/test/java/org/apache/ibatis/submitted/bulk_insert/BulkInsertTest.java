@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.bulk_insert;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.SelectKey;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkInsertTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/bulk_insert/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/bulk_insert/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldInsertInChunksAndPopulateKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(5);
+      Assert.assertEquals(5, mapper.insertUsers(users));
+      Assert.assertEquals(5, mapper.countUsers());
+      for (int i = 0; i < users.size(); i++) {
+        Assert.assertEquals(Integer.valueOf(i + 1), users.get(i).getId());
+      }
+    }
+  }
+
+  @Test
+  public void shouldInsertInChunksWithAnnotation() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(7);
+      Assert.assertEquals(7, mapper.insertUsersWithAnnotation(users));
+      Assert.assertEquals(7, mapper.countUsers());
+      Assert.assertEquals(Integer.valueOf(7), users.get(6).getId());
+    }
+  }
+
+  @Test
+  public void shouldDoNothingForEmptyCollection() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals(0, mapper.insertUsers(Collections.<User>emptyList()));
+      Assert.assertEquals(0, mapper.countUsers());
+    }
+  }
+
+  @Test
+  public void shouldUnwrapParamAnnotatedList() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(5);
+      Assert.assertEquals(5, mapper.insertUsersWithParam(users));
+      Assert.assertEquals(5, mapper.countUsers());
+    }
+  }
+
+  @Test
+  public void shouldUnwrapArray() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = users(3);
+      Assert.assertEquals(3, mapper.insertUserArray(users.toArray(new User[0])));
+      Assert.assertEquals(3, mapper.countUsers());
+    }
+  }
+
+  @Test
+  public void shouldRejectSelectKey() {
+    Configuration configuration = new Configuration();
+    configuration.setEnvironment(sqlSessionFactory.getConfiguration().getEnvironment());
+    try {
+      configuration.addMapper(SelectKeyMapper.class);
+      Assert.fail("selectKey should not be allowed with bulkInsertSize");
+    } catch (BuilderException e) {
+      Assert.assertTrue(e.getMessage().contains("selectKey"));
+    }
+  }
+
+  private List<User> users(int count) {
+    List<User> users = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      User user = new User();
+      user.setName("User" + (i + 1));
+      users.add(user);
+    }
+    return users;
+  }
+
+  public interface SelectKeyMapper {
+
+    @Insert("insert into users (id, name) values (#{id}, #{name})")
+    @SelectKey(statement = "select 1 from (values(0))", keyProperty = "id", before = true, resultType = int.class)
+    @Options(bulkInsertSize = 2)
+    int insertUsers(List<User> users);
+
+  }
+
+}
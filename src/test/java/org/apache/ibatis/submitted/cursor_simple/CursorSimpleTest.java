@@ -17,6 +17,8 @@ package org.apache.ibatis.submitted.cursor_simple;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
+import org.apache.ibatis.cursor.defaults.CursorPublisher;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -32,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CursorSimpleTest {
 
@@ -361,4 +365,154 @@ public class CursorSimpleTest {
         }
     }
 
+    @Test
+    public void shouldPublishOnlyRequestedUsers() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Flow.Publisher<User> publisher = sqlSession.selectPublisher("org.apache.ibatis.submitted.cursor_simple.Mapper.getAllUsers");
+            RecordingSubscriber subscriber = new RecordingSubscriber(0);
+            publisher.subscribe(subscriber);
+            Assert.assertTrue(subscriber.users.isEmpty());
+
+            subscriber.subscription.request(2);
+            Assert.assertEquals(2, subscriber.users.size());
+            Assert.assertFalse(subscriber.completed);
+
+            subscriber.subscription.request(10);
+            Assert.assertEquals(5, subscriber.users.size());
+            Assert.assertEquals("User5", subscriber.users.get(4).getName());
+            Assert.assertTrue(subscriber.completed);
+            Assert.assertNull(subscriber.error);
+        }
+    }
+
+    @Test
+    public void shouldPublishFromMapperRequestingInOnNext() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            RecordingSubscriber subscriber = new RecordingSubscriber(1);
+            mapper.getAllUsersPublisher().subscribe(subscriber);
+            Assert.assertEquals(5, subscriber.users.size());
+            Assert.assertTrue(subscriber.completed);
+        }
+    }
+
+    @Test
+    public void shouldStopPublishingOnCancel() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            Flow.Publisher<User> publisher = mapper.getAllUsersPublisher();
+            RecordingSubscriber subscriber = new RecordingSubscriber(0);
+            publisher.subscribe(subscriber);
+            subscriber.subscription.request(1);
+            subscriber.subscription.cancel();
+            subscriber.subscription.request(1);
+            Assert.assertEquals(1, subscriber.users.size());
+            Assert.assertFalse(subscriber.completed);
+
+            RecordingSubscriber second = new RecordingSubscriber(0);
+            publisher.subscribe(second);
+            Assert.assertTrue(second.error instanceof IllegalStateException);
+
+            RecordingSubscriber invalid = new RecordingSubscriber(0);
+            mapper.getAllUsersPublisher().subscribe(invalid);
+            invalid.subscription.request(0);
+            Assert.assertTrue(invalid.error instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void shouldSignalErrorThrownWhileOpeningCursor() {
+        final boolean[] terminated = new boolean[1];
+        Flow.Publisher<User> publisher = new CursorPublisher<>(() -> {
+            throw new NoClassDefFoundError("missing");
+        }, () -> terminated[0] = true);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        Assert.assertTrue(subscriber.error instanceof NoClassDefFoundError);
+        Assert.assertTrue(terminated[0]);
+
+        subscriber.error = null;
+        subscriber.subscription.request(1);
+        Assert.assertNull(subscriber.error);
+        Assert.assertTrue(subscriber.users.isEmpty());
+    }
+
+    @Test
+    public void shouldStreamAllUsers() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            Cursor<User> usersCursor = mapper.getAllUsers();
+            try (Stream<User> users = usersCursor.stream()) {
+                Assert.assertEquals("User1,User2,User3,User4,User5",
+                        users.map(User::getName).collect(Collectors.joining(",")));
+            }
+            Assert.assertTrue(usersCursor.isConsumed());
+        }
+    }
+
+    @Test
+    public void shouldStreamInParallel() {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            try (Stream<User> users = mapper.getAllUsers().stream()) {
+                Assert.assertEquals(15, users.parallel().mapToInt(User::getId).sum());
+            }
+        }
+    }
+
+    @Test
+    public void shouldStreamWithPrefetch() {
+        sqlSessionFactory.getConfiguration().setCursorPrefetch(true);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Mapper mapper = sqlSession.getMapper(Mapper.class);
+            Cursor<User> usersCursor = mapper.getAllUsers();
+            try (Stream<User> users = usersCursor.stream()) {
+                Assert.assertEquals("User2", users.skip(1).findFirst().get().getName());
+            }
+            Assert.assertFalse(usersCursor.isOpen());
+        } finally {
+            sqlSessionFactory.getConfiguration().setCursorPrefetch(false);
+        }
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<User> {
+
+        private final int requestOnNext;
+        private final List<User> users = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+        private Throwable error;
+
+        RecordingSubscriber(int requestOnNext) {
+            this.requestOnNext = requestOnNext;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (requestOnNext > 0) {
+                subscription.request(requestOnNext);
+            }
+        }
+
+        @Override
+        public void onNext(User item) {
+            users.add(item);
+            if (requestOnNext > 0) {
+                subscription.request(requestOnNext);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
 }
@@ -15,10 +15,15 @@
  */
 package org.apache.ibatis.submitted.cursor_simple;
 
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.Flow;
 
 public interface Mapper {
 
   Cursor<User> getAllUsers();
 
+  @Select("select * from users order by id")
+  Flow.Publisher<User> getAllUsersPublisher();
+
 }
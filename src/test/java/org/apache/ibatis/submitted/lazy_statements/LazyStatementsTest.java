@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.lazy_statements;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyStatementsTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/lazy_statements/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/lazy_statements/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldBuildStatementsOnFirstUse() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals(2, mapper.countUsers());
+      Map<String, Object> user = new HashMap<>();
+      user.put("name", "User3");
+      Assert.assertEquals(1, mapper.insertUser(user));
+      Assert.assertEquals(3, user.get("id"));
+      Assert.assertEquals(3, mapper.countUsers());
+    }
+  }
+
+  @Test
+  public void shouldPreferStatementForCurrentDatabaseId() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals("hsql-User1", mapper.getUserName(1));
+    }
+  }
+
+  @Test
+  public void shouldReportBrokenStatementOnlyWhenUsed() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    Assert.assertTrue(configuration.hasStatement("org.apache.ibatis.submitted.lazy_statements.Mapper.getBroken"));
+    try {
+      configuration.getMappedStatement("org.apache.ibatis.submitted.lazy_statements.Mapper.getBroken");
+      Assert.fail("Should have failed to build the statement");
+    } catch (BuilderException e) {
+      Assert.assertTrue(e.getMessage().contains("NoSuchType"));
+    }
+  }
+
+  @Test
+  public void shouldBuildOnceForConcurrentCallers() throws Exception {
+    final Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<MappedStatement>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        results.add(executor.submit(new Callable<MappedStatement>() {
+          @Override
+          public MappedStatement call() {
+            return configuration.getMappedStatement("org.apache.ibatis.submitted.lazy_statements.Mapper.getUserName");
+          }
+        }));
+      }
+      MappedStatement first = results.get(0).get();
+      Assert.assertEquals("hsql", first.getDatabaseId());
+      for (Future<MappedStatement> result : results) {
+        Assert.assertSame(first, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldSealConfigurationForLazyBuilding() {
+    Assert.assertTrue(sqlSessionFactory.getConfiguration().isSealed());
+  }
+
+  @Test
+  public void shouldReportUnresolvedReferencesWhenBuildingFactory() throws Exception {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">"
+        + "<mapper namespace=\"broken\">"
+        + "<select id=\"select\" resultMap=\"missingResultMap\">select * from users</select>"
+        + "</mapper>";
+    Configuration configuration = new Configuration();
+    configuration.setLazyStatementBuilding(true);
+    new XMLMapperBuilder(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), configuration, "broken.xml",
+        configuration.getSqlFragments()).parse();
+    try {
+      new SqlSessionFactoryBuilder().build(configuration);
+      Assert.fail("Should have reported the missing result map");
+    } catch (BuilderException e) {
+      Assert.assertTrue(e.getMessage().contains("broken.missingResultMap"));
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.query_batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.QueryBatch;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryBatchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/query_batch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/query_batch/CreateDB.sql");
+  }
+
+  @Test
+  public void shouldReturnEachTypedResult() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      QueryBatch batch = sqlSession.newQueryBatch();
+      QueryBatch.Result<User> user = batch.selectOne("getUser", 2);
+      QueryBatch.Result<List<User>> users = batch.selectList("getUsers");
+      QueryBatch.Result<User> missing = batch.selectOne("getUser", 3);
+      QueryBatch.Result<Integer> count = batch.selectOne("countUsers");
+      assertEquals(4, batch.size());
+      assertFalse(user.isDone());
+
+      batch.execute();
+
+      assertEquals(0, batch.size());
+      assertTrue(user.isDone());
+      assertEquals("User2", user.get().getName());
+      assertEquals(2, users.get().size());
+      assertEquals("User1", users.get().get(0).getName());
+      assertNull(missing.get());
+      assertEquals(Integer.valueOf(2), count.get());
+    }
+  }
+
+  @Test
+  public void shouldFallBackToSequentialExecutionWhenStatementsCannotBeCombined() {
+    sqlSessionFactory.getConfiguration().setMultiStatementQueries(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> cached = sqlSession.selectList("getUsers");
+      QueryBatch batch = sqlSession.newQueryBatch();
+      // 本地缓存命中和需要刷新缓存的语句都逐个执行，剩下一个查询时不合并
+      QueryBatch.Result<List<User>> users = batch.selectList("getUsers");
+      QueryBatch.Result<Integer> count = batch.selectOne("countUsers");
+      QueryBatch.Result<User> user = batch.selectOne("getUser", 1);
+      batch.execute();
+
+      assertSame(cached, users.get());
+      assertEquals(Integer.valueOf(2), count.get());
+      assertEquals("User1", user.get().getName());
+    }
+  }
+
+  @Test
+  public void shouldRequireExecuteBeforeGet() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      QueryBatch batch = sqlSession.newQueryBatch();
+      QueryBatch.Result<List<User>> users = batch.selectList("getUsers");
+      try {
+        users.get();
+        fail("Should not return results before execute");
+      } catch (IllegalStateException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = TooManyResultsException.class)
+  public void shouldFailSelectOneWithManyRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      QueryBatch batch = sqlSession.newQueryBatch();
+      QueryBatch.Result<User> user = batch.selectOne("getUsers");
+      batch.execute();
+      user.get();
+    }
+  }
+
+}
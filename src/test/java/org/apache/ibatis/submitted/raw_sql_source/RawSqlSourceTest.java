@@ -55,9 +55,26 @@ public class RawSqlSourceTest {
     test("getUser2", DynamicSqlSource.class);
   }
 
+  @Test
+  public void shouldUseRawSqlSourceForAnStatementWithConstantXmlTags() {
+    test("getUser3", RawSqlSource.class);
+  }
+
   @Test
   public void shouldUseDynamicSqlSourceForAnStatementWithXmlTags() {
-    test("getUser3", DynamicSqlSource.class);
+    test("getUser4", DynamicSqlSource.class);
+  }
+
+  @Test
+  public void shouldFoldDatabaseIdConditionsAtBuildTime() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      SqlSource sqlSource = sqlSession.getConfiguration().getMappedStatement("getUser5").getSqlSource();
+      Assert.assertEquals(RawSqlSource.class, sqlSource.getClass());
+      String sql = sqlSource.getBoundSql(1).getSql().replaceAll("\\s+", " ");
+      Assert.assertEquals("select * from users where id = ?", sql);
+      User user = sqlSession.selectOne("getUser5", 1);
+      Assert.assertEquals("User1", user.getName());
+    }
   }
 
   private void test(String statement, Class<? extends SqlSource> sqlSource) {
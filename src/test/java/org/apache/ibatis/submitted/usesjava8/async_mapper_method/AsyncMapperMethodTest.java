@@ -0,0 +1,295 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.usesjava8.async_mapper_method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncMapperMethodTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader(
+        "org/apache/ibatis/submitted/usesjava8/async_mapper_method/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/usesjava8/async_mapper_method/CreateDB.sql");
+    sqlSessionFactory.getConfiguration().addMapper(CachedMapper.class);
+  }
+
+  @Test
+  public void shouldRunQueriesConcurrently() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<User> user1 = mapper.getUser(1);
+      CompletableFuture<User> user3 = mapper.getUser(3);
+      CompletableFuture<List<User>> users = mapper.getUsers().toCompletableFuture();
+      CompletableFuture<Map<Integer, User>> userMap = mapper.getUserMap();
+
+      assertEquals("User1", user1.join().getName());
+      assertNull(user3.join());
+      assertEquals(2, users.join().size());
+      assertEquals("User2", userMap.join().get(2).getName());
+    }
+  }
+
+  @Test
+  public void shouldCommitInOwnSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      user.setId(3);
+      user.setName("User3");
+      assertEquals(Integer.valueOf(1), mapper.insertUser(user).join());
+      // 调用方的会话没有未提交的修改
+      sqlSession.rollback(true);
+      assertEquals(Integer.valueOf(3), mapper.countUsers().join());
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void shouldServeManyConcurrentCallsFromSmallPool() {
+    // 默认线程池在支持虚拟线程的 JVM 上为每次调用创建一个虚拟线程，
+    // 等待连接和缓存的锁不应占住载体线程
+    runOnSmallPool(2000);
+  }
+
+  @Test(timeout = 120000)
+  public void shouldNotPinCarrierThreadsOnVirtualThreads() throws Exception {
+    // 需要 Java 21+ 的虚拟线程和 JFR 的 jdk.VirtualThreadPinned 事件
+    Method newVirtualThreadPerTaskExecutor;
+    try {
+      newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      Class.forName("jdk.jfr.consumer.RecordingFile");
+    } catch (NoSuchMethodException | ClassNotFoundException e) {
+      newVirtualThreadPerTaskExecutor = null;
+    }
+    assumeNotNull(newVirtualThreadPerTaskExecutor);
+    ExecutorService executor = (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(executor);
+    try {
+      // 预热，类初始化期间的阻塞不计入
+      runOnSmallPool(100);
+      PinnedEventRecorder recorder = PinnedEventRecorder.start();
+      long start = System.nanoTime();
+      runOnSmallPool(5000);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      List<String> pinned = recorder.stop();
+      assertTrue("Carrier threads pinned by MyBatis:\n" + pinned, pinned.isEmpty());
+      // 等待连接的虚拟线程被固定时，每轮都要等到 poolTimeToWait 超时，吞吐量会下降几个数量级
+      assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 60000);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * 通过 4 个连接的连接池并发执行带二级缓存的查询和每次都要借出连接的查询
+   */
+  private void runOnSmallPool(int calls) {
+    PooledDataSource dataSource = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:async_mapper_method", "sa", "");
+    dataSource.setPoolMaximumActiveConnections(4);
+    dataSource.setPoolTimeToWait(100);
+    sqlSessionFactory.getConfiguration().setEnvironment(
+        new Environment("pooled", new JdbcTransactionFactory(), dataSource));
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      CachedMapper mapper = sqlSession.getMapper(CachedMapper.class);
+      List<CompletableFuture<User>> users = new ArrayList<>();
+      List<CompletableFuture<Integer>> counts = new ArrayList<>();
+      for (int i = 0; i < calls; i++) {
+        // 有二级缓存
+        users.add(mapper.getUser(i % 2 + 1));
+        // 每次都要借出连接
+        counts.add(mapper.countUsers());
+      }
+      for (int i = 0; i < users.size(); i++) {
+        assertEquals("User" + (i % 2 + 1), users.get(i).join().getName());
+        assertEquals(Integer.valueOf(2), counts.get(i).join());
+      }
+      assertEquals(0, dataSource.getPoolState().getBadConnectionCount());
+    } finally {
+      dataSource.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldLimitConcurrentCallsAndReuseSessionFactory() {
+    org.apache.ibatis.session.Configuration configuration = sqlSessionFactory.getConfiguration();
+    SqlSessionFactory delegate = new DefaultSqlSessionFactory(configuration);
+    AtomicInteger opened = new AtomicInteger();
+    AtomicInteger open = new AtomicInteger();
+    AtomicInteger maxOpen = new AtomicInteger();
+    // 记录同时打开的会话数
+    configuration.setAsyncSqlSessionFactory(new DefaultSqlSessionFactory(configuration) {
+      @Override
+      public SqlSession openSession() {
+        SqlSession session = delegate.openSession();
+        opened.incrementAndGet();
+        maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+        return (SqlSession) Proxy.newProxyInstance(SqlSession.class.getClassLoader(), new Class<?>[] { SqlSession.class },
+            (proxy, method, args) -> {
+              if ("close".equals(method.getName())) {
+                open.decrementAndGet();
+              } else if ("selectOne".equals(method.getName())) {
+                // 让调用重叠
+                Thread.sleep(20);
+              }
+              try {
+                return method.invoke(session, args);
+              } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+              }
+            });
+      }
+    });
+    ExecutorService executor = Executors.newCachedThreadPool();
+    configuration.setAsyncExecutor(executor);
+    configuration.setAsyncMaxConcurrency(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<CompletableFuture<User>> users = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        users.add(mapper.getUser(i % 2 + 1));
+      }
+      for (int i = 0; i < users.size(); i++) {
+        assertEquals("User" + (i % 2 + 1), users.get(i).join().getName());
+      }
+      assertEquals(20, opened.get());
+      assertEquals(0, open.get());
+      assertTrue("At most 2 concurrent calls but was " + maxOpen.get(), maxOpen.get() <= 2);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldUseConfiguredExecutor() {
+    Thread[] threads = new Thread[1];
+    sqlSessionFactory.getConfiguration().setAsyncExecutor(command -> {
+      Thread thread = new Thread(command);
+      threads[0] = thread;
+      thread.start();
+    });
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User2", mapper.getUser(2).join().getName());
+      assertNotSame(Thread.currentThread(), threads[0]);
+    }
+  }
+
+  /**
+   * 通过反射使用 JFR 记录 jdk.VirtualThreadPinned 事件，测试代码以 Java 8 编译
+   */
+  private static final class PinnedEventRecorder {
+
+    private final Object recording;
+
+    private PinnedEventRecorder(Object recording) {
+      this.recording = recording;
+    }
+
+    static PinnedEventRecorder start() throws Exception {
+      Class<?> recordingType = Class.forName("jdk.jfr.Recording");
+      Class<?> settingsType = Class.forName("jdk.jfr.EventSettings");
+      Object recording = recordingType.getConstructor().newInstance();
+      Object settings = recordingType.getMethod("enable", String.class).invoke(recording, "jdk.VirtualThreadPinned");
+      settings = settingsType.getMethod("withThreshold", Duration.class).invoke(settings, Duration.ZERO);
+      settingsType.getMethod("withStackTrace").invoke(settings);
+      recordingType.getMethod("start").invoke(recording);
+      return new PinnedEventRecorder(recording);
+    }
+
+    /**
+     * @return MyBatis 代码中发生的固定事件的调用栈，JDBC 驱动内部的固定不计入
+     */
+    List<String> stop() throws Exception {
+      Class<?> recordingType = recording.getClass();
+      Path file = Files.createTempFile("pinned", ".jfr");
+      try {
+        recordingType.getMethod("stop").invoke(recording);
+        recordingType.getMethod("dump", Path.class).invoke(recording, file);
+        List<String> pinned = new ArrayList<>();
+        List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+            .getMethod("readAllEvents", Path.class).invoke(null, file);
+        Class<?> eventType = Class.forName("jdk.jfr.consumer.RecordedEvent");
+        Class<?> stackTraceType = Class.forName("jdk.jfr.consumer.RecordedStackTrace");
+        Class<?> frameType = Class.forName("jdk.jfr.consumer.RecordedFrame");
+        Class<?> methodType = Class.forName("jdk.jfr.consumer.RecordedMethod");
+        Class<?> classType = Class.forName("jdk.jfr.consumer.RecordedClass");
+        for (Object event : events) {
+          Object stackTrace = eventType.getMethod("getStackTrace").invoke(event);
+          if (stackTrace == null) {
+            continue;
+          }
+          StringBuilder frames = new StringBuilder();
+          boolean inMyBatis = false;
+          boolean inDriver = false;
+          for (Object frame : (List<?>) stackTraceType.getMethod("getFrames").invoke(stackTrace)) {
+            Object method = frameType.getMethod("getMethod").invoke(frame);
+            String className = (String) classType.getMethod("getName").invoke(methodType.getMethod("getType").invoke(method));
+            inMyBatis |= className.startsWith("org.apache.ibatis.");
+            inDriver |= className.startsWith("org.hsqldb.");
+            frames.append("  at ").append(className).append('.').append(methodType.getMethod("getName").invoke(method)).append('\n');
+          }
+          if (inMyBatis && !inDriver) {
+            pinned.add(frames.toString());
+          }
+        }
+        return pinned;
+      } finally {
+        recordingType.getMethod("close").invoke(recording);
+        Files.deleteIfExists(file);
+      }
+    }
+
+  }
+
+}